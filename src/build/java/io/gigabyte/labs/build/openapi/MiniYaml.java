@@ -0,0 +1,234 @@
+package io.gigabyte.labs.build.openapi;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lector YAML para el subconjunto que usan las especificaciones OpenAPI del proyecto: mapas y
+ * listas por indentación, listas en línea ({@code [a, b]}), escalares con o sin comillas y
+ * comentarios. Devuelve {@code Map<String, Object>}, {@code List<Object>} y escalares como String.
+ * No soporta anclas, bloques literales ({@code |}, {@code >}) ni mapas en línea.
+ */
+final class MiniYaml {
+
+    private record Line(int number, int indent, String text) {
+    }
+
+    private final List<Line> lines = new ArrayList<>();
+    private int position;
+
+    private MiniYaml(String text) {
+        String[] raw = text.split("\r?\n", -1);
+        for (int i = 0; i < raw.length; i++) {
+            String content = stripComment(raw[i]);
+            if (content.isBlank()) {
+                continue;
+            }
+            if (content.substring(0, content.length() - content.stripLeading().length()).indexOf('\t') >= 0) {
+                throw new IllegalArgumentException("line " + (i + 1) + ": tabs are not allowed for indentation");
+            }
+            lines.add(new Line(i + 1, indentOf(content), content.strip()));
+        }
+    }
+
+    static Object parse(String text) {
+        MiniYaml yaml = new MiniYaml(text);
+        if (yaml.lines.isEmpty()) {
+            return null;
+        }
+        Object root = yaml.node(yaml.lines.get(0).indent());
+        if (yaml.position < yaml.lines.size()) {
+            throw yaml.error(yaml.lines.get(yaml.position), "unexpected indentation");
+        }
+        return root;
+    }
+
+    private Object node(int indent) {
+        Line line = lines.get(position);
+        return isItem(line.text()) ? sequence(indent) : mapping(indent);
+    }
+
+    private Map<String, Object> mapping(int indent) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        while (position < lines.size()) {
+            Line line = lines.get(position);
+            if (line.indent() < indent || line.indent() == indent && isItem(line.text())) {
+                break;
+            }
+            if (line.indent() > indent) {
+                throw error(line, "unexpected indentation");
+            }
+            int colon = keySeparator(line.text());
+            if (colon < 0) {
+                throw error(line, "expected 'key: value'");
+            }
+            String key = unquote(line.text().substring(0, colon).strip());
+            String rest = line.text().substring(colon + 1).strip();
+            position++;
+            if (map.containsKey(key)) {
+                throw error(line, "duplicate key '" + key + "'");
+            }
+            map.put(key, rest.isEmpty() ? nested(indent) : scalar(rest, line));
+        }
+        return map;
+    }
+
+    // Valor de una clave sin valor en línea: bloque más indentado, lista a la misma altura o null
+    private Object nested(int indent) {
+        if (position == lines.size()) {
+            return null;
+        }
+        Line next = lines.get(position);
+        if (next.indent() > indent) {
+            return node(next.indent());
+        }
+        if (next.indent() == indent && isItem(next.text())) {
+            return sequence(indent);
+        }
+        return null;
+    }
+
+    private List<Object> sequence(int indent) {
+        List<Object> list = new ArrayList<>();
+        while (position < lines.size()) {
+            Line line = lines.get(position);
+            if (line.indent() != indent || !isItem(line.text())) {
+                if (line.indent() > indent) {
+                    throw error(line, "unexpected indentation");
+                }
+                break;
+            }
+            String rest = line.text().substring(1).strip();
+            if (rest.isEmpty()) {
+                position++;
+                list.add(nested(indent));
+            } else if (keySeparator(rest) >= 0 && !rest.startsWith("[") && !isQuoted(rest)) {
+                // "- clave: valor" abre un mapa cuyas claves siguen alineadas con la primera
+                int itemIndent = indent + line.text().indexOf(rest);
+                lines.set(position, new Line(line.number(), itemIndent, rest));
+                list.add(mapping(itemIndent));
+            } else {
+                position++;
+                list.add(scalar(rest, line));
+            }
+        }
+        return list;
+    }
+
+    private Object scalar(String text, Line line) {
+        if (text.startsWith("[")) {
+            if (!text.endsWith("]")) {
+                throw error(line, "unterminated flow sequence");
+            }
+            List<Object> items = new ArrayList<>();
+            String inner = text.substring(1, text.length() - 1).strip();
+            if (!inner.isEmpty()) {
+                for (String item : splitFlow(inner, line)) {
+                    items.add(unquote(item.strip()));
+                }
+            }
+            return items;
+        }
+        if (text.startsWith("{")) {
+            throw error(line, "flow mappings are not supported");
+        }
+        if (text.startsWith("|") || text.startsWith(">")) {
+            throw error(line, "block scalars are not supported");
+        }
+        return unquote(text);
+    }
+
+    private List<String> splitFlow(String text, Line line) {
+        List<String> parts = new ArrayList<>();
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[' || c == '{') {
+                throw error(line, "nested flow collections are not supported");
+            } else if (c == ',') {
+                parts.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(text.substring(start));
+        return parts;
+    }
+
+    // Posición del ':' que separa clave y valor (seguido de espacio o fin de línea, fuera de comillas)
+    private static int keySeparator(String text) {
+        char quote = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if ((c == '"' || c == '\'') && i == 0) {
+                quote = c;
+            } else if (c == ':' && (i + 1 == text.length() || text.charAt(i + 1) == ' ')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String unquote(String text) {
+        if (text.length() >= 2 && text.charAt(0) == '\'' && text.endsWith("'")) {
+            return text.substring(1, text.length() - 1).replace("''", "'");
+        }
+        if (text.length() >= 2 && text.charAt(0) == '"' && text.endsWith("\"")) {
+            return text.substring(1, text.length() - 1).replace("\\\"", "\"").replace("\\\\", "\\");
+        }
+        return text;
+    }
+
+    private static boolean isQuoted(String text) {
+        return !text.isEmpty() && (text.charAt(0) == '"' || text.charAt(0) == '\'')
+          && keySeparator(text) < 0;
+    }
+
+    private static boolean isItem(String text) {
+        return text.equals("-") || text.startsWith("- ");
+    }
+
+    // Un '#' empieza comentario al principio de línea o tras un espacio, fuera de comillas
+    private static String stripComment(String line) {
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                if (i == 0 || " :[,-".indexOf(line.charAt(i - 1)) >= 0) {
+                    quote = c;
+                }
+            } else if (c == '#' && (i == 0 || line.charAt(i - 1) == ' ')) {
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+
+    private static int indentOf(String line) {
+        int i = 0;
+        while (i < line.length() && line.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private IllegalArgumentException error(Line line, String message) {
+        return new IllegalArgumentException("line " + line.number() + ": " + message);
+    }
+}
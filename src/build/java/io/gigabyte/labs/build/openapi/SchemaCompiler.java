@@ -0,0 +1,690 @@
+package io.gigabyte.labs.build.openapi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Traduce los esquemas de una especificación OpenAPI 3.0 (ya leída con {@link MiniYaml}) a
+ * validadores Java que recorren el JSON una sola vez con {@code JsonTokens}: un método por objeto o
+ * lista, una rama por propiedad y una máscara de bits para los campos obligatorios. Los esquemas de
+ * {@code components} generan {@code <Nombre>Validator}; los que van en línea en una operación,
+ * clases como {@code PostRidesRequestValidator}, compartidas si dos operaciones declaran lo mismo.
+ * <p>
+ * Antes de generar revisa la especificación: un {@code $ref} que no resuelve, un tipo desconocido o
+ * un {@code required} sin su propiedad son errores; una propiedad que en un esquema apunta a un tipo
+ * distinto que en el resto, o construcciones que no se validan (allOf, oneOf...), son avisos.
+ */
+final class SchemaCompiler {
+
+    static final String REF_PREFIX = "#/components/schemas/";
+    static final String RUNTIME_PACKAGE = "io.gigabyte.labs.lyfto.validation";
+
+    private static final List<String> METHODS = List.of("get", "put", "post", "delete", "patch");
+    private static final Set<String> TYPES = Set.of("object", "array", "string", "number", "integer", "boolean");
+    private static final Set<String> INTEGER_FORMATS = Set.of("int", "int32", "int64");
+    private static final List<String> UNSUPPORTED = List.of("allOf", "oneOf", "anyOf", "not");
+
+    record Problem(boolean error, String message) {
+    }
+
+    record Source(String className, String code) {
+    }
+
+    // Una aparición de una propiedad: dónde y a qué apunta (ref:Location, type:string...)
+    private record Usage(String where, String signature) {
+    }
+
+    private final String specName;
+    private final String packageName;
+    private final String registryName;
+    private final Map<String, Map<String, Object>> schemas = new LinkedHashMap<>();
+    private final Map<String, Map<String, Object>> requestBodies = new LinkedHashMap<>();
+    private final Map<String, Map<String, Object>> responses = new LinkedHashMap<>();
+    private final List<Problem> problems = new ArrayList<>();
+    private final Map<String, List<Usage>> usages = new LinkedHashMap<>();
+
+    SchemaCompiler(Object spec, String specName, String packageName, String registryName) {
+        this.specName = specName;
+        this.packageName = packageName;
+        this.registryName = registryName;
+        Map<String, Object> root = mapping(spec, "(root)");
+        Map<String, Object> components = mapping(root.get("components"), "components");
+        mapping(components.get("schemas"), "components.schemas")
+          .forEach((name, schema) -> schemas.put(name, mapping(schema, name)));
+        mapping(root.get("paths"), "paths").forEach((path, item) -> readOperations(path, mapping(item, path)));
+
+        schemas.forEach((name, schema) -> inspect(schema, name));
+        requestBodies.forEach((operation, schema) -> inspect(schema, operation + " request"));
+        responses.forEach((operation, schema) -> inspect(schema, operation + " response"));
+        checkConsistency();
+    }
+
+    List<Problem> problems() {
+        return problems;
+    }
+
+    boolean hasErrors() {
+        return problems.stream().anyMatch(Problem::error);
+    }
+
+    private void readOperations(String path, Map<String, Object> item) {
+        for (String method : METHODS) {
+            if (!(item.get(method) instanceof Map<?, ?> operation)) {
+                continue;
+            }
+            String key = method.toUpperCase(Locale.ROOT) + " " + path;
+            Map<String, Object> requestSchema = jsonSchema(operation.get("requestBody"));
+            if (requestSchema != null) {
+                requestBodies.put(key, requestSchema);
+            }
+            if (operation.get("responses") instanceof Map<?, ?> byStatus) {
+                byStatus.forEach((status, response) -> {
+                    Map<String, Object> responseSchema = jsonSchema(response);
+                    if (responseSchema != null) {
+                        responses.put(key + " " + status, responseSchema);
+                    }
+                });
+            }
+        }
+    }
+
+    // content.application/json.schema de un requestBody o una respuesta, si lo tiene
+    private Map<String, Object> jsonSchema(Object body) {
+        if (body instanceof Map<?, ?> map && map.get("content") instanceof Map<?, ?> content
+          && content.get("application/json") instanceof Map<?, ?> media && media.get("schema") != null) {
+            return mapping(media.get("schema"), "schema");
+        }
+        return null;
+    }
+
+    private void inspect(Map<String, Object> schema, String where) {
+        Object ref = schema.get("$ref");
+        if (ref != null) {
+            if (refTarget(ref) == null) {
+                error(where + ": $ref '" + ref + "' does not resolve to a schema in components.schemas");
+            }
+            return;
+        }
+        for (String keyword : UNSUPPORTED) {
+            if (schema.containsKey(keyword)) {
+                warning(where + ": " + keyword + " is not supported; its subschemas are not validated");
+            }
+        }
+        String type = typeOf(schema);
+        if (type != null && !TYPES.contains(type)) {
+            error(where + ": unknown type '" + type + "'");
+            return;
+        }
+        Object format = schema.get("format");
+        if ("number".equals(type) && "int".equals(format)) {
+            warning(where + ": format 'int' is not standard for number; validated as an integer");
+        }
+        if (schema.containsKey("enum") && !("string".equals(type) && schema.get("enum") instanceof List)) {
+            warning(where + ": enum is only validated on string types; ignored");
+        }
+        if ("object".equals(type)) {
+            Map<String, Object> properties = properties(schema);
+            properties.forEach((name, property) -> {
+                Map<String, Object> child = mapping(property, where + "." + name);
+                usages.computeIfAbsent(name, n -> new ArrayList<>()).add(new Usage(where, signature(child)));
+                inspect(child, where + "." + name);
+            });
+            List<String> required = required(schema);
+            for (String field : required) {
+                if (!properties.containsKey(field)) {
+                    error(where + ": required field '" + field + "' is not declared in properties");
+                }
+            }
+            if (required.size() > Long.SIZE) {
+                error(where + ": more than " + Long.SIZE + " required fields");
+            }
+        } else if ("array".equals(type) && schema.get("items") != null) {
+            inspect(mapping(schema.get("items"), where + "[]"), where + "[]");
+        }
+    }
+
+    // Avisa de cada aparición de una propiedad que no coincide con lo que declara la mayoría
+    private void checkConsistency() {
+        usages.forEach((name, list) -> {
+            Map<String, List<Usage>> bySignature = new LinkedHashMap<>();
+            for (Usage usage : list) {
+                bySignature.computeIfAbsent(usage.signature(), s -> new ArrayList<>()).add(usage);
+            }
+            if (bySignature.size() < 2) {
+                return;
+            }
+            String majority = null;
+            for (Map.Entry<String, List<Usage>> entry : bySignature.entrySet()) {
+                if (majority == null || entry.getValue().size() > bySignature.get(majority).size()) {
+                    majority = entry.getKey();
+                }
+            }
+            List<String> where = bySignature.get(majority).stream().map(Usage::where).toList();
+            for (Map.Entry<String, List<Usage>> entry : bySignature.entrySet()) {
+                if (entry.getKey().equals(majority)) {
+                    continue;
+                }
+                for (Usage usage : entry.getValue()) {
+                    warning(usage.where() + "." + name + ": " + describe(usage.signature(), true) + ", but " + name + " "
+                      + describe(majority, false) + " in " + String.join(", ", where));
+                }
+            }
+        });
+    }
+
+    private static String signature(Map<String, Object> schema) {
+        Object ref = schema.get("$ref");
+        if (ref != null) {
+            return "ref:" + refName(ref);
+        }
+        String type = typeOf(schema);
+        return "type:" + (type == null ? "any" : type);
+    }
+
+    private static String describe(String signature, boolean here) {
+        String value = signature.substring(signature.indexOf(':') + 1);
+        if (signature.startsWith("ref:")) {
+            return (here ? "$ref points to " : "refers to ") + value;
+        }
+        return (here ? "type is " : "is ") + value;
+    }
+
+    // --- Generación ---
+
+    List<Source> sources() {
+        List<Source> sources = new ArrayList<>();
+        Set<String> used = new HashSet<>();
+        Map<String, String> componentClasses = new LinkedHashMap<>();
+        schemas.keySet().forEach(name -> componentClasses.put(name, unique(identifier(name) + "Validator", used)));
+        schemas.forEach((name, schema) ->
+          sources.add(new ValidatorWriter(componentClasses.get(name), name, componentClasses).write(schema)));
+
+        // Los esquemas en línea iguales (/rides y /v2/rides) comparten clase
+        Map<Map<String, Object>, String> inline = new HashMap<>();
+        Map<String, String> requestClasses = new LinkedHashMap<>();
+        Map<String, String> responseClasses = new LinkedHashMap<>();
+        requestBodies.forEach((operation, schema) -> requestClasses.put(operation,
+          classFor(schema, operation, "Request", operation + " request", componentClasses, inline, used, sources)));
+        responses.forEach((operation, schema) -> {
+            int status = operation.lastIndexOf(' ');
+            responseClasses.put(operation, classFor(schema, operation.substring(0, status),
+              "Response" + operation.substring(status + 1), operation + " response", componentClasses, inline, used, sources));
+        });
+        sources.add(registry(componentClasses, requestClasses, responseClasses));
+        return sources;
+    }
+
+    private String classFor(Map<String, Object> schema, String operation, String suffix, String description,
+                            Map<String, String> componentClasses, Map<Map<String, Object>, String> inline, Set<String> used,
+                            List<Source> sources) {
+        Object ref = schema.get("$ref");
+        if (ref != null) {
+            return componentClasses.get(refName(ref));
+        }
+        String existing = inline.get(schema);
+        if (existing != null) {
+            return existing;
+        }
+        String className = unique(operationIdentifier(operation) + suffix + "Validator", used);
+        inline.put(schema, className);
+        sources.add(new ValidatorWriter(className, description, componentClasses).write(schema));
+        return className;
+    }
+
+    private Source registry(Map<String, String> componentClasses, Map<String, String> requestClasses,
+                            Map<String, String> responseClasses) {
+        Code code = header(true);
+        code.line(0, "/**");
+        code.line(0, " * Validadores generados a partir de " + specName + ", por esquema y por operación. Cada");
+        code.line(0, " * método devuelve null si la especificación no declara ese esquema u operación.");
+        code.line(0, " */");
+        code.line(0, "@Generated(\"" + ValidatorProcessor.class.getName() + "\")");
+        code.line(0, "public final class " + registryName + " {");
+        code.blank();
+        entries(code, "SCHEMAS", componentClasses);
+        entries(code, "REQUEST_BODIES", requestClasses);
+        entries(code, "RESPONSES", responseClasses);
+        code.line(1, "private " + registryName + "() {");
+        code.line(1, "}");
+        code.blank();
+        code.line(1, "public static PayloadValidator schema(String name) {");
+        code.line(2, "return SCHEMAS.get(name);");
+        code.line(1, "}");
+        code.blank();
+        code.line(1, "// method en mayúsculas y path tal cual en la especificación: POST, /rides/{rideId}");
+        code.line(1, "public static PayloadValidator requestBody(String method, String path) {");
+        code.line(2, "return REQUEST_BODIES.get(method + \" \" + path);");
+        code.line(1, "}");
+        code.blank();
+        code.line(1, "public static PayloadValidator response(String method, String path, int status) {");
+        code.line(2, "return RESPONSES.get(method + \" \" + path + \" \" + status);");
+        code.line(1, "}");
+        code.line(0, "}");
+        return new Source(registryName, code.toString());
+    }
+
+    private static void entries(Code code, String constant, Map<String, String> classes) {
+        code.line(1, "private static final Map<String, PayloadValidator> " + constant + " = Map.ofEntries(");
+        int i = 0;
+        for (Map.Entry<String, String> entry : classes.entrySet()) {
+            code.line(3, "Map.entry(" + javaString(entry.getKey()) + ", " + entry.getValue() + ".INSTANCE)"
+              + (++i < classes.size() ? "," : ");"));
+        }
+        if (classes.isEmpty()) {
+            code.line(3, ");");
+        }
+        code.blank();
+    }
+
+    private Code header(boolean registry) {
+        Code code = new Code();
+        code.line(0, "package " + packageName + ";");
+        code.blank();
+        if (!packageName.equals(RUNTIME_PACKAGE)) {
+            code.line(0, "import " + RUNTIME_PACKAGE + ".JsonTokens;");
+            code.line(0, "import " + RUNTIME_PACKAGE + ".JsonValidationException;");
+            code.line(0, "import " + RUNTIME_PACKAGE + ".PayloadValidator;");
+            code.blank();
+        }
+        code.line(0, "import javax.annotation.processing.Generated;");
+        if (registry) {
+            code.line(0, "import java.util.Map;");
+        }
+        code.blank();
+        code.line(0, "// Generado por ValidatorProcessor a partir de " + specName + ": no editar.");
+        return code;
+    }
+
+    /**
+     * Escribe una clase validadora. El esquema raíz va en {@code check}; cada objeto o lista anidada
+     * en línea, en su propio método privado.
+     */
+    private final class ValidatorWriter {
+
+        private final String className;
+        private final String description;
+        private final Map<String, String> componentClasses;
+        // Clave (name:id, enum:[...]) -> constante, y constante -> declaración
+        private final Map<String, String> constantKeys = new HashMap<>();
+        private final Map<String, String> constants = new LinkedHashMap<>();
+        private final Set<String> constantNames = new HashSet<>();
+        private final List<Code> methods = new ArrayList<>();
+
+        ValidatorWriter(String className, String description, Map<String, String> componentClasses) {
+            this.className = className;
+            this.description = description;
+            this.componentClasses = componentClasses;
+        }
+
+        Source write(Map<String, Object> schema) {
+            Code check = new Code();
+            check.line(1, "static void check(JsonTokens in) {");
+            body(schema, check, "");
+            check.line(1, "}");
+
+            Code code = header(false);
+            code.line(0, "@Generated(\"" + ValidatorProcessor.class.getName() + "\")");
+            code.line(0, "public final class " + className + " implements PayloadValidator {");
+            code.blank();
+            code.line(1, "public static final " + className + " INSTANCE = new " + className + "();");
+            code.blank();
+            if (!constants.isEmpty()) {
+                constants.forEach((name, initializer) -> code.line(1, "private static final " + initializer.replace("$", name)));
+                code.blank();
+            }
+            code.line(1, "private " + className + "() {");
+            code.line(1, "}");
+            code.blank();
+            code.line(1, "@Override");
+            code.line(1, "public String name() {");
+            code.line(2, "return " + javaString(description) + ";");
+            code.line(1, "}");
+            code.blank();
+            code.line(1, "@Override");
+            code.line(1, "public void validate(byte[] json, int length) {");
+            code.line(2, "JsonTokens in = new JsonTokens(json, length);");
+            code.line(2, "check(in);");
+            code.line(2, "in.end();");
+            code.line(1, "}");
+            code.blank();
+            code.append(check);
+            for (Code method : methods) {
+                code.blank();
+                code.append(method);
+            }
+            code.line(0, "}");
+            return new Source(className, code.toString());
+        }
+
+        // Cuerpo de un método que valida el valor bajo el cursor
+        private void body(Map<String, Object> schema, Code code, String hint) {
+            String type = schema.get("$ref") == null ? typeOf(schema) : null;
+            if ("object".equals(type) || "array".equals(type)) {
+                if (isNullable(schema)) {
+                    code.line(2, "if (in.consumeNull()) {");
+                    code.line(3, "return;");
+                    code.line(2, "}");
+                }
+                if ("object".equals(type)) {
+                    object(schema, code, hint);
+                } else {
+                    array(schema, code, hint);
+                }
+            } else {
+                value(schema, code, 2, hint);
+            }
+        }
+
+        private void object(Map<String, Object> schema, Code code, String hint) {
+            Map<String, Object> properties = properties(schema);
+            List<String> required = required(schema);
+            code.line(2, "in.beginObject();");
+            if (properties.isEmpty()) {
+                code.line(2, "while (in.nextField()) {");
+                code.line(3, "in.skipValue();");
+                code.line(2, "}");
+                return;
+            }
+            if (!required.isEmpty()) {
+                code.line(2, "long seen = 0;");
+            }
+            code.line(2, "String field = null;");
+            code.line(2, "try {");
+            code.line(3, "while (in.nextField()) {");
+            String keyword = "if";
+            for (Map.Entry<String, Object> property : properties.entrySet()) {
+                String name = property.getKey();
+                code.line(4, keyword + " (in.nameIs(" + nameConstant(name) + ")) {");
+                code.line(5, "field = " + javaString(name) + ";");
+                value(mapping(property.getValue(), name), code, 5, name);
+                int bit = required.indexOf(name);
+                if (bit >= 0) {
+                    code.line(5, "seen |= 1L << " + bit + ";");
+                }
+                keyword = "} else if";
+            }
+            code.line(4, "} else {");
+            code.line(5, "in.skipValue();");
+            code.line(4, "}");
+            code.line(4, "field = null;");
+            code.line(3, "}");
+            code.line(2, "} catch (JsonValidationException e) {");
+            code.line(3, "throw field == null ? e : e.under(field);");
+            code.line(2, "}");
+            for (int bit = 0; bit < required.size(); bit++) {
+                code.line(2, "if ((seen & 1L << " + bit + ") == 0) {");
+                code.line(3, "throw in.missing(" + javaString(required.get(bit)) + ");");
+                code.line(2, "}");
+            }
+        }
+
+        private void array(Map<String, Object> schema, Code code, String hint) {
+            Map<String, Object> items = schema.get("items") == null ? Map.of() : mapping(schema.get("items"), hint);
+            code.line(2, "in.beginArray();");
+            code.line(2, "int index = 0;");
+            code.line(2, "try {");
+            code.line(3, "while (in.nextElement()) {");
+            value(items, code, 4, hint);
+            code.line(4, "index++;");
+            code.line(3, "}");
+            code.line(2, "} catch (JsonValidationException e) {");
+            code.line(3, "throw e.under(index);");
+            code.line(2, "}");
+        }
+
+        // Sentencias que validan un valor; los objetos y listas anidados van a su propio método
+        private void value(Map<String, Object> schema, Code code, int indent, String hint) {
+            Object ref = schema.get("$ref");
+            if (ref != null) {
+                code.line(indent, componentClasses.get(refName(ref)) + ".check(in);");
+                return;
+            }
+            String type = typeOf(schema);
+            String statement = switch (type == null ? "any" : type) {
+                case "object", "array" -> nested(schema, hint);
+                case "string" -> schema.get("enum") instanceof List<?> values
+                  ? "in.stringIn(" + enumConstant(hint, values) + ", " + javaString(join(values)) + ");" : "in.string();";
+                case "number" -> INTEGER_FORMATS.contains(schema.get("format")) ? "in.integer();" : "in.number();";
+                case "integer" -> "in.integer();";
+                case "boolean" -> "in.bool();";
+                default -> "in.skipValue();";
+            };
+            if (type == null || "object".equals(type) || "array".equals(type) || !isNullable(schema)) {
+                code.line(indent, statement);
+            } else {
+                code.line(indent, "if (!in.consumeNull()) {");
+                code.line(indent + 1, statement);
+                code.line(indent, "}");
+            }
+        }
+
+        private String nested(Map<String, Object> schema, String hint) {
+            String method = (hint.isEmpty() ? typeOf(schema) : camel(hint)) + (methods.size() + 1);
+            Code code = new Code();
+            code.line(1, "private static void " + method + "(JsonTokens in) {");
+            // Se reserva el sitio antes de generar el cuerpo para que los anidados vayan detrás
+            methods.add(code);
+            body(schema, code, hint);
+            code.line(1, "}");
+            return method + "(in);";
+        }
+
+        private String nameConstant(String name) {
+            return constant("name:" + name, constantName(name), "byte[] $ = JsonTokens.bytes(" + javaString(name) + ");");
+        }
+
+        private String enumConstant(String hint, List<?> values) {
+            StringBuilder initializer = new StringBuilder("byte[][] $ = {");
+            for (int i = 0; i < values.size(); i++) {
+                initializer.append(i == 0 ? "" : ", ").append("JsonTokens.bytes(").append(javaString(String.valueOf(values.get(i))))
+                  .append(")");
+            }
+            String base = hint.isEmpty() ? "VALUES" : constantName(hint) + "_VALUES";
+            return constant("enum:" + values, base, initializer.append("};").toString());
+        }
+
+        private String constant(String key, String base, String initializer) {
+            String existing = constantKeys.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            String name = unique(base, constantNames);
+            constantKeys.put(key, name);
+            constants.put(name, initializer);
+            return name;
+        }
+    }
+
+    // --- Recurso con los esquemas para TreeValidator ---
+
+    String schemaJson() {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("schemas", schemas);
+        document.put("requestBodies", requestBodies);
+        document.put("responses", responses);
+        StringBuilder json = new StringBuilder();
+        writeJson(document, json);
+        return json.append('\n').toString();
+    }
+
+    private static void writeJson(Object value, StringBuilder json) {
+        if (value instanceof Map<?, ?> map) {
+            json.append('{');
+            int i = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                json.append(i++ == 0 ? "" : ",").append(javaString(String.valueOf(entry.getKey()))).append(':');
+                writeJson(entry.getValue(), json);
+            }
+            json.append('}');
+        } else if (value instanceof List<?> list) {
+            json.append('[');
+            for (int i = 0; i < list.size(); i++) {
+                json.append(i == 0 ? "" : ",");
+                writeJson(list.get(i), json);
+            }
+            json.append(']');
+        } else {
+            json.append(value == null ? "null" : javaString(String.valueOf(value)));
+        }
+    }
+
+    // --- Utilidades ---
+
+    private Map<String, Object> refTarget(Object ref) {
+        return ref instanceof String text && text.startsWith(REF_PREFIX) ? schemas.get(text.substring(REF_PREFIX.length())) : null;
+    }
+
+    private static String refName(Object ref) {
+        String text = String.valueOf(ref);
+        return text.startsWith(REF_PREFIX) ? text.substring(REF_PREFIX.length()) : text;
+    }
+
+    // Un esquema con properties y sin type se trata como objeto, igual que en TreeValidator
+    private static String typeOf(Map<String, Object> schema) {
+        Object type = schema.get("type");
+        if (type == null && schema.containsKey("properties")) {
+            return "object";
+        }
+        return type == null ? null : String.valueOf(type);
+    }
+
+    private static boolean isNullable(Map<String, Object> schema) {
+        return "true".equals(schema.get("nullable"));
+    }
+
+    private Map<String, Object> properties(Map<String, Object> schema) {
+        return schema.get("properties") == null ? Map.of() : mapping(schema.get("properties"), "properties");
+    }
+
+    private static List<String> required(Map<String, Object> schema) {
+        return schema.get("required") instanceof List<?> list ? list.stream().map(String::valueOf).toList() : List.of();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> mapping(Object value, String where) {
+        if (value instanceof Map<?, ?> map) {
+            return (Map<String, Object>) map;
+        }
+        if (value != null) {
+            error(where + ": expected a mapping");
+        }
+        return new LinkedHashMap<>();
+    }
+
+    private void error(String message) {
+        problems.add(new Problem(true, message));
+    }
+
+    private void warning(String message) {
+        problems.add(new Problem(false, message));
+    }
+
+    private static String unique(String base, Set<String> used) {
+        String name = base;
+        for (int i = 2; !used.add(name); i++) {
+            name = base + i;
+        }
+        return name;
+    }
+
+    // "POST /rides/{rideId}" -> PostRidesRideId
+    private static String operationIdentifier(String operation) {
+        return identifier(operation.toLowerCase(Locale.ROOT).substring(0, operation.indexOf(' ')))
+          + identifier(operation.substring(operation.indexOf(' ') + 1));
+    }
+
+    private static String identifier(String text) {
+        StringBuilder name = new StringBuilder();
+        boolean upper = true;
+        for (char c : text.toCharArray()) {
+            if (Character.isLetterOrDigit(c)) {
+                name.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            } else {
+                upper = true;
+            }
+        }
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            name.insert(0, 'S');
+        }
+        return name.toString();
+    }
+
+    private static String camel(String text) {
+        String name = identifier(text);
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    // startLocation -> START_LOCATION
+    private static String constantName(String text) {
+        StringBuilder name = new StringBuilder();
+        char previous = 0;
+        for (char c : text.toCharArray()) {
+            if (!Character.isLetterOrDigit(c)) {
+                c = '_';
+            } else if (Character.isUpperCase(c) && Character.isLowerCase(previous)) {
+                name.append('_');
+            }
+            name.append(Character.toUpperCase(c));
+            previous = c;
+        }
+        if (name.isEmpty() || !Character.isJavaIdentifierStart(name.charAt(0))) {
+            name.insert(0, 'F');
+        }
+        return name.toString();
+    }
+
+    private static String join(List<?> values) {
+        return String.join(", ", values.stream().map(String::valueOf).toList());
+    }
+
+    // Literal entre comillas válido tanto en Java como en JSON
+    static String javaString(String text) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private static final class Code {
+
+        private final StringBuilder text = new StringBuilder();
+
+        void line(int indent, String line) {
+            text.append("    ".repeat(indent)).append(line).append('\n');
+        }
+
+        void blank() {
+            text.append('\n');
+        }
+
+        void append(Code other) {
+            text.append(other.text);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.gigabyte.labs.build.openapi;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Procesador de anotaciones que genera los validadores de la API a partir de la especificación
+ * OpenAPI durante la compilación, sin dependencias ni plugins extra: Maven lo compila en
+ * {@code generate-sources} y javac lo ejecuta al compilar {@code src/main/java}. Los problemas de
+ * la especificación salen como errores y avisos del compilador, con lo que un {@code $ref} roto
+ * rompe el build.
+ * <p>
+ * Opciones ({@code -A}): {@value #SPEC} (obligatoria; sin ella no hace nada), {@value #PACKAGE},
+ * {@value #REGISTRY} y {@value #STRICT} (=true convierte los avisos en errores).
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions({ValidatorProcessor.SPEC, ValidatorProcessor.PACKAGE, ValidatorProcessor.REGISTRY,
+  ValidatorProcessor.STRICT})
+public final class ValidatorProcessor extends AbstractProcessor {
+
+    static final String SPEC = "openapi.spec";
+    static final String PACKAGE = "openapi.package";
+    static final String REGISTRY = "openapi.registry";
+    static final String STRICT = "openapi.strict";
+    static final String SCHEMAS_RESOURCE = "openapi-schemas.json";
+
+    private boolean done;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        String spec = processingEnv.getOptions().get(SPEC);
+        if (done || spec == null) {
+            return false;
+        }
+        // Solo en la primera ronda: en las siguientes ya existen los ficheros generados
+        done = true;
+        Path path = Path.of(spec);
+        String packageName = processingEnv.getOptions().getOrDefault(PACKAGE, SchemaCompiler.RUNTIME_PACKAGE);
+        String registry = processingEnv.getOptions().getOrDefault(REGISTRY, "Validators");
+        boolean strict = Boolean.parseBoolean(processingEnv.getOptions().get(STRICT));
+
+        SchemaCompiler compiler;
+        try {
+            compiler = new SchemaCompiler(MiniYaml.parse(Files.readString(path, StandardCharsets.UTF_8)),
+              path.getFileName().toString(), packageName, registry);
+        } catch (IOException | IllegalArgumentException e) {
+            report(Diagnostic.Kind.ERROR, path, "cannot read the specification: " + e.getMessage());
+            return false;
+        }
+        for (SchemaCompiler.Problem problem : compiler.problems()) {
+            report(problem.error() || strict ? Diagnostic.Kind.ERROR : Diagnostic.Kind.WARNING, path, problem.message());
+        }
+        if (compiler.hasErrors() || strict && !compiler.problems().isEmpty()) {
+            return false;
+        }
+
+        try {
+            for (SchemaCompiler.Source source : compiler.sources()) {
+                JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName + "." + source.className());
+                try (Writer writer = file.openWriter()) {
+                    writer.write(source.code());
+                }
+            }
+            FileObject resource = processingEnv.getFiler()
+              .createResource(StandardLocation.CLASS_OUTPUT, packageName, SCHEMAS_RESOURCE);
+            try (Writer writer = resource.openWriter()) {
+                writer.write(compiler.schemaJson());
+            }
+        } catch (IOException e) {
+            report(Diagnostic.Kind.ERROR, path, "cannot write the validators: " + e.getMessage());
+        }
+        return false;
+    }
+
+    private void report(Diagnostic.Kind kind, Path spec, String message) {
+        processingEnv.getMessager().printMessage(kind, "[openapi] " + spec.getFileName() + ": " + message);
+    }
+}
@@ -0,0 +1,145 @@
+package io.gigabyte.labs.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compara modelos de ejecución para el patrón fetch → processData → sendDataToClient.
+ * Throughput da operaciones (un fan-out completo) por segundo; SampleTime da los percentiles de latencia.
+ *
+ * <pre>
+ * mvn -Pjmh package
+ * java -jar target/benchmarks.jar ExecutionStrategyBenchmark -p sources=256 -p latencyMillis=10
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionStrategyBenchmark {
+
+    public enum Strategy {
+        // Un fetch tras otro, como SyncExampleReal.synchronousMethod
+        SEQUENTIAL,
+        // supplyAsync sobre el ForkJoinPool común, como el AsyncExampleReal original
+        COMMON_POOL,
+        // Pool de plataforma de tamaño fijo
+        FIXED_POOL,
+        // FanOutFetcher sobre hilos virtuales
+        VIRTUAL_THREADS,
+        // Un scope de hilos virtuales por petición que no sobrevive a la llamada
+        STRUCTURED
+    }
+
+    private static final int FIXED_POOL_SIZE = 64;
+
+    @Param({"16", "256"})
+    public int sources;
+
+    @Param({"1", "10"})
+    public int latencyMillis;
+
+    @Param
+    public Strategy strategy;
+
+    private List<Integer> sourceIds;
+    private ExecutorService fixedPool;
+    private FanOutFetcher virtualFetcher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sourceIds = IntStream.rangeClosed(1, sources).boxed().toList();
+        fixedPool = Executors.newFixedThreadPool(FIXED_POOL_SIZE);
+        virtualFetcher = FanOutFetcher.ofVirtualThreads(this::fetch, Integer.MAX_VALUE, Duration.ofSeconds(30));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixedPool.shutdownNow();
+        virtualFetcher.close();
+    }
+
+    @Benchmark
+    public void fanOut(Blackhole bh) throws ExecutionException, InterruptedException {
+        switch (strategy) {
+            case SEQUENTIAL -> sequential(bh);
+            case COMMON_POOL -> futures(bh, null);
+            case FIXED_POOL -> futures(bh, fixedPool);
+            case VIRTUAL_THREADS -> virtualFetcher.fetchAll(sourceIds, r -> send(bh, process(r.data()))).get();
+            case STRUCTURED -> structured(bh);
+        }
+    }
+
+    private void sequential(Blackhole bh) {
+        for (int sourceId : sourceIds) {
+            send(bh, process(fetch(sourceId)));
+        }
+    }
+
+    private void futures(Blackhole bh, ExecutorService executor) {
+        List<CompletableFuture<Void>> all = new ArrayList<>(sources);
+        for (int sourceId : sourceIds) {
+            CompletableFuture<String> f = executor == null
+              ? CompletableFuture.supplyAsync(() -> fetch(sourceId))
+              : CompletableFuture.supplyAsync(() -> fetch(sourceId), executor);
+            all.add(f.thenAccept(data -> send(bh, process(data))));
+        }
+        CompletableFuture.allOf(all.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void structured(Blackhole bh) throws ExecutionException, InterruptedException {
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> forks = new ArrayList<>(sources);
+            for (int sourceId : sourceIds) {
+                forks.add(scope.submit(() -> fetch(sourceId)));
+            }
+            for (Future<String> fork : forks) {
+                send(bh, process(fork.get()));
+            }
+        }
+    }
+
+    // Misma forma que fetchDataFromSource, sin println y con latencia parametrizable
+    private String fetch(int sourceId) {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return "Datos de la fuente " + sourceId;
+    }
+
+    private static String process(String data) {
+        return data + " - procesados";
+    }
+
+    private static void send(Blackhole bh, String data) {
+        bh.consume(data);
+    }
+}
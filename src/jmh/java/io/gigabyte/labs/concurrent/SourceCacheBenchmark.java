@@ -0,0 +1,110 @@
+package io.gigabyte.labs.concurrent;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Fan-in sobre {@link SourceCache}: cada operación lanza {@code requests} peticiones concurrentes
+ * (hilos virtuales) repartidas entre {@code hotIds} fuentes, directamente contra la fuente o a
+ * través de la caché. La caché usa un refresh-ahead corto (50 ms, TTL 200 ms) para que los
+ * refrescos de fondo entren en la medida.
+ * <p>
+ * Además del tiempo por operación, {@code sourceFetches} y {@code requests} cuentan los fetch que
+ * llegan a la fuente y las peticiones hechas en cada iteración.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar SourceCacheBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SourceCacheBenchmark {
+
+    private static final Duration REFRESH_AFTER = Duration.ofMillis(50);
+    private static final Duration TTL = Duration.ofMillis(200);
+
+    public enum Lookup {
+        DIRECT, SOURCE_CACHE
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long sourceFetches;
+        public long requests;
+    }
+
+    @Param({"256"})
+    public int requests;
+
+    @Param({"16"})
+    public int hotIds;
+
+    @Param({"1", "10"})
+    public int latencyMillis;
+
+    @Param
+    public Lookup lookup;
+
+    private final AtomicLong fetches = new AtomicLong();
+    private List<Integer> sourceIds;
+    private FanOutFetcher fetcher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sourceIds = IntStream.range(0, requests).map(i -> i % hotIds + 1).boxed().toList();
+        IntFunction<String> lookupFn = lookup == Lookup.DIRECT
+          ? this::fetch
+          : new SourceCache(this::fetch, hotIds * 4, REFRESH_AFTER, TTL);
+        fetcher = FanOutFetcher.ofVirtualThreads(lookupFn, Integer.MAX_VALUE, Duration.ofSeconds(30));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fetcher.close();
+    }
+
+    @Benchmark
+    public void fanIn(Counters counters, Blackhole bh) throws ExecutionException, InterruptedException {
+        fetcher.fetchAll(sourceIds, result -> bh.consume(result.data())).get();
+        counters.requests += requests;
+        counters.sourceFetches += fetches.getAndSet(0);
+    }
+
+    // Misma forma que fetchDataFromSource, sin println y con latencia parametrizable
+    private String fetch(int sourceId) {
+        fetches.incrementAndGet();
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return "Datos de la fuente " + sourceId;
+    }
+}
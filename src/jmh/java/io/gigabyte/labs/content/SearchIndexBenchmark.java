@@ -0,0 +1,84 @@
+package io.gigabyte.labs.content;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Latencia de consulta de {@link SearchIndex} sobre el markdown del curso, replicado opcionalmente
+ * {@code copies} veces para simular un corpus mayor. Se lanza desde la raíz del proyecto.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar SearchIndexBenchmark -p copies=1,100
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchIndexBenchmark {
+
+    public enum Query {
+        TERM("kubernetes"),
+        MULTI_TERM("docker imagen contenedor puerto"),
+        PHRASE("\"patrones de diseno\""),
+        COMMON_PHRASE("\"de la\"");
+
+        final String text;
+
+        Query(String text) {
+            this.text = text;
+        }
+    }
+
+    @Param({"1", "100"})
+    public int copies;
+
+    @Param
+    public Query query;
+
+    private SearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path root = Path.of("src/main/resources");
+        index = SearchIndex.open(root, null);
+        List<Path> documents;
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            documents = files.filter(Files::isRegularFile).filter(index::isDocument).toList();
+        }
+        Map<String, String> replicas = new HashMap<>();
+        for (Path document : documents) {
+            String text = Files.readString(document);
+            for (int copy = 1; copy < copies; copy++) {
+                replicas.put("copy-" + copy + "/" + root.relativize(document), text);
+            }
+        }
+        index.addDocuments(replicas);
+    }
+
+    @Benchmark
+    public List<SearchIndex.Hit> search() {
+        return index.search(query.text, 10);
+    }
+}
@@ -0,0 +1,82 @@
+package io.gigabyte.labs.liskov.ok;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Megapíxeles de origen por segundo de {@link ImageResizer}: una foto de 12 MP (4000x3000) reducida
+ * a 1920x1440, por filtro y número de hilos del pool. Cada operación es un megapíxel.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar ImageResizeBenchmark -p parallelism=1,2,4,8
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ImageResizeBenchmark {
+
+    private static final int SOURCE_WIDTH = 4000;
+    private static final int SOURCE_HEIGHT = 3000;
+    private static final int MEGAPIXELS = SOURCE_WIDTH * SOURCE_HEIGHT / 1_000_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    // Nombre de ResampleKernel: el enum es privado del paquete y JMH no puede usarlo directamente
+    @Param({"NEAREST", "BILINEAR", "LANCZOS3"})
+    public String kernel;
+
+    private ResampleKernel resampleKernel;
+    private ImageResizer resizer;
+    private PixelBuffer source;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        resampleKernel = ResampleKernel.valueOf(kernel);
+        resizer = new ImageResizer(parallelism);
+        source = resizer.allocate(SOURCE_WIDTH, SOURCE_HEIGHT);
+        SplittableRandom random = new SplittableRandom(3);
+        // Degradado con ruido: evita que las filas idénticas hagan el caso demasiado fácil
+        for (int y = 0; y < SOURCE_HEIGHT; y++) {
+            for (int x = 0; x < SOURCE_WIDTH; x++) {
+                int r = (x * 255 / SOURCE_WIDTH + random.nextInt(16)) & 0xFF;
+                int g = (y * 255 / SOURCE_HEIGHT + random.nextInt(16)) & 0xFF;
+                int b = random.nextInt(256);
+                source.pixels[y * SOURCE_WIDTH + x] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        resizer.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MEGAPIXELS)
+    public int resize() {
+        PixelBuffer target = resizer.resize(source, 1920, 1440, resampleKernel);
+        int sample = target.pixels[target.width * target.height / 2];
+        target.release();
+        return sample;
+    }
+}
@@ -0,0 +1,142 @@
+package io.gigabyte.labs.lyfto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actualizaciones y emparejamientos por segundo con {@code drivers} conductores repartidos por un
+ * área del tamaño de la Ciudad de México. {@code linearScan} es la referencia sin índice.
+ * <p>
+ * Los conductores se mueven hasta ~50 m por actualización, así que la mayoría no cambia de celda.
+ * El grupo {@code mixed} mide ambas operaciones a la vez (3 hilos de posiciones por cada hilo que
+ * empareja); con más núcleos, {@code -t} sube los hilos de las pruebas simples.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar DriverIndexBenchmark -p drivers=100000
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DriverIndexBenchmark {
+
+    private static final double MIN_LAT = 19.20;
+    private static final double MAX_LAT = 19.60;
+    private static final double MIN_LON = -99.35;
+    private static final double MAX_LON = -98.95;
+    private static final double STEP_DEGREES = 0.0005;
+
+    @Param({"100000"})
+    public int drivers;
+
+    @Param({"1.0"})
+    public double cellKm;
+
+    private RideService service;
+    private DriverIndex index;
+    private String[] ids;
+    private double[] latitudes;
+    private double[] longitudes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new DriverIndex(cellKm);
+        service = new RideService(index, 10.0);
+        SplittableRandom random = new SplittableRandom(42);
+        ids = new String[drivers];
+        latitudes = new double[drivers];
+        longitudes = new double[drivers];
+        for (int i = 0; i < drivers; i++) {
+            ids[i] = "driver_" + i;
+            latitudes[i] = random.nextDouble(MIN_LAT, MAX_LAT);
+            longitudes[i] = random.nextDouble(MIN_LON, MAX_LON);
+            service.registerDriver(new Driver(ids[i], "Driver " + i, 4.5, 30), new Location(latitudes[i], longitudes[i]));
+        }
+    }
+
+    @Benchmark
+    public void updateLocation() {
+        move(ThreadLocalRandom.current());
+    }
+
+    @Benchmark
+    public List<DriverIndex.Candidate> nearest5() {
+        return index.nearest(randomLocation(ThreadLocalRandom.current()), 5, 10.0);
+    }
+
+    // Crea el viaje y lo cancela enseguida para que el conjunto de conductores libres no se agote
+    @Benchmark
+    public Ride matchRide() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Ride ride = service.createRide("user_1", randomLocation(random), randomLocation(random));
+        return service.updateStatus(ride.id(), RideStatus.CANCELLED);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public void mixedUpdate() {
+        move(ThreadLocalRandom.current());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Ride mixedMatch() {
+        return matchRide();
+    }
+
+    // Sin índice: recorre todos los conductores para encontrar el más cercano
+    @Benchmark
+    public int linearScan() {
+        Location from = randomLocation(ThreadLocalRandom.current());
+        int best = -1;
+        double bestKm = Double.MAX_VALUE;
+        for (int i = 0; i < drivers; i++) {
+            double km = Location.distanceKm(from.latitude(), from.longitude(), latitudes[i], longitudes[i]);
+            if (km < bestKm) {
+                bestKm = km;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    // Las carreras entre hilos sobre los arrays solo afectan a la posición simulada, no al índice
+    private void move(ThreadLocalRandom random) {
+        int i = random.nextInt(drivers);
+        double lat = clamp(latitudes[i] + random.nextDouble(-STEP_DEGREES, STEP_DEGREES), MIN_LAT, MAX_LAT);
+        double lon = clamp(longitudes[i] + random.nextDouble(-STEP_DEGREES, STEP_DEGREES), MIN_LON, MAX_LON);
+        latitudes[i] = lat;
+        longitudes[i] = lon;
+        index.update(ids[i], new Location(lat, lon));
+    }
+
+    private static Location randomLocation(ThreadLocalRandom random) {
+        return new Location(random.nextDouble(MIN_LAT, MAX_LAT), random.nextDouble(MIN_LON, MAX_LON));
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,101 @@
+package io.gigabyte.labs.lyfto.validation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validaciones por segundo de los validadores generados desde {@code error-sample.yaml} frente a
+ * {@link TreeValidator}, que parsea el documento a un árbol y lo recorre interpretando el esquema.
+ * Ambos aceptan los mismos documentos; los payloads son válidos, que es el caso común en la API.
+ * <ul>
+ *   <li>{@code USER}: el cuerpo de {@code POST /users}.</li>
+ *   <li>{@code RIDE}: un viaje completo, con dos {@code Location} anidadas y un enum.</li>
+ *   <li>{@code RIDE_LIST}: la respuesta de {@code GET /rides} con 200 viajes (~40 KB).</li>
+ * </ul>
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar ValidatorBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidatorBenchmark {
+
+    private static final int LIST_SIZE = 200;
+
+    public enum Payload {
+        USER, RIDE, RIDE_LIST
+    }
+
+    @Param({"USER", "RIDE", "RIDE_LIST"})
+    public Payload payload;
+
+    private byte[] json;
+    private PayloadValidator generated;
+    private PayloadValidator tree;
+
+    @Setup
+    public void setUp() {
+        TreeValidator trees = TreeValidator.load();
+        String body = switch (payload) {
+            case USER -> {
+                generated = LyftoValidators.requestBody("POST", "/users");
+                tree = trees.requestBody("POST", "/users");
+                yield "{\"id\":\"user_456\",\"name\":\"Juan Pérez\",\"email\":\"juan.perez@example.com\","
+                  + "\"phone\":\"+521234567890\"}";
+            }
+            case RIDE -> {
+                generated = LyftoValidators.schema("Ride");
+                tree = trees.schema("Ride");
+                yield ride(1);
+            }
+            case RIDE_LIST -> {
+                generated = LyftoValidators.response("GET", "/rides", 200);
+                tree = trees.response("GET", "/rides", 200);
+                StringBuilder list = new StringBuilder("[");
+                for (int i = 0; i < LIST_SIZE; i++) {
+                    list.append(i == 0 ? "" : ",").append(ride(i));
+                }
+                yield list.append(']').toString();
+            }
+        };
+        json = body.getBytes(StandardCharsets.UTF_8);
+        generated.validate(json);
+        tree.validate(json);
+    }
+
+    @Benchmark
+    public PayloadValidator generated() {
+        generated.validate(json);
+        return generated;
+    }
+
+    @Benchmark
+    public PayloadValidator tree() {
+        tree.validate(json);
+        return tree;
+    }
+
+    private static String ride(int i) {
+        return "{\"id\":\"ride_" + i + "\",\"userId\":\"user_456\",\"driverId\":\"driver_789\",\"vehicleId\":\"vehicle_101\","
+          + "\"startLocation\":{\"latitude\":19.4326" + i + ",\"longitude\":-99.1332" + i + "},"
+          + "\"endLocation\":{\"latitude\":19.3910" + i + ",\"longitude\":-99.2837" + i + "},"
+          + "\"status\":\"in_progress\",\"fare\":" + (25 + i % 50) + ".75}";
+    }
+}
@@ -0,0 +1,58 @@
+package io.gigabyte.labs.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste absoluto de instrumentar una operación de cuatro etapas vacías, con las métricas apagadas
+ * ({@code -Dio.gigabyte.labs.metrics=false}) y encendidas. Sin trabajo alrededor el error de la
+ * medida baja a centésimas de nanosegundo, así que la diferencia {@code on - off} se resuelve con
+ * holgura aunque sea el 1% de una operación de pocos cientos de nanosegundos; dividida por el
+ * tiempo de {@code StageMetricsBenchmark} da el sobrecoste relativo de cada caso.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar StageTimerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class StageTimerBenchmark {
+
+    private static final StageTimer VALIDATE = Metrics.global().timer("StageTimerBenchmark", "validate");
+    private static final StageTimer SAVE = Metrics.global().timer("StageTimerBenchmark", "save");
+    private static final StageTimer LOG = Metrics.global().timer("StageTimerBenchmark", "log");
+    private static final StageTimer NOTIFY = Metrics.global().timer("StageTimerBenchmark", "notify");
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Dio.gigabyte.labs.metrics=false")
+    public long off() {
+        return fourStages();
+    }
+
+    @Benchmark
+    public long on() {
+        return fourStages();
+    }
+
+    // Misma forma que ProductService.addProduct
+    private static long fourStages() {
+        long start = VALIDATE.start();
+        start = VALIDATE.stop(start);
+        start = SAVE.stop(start);
+        start = LOG.stop(start);
+        return NOTIFY.stop(start);
+    }
+}
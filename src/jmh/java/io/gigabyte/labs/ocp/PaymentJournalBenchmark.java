@@ -0,0 +1,93 @@
+package io.gigabyte.labs.ocp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pagos durables por segundo a través de {@link PaymentJournal} para varios intervalos de group
+ * commit. {@code commitMicros=0} fuerza en cuanto el flusher queda libre, lo más parecido a un fsync
+ * por pago.
+ * <ul>
+ *   <li>{@code appendAndWait}: 32 clientes, cada uno esperando a que su pago sea durable.</li>
+ *   <li>{@code burst}: un cliente que envía {@value #BURST} pagos y espera a todos.</li>
+ * </ul>
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar PaymentJournalBenchmark -p commitMicros=0,1000,5000
+ * </pre>
+ * Apunta {@code -Djava.io.tmpdir} al disco que se quiera medir; en tmpfs los fsync no cuestan nada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentJournalBenchmark {
+
+    private static final int BURST = 1_000;
+
+    @Param({"0", "200", "1000", "5000"})
+    public int commitMicros;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private Path file;
+    private PaymentJournal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("payments", ".journal");
+        Files.delete(file);
+        journal = PaymentJournal.open(file,
+          new PaymentJournal.Config(64 << 20, Duration.ofNanos(commitMicros * 1_000L), 4_096, 1 << 20));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public PaymentJournal.Receipt appendAndWait() {
+        return append().join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public Object burst() {
+        CompletableFuture<?>[] all = new CompletableFuture<?>[BURST];
+        for (int i = 0; i < BURST; i++) {
+            all[i] = append();
+        }
+        return CompletableFuture.allOf(all).join();
+    }
+
+    private CompletableFuture<PaymentJournal.Receipt> append() {
+        long n = sequence.incrementAndGet();
+        PaymentType type = (n & 1) == 0 ? PaymentType.CREDIT_CARD : PaymentType.PAYPAL;
+        return journal.append("idem-" + n, new Payment("pay-" + n, type, 1_000 + n % 10_000));
+    }
+}
@@ -0,0 +1,83 @@
+package io.gigabyte.labs.ocp.live;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BetterFilter} frente a {@link CompiledFilter} sobre el mismo catálogo y las mismas
+ * especificaciones. El índice del filtro compilado se construye en el setup, como pasaría con un
+ * catálogo consultado una y otra vez.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar SpecificationFilterBenchmark -p products=1000000
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SpecificationFilterBenchmark {
+
+    public enum Query {
+        COLOR_AND_SIZE,
+        NAME_AND_SIZE,
+        COLOR_SIZE_NAME
+    }
+
+    @Param({"100000", "1000000"})
+    public int products;
+
+    @Param
+    public Query query;
+
+    private List<Product> catalog;
+    private Specification<Product> spec;
+    private BetterFilter better;
+    private CompiledFilter compiled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(7);
+        catalog = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            catalog.add(new Product("Product-" + random.nextInt(products / 10), Color.values()[random.nextInt(Color.values().length)],
+              Size.values()[random.nextInt(Size.values().length)]));
+        }
+        spec = switch (query) {
+            case COLOR_AND_SIZE -> new AndSpecification<>(new ColorSpecification(Color.BLUE), new SizeSpecification(Size.LARGE));
+            case NAME_AND_SIZE -> new AndSpecification<>(new SizeSpecification(Size.LARGE), new NameSpecification("product-42"));
+            case COLOR_SIZE_NAME -> new AndSpecification<>(new ColorSpecification(Color.GREEN),
+              new AndSpecification<>(new SizeSpecification(Size.SMALL), new NameSpecification("PRODUCT-7")));
+        };
+        better = new BetterFilter();
+        compiled = new CompiledFilter();
+        compiled.indexFor(catalog);
+    }
+
+    @Benchmark
+    public List<Product> betterFilter() {
+        return better.filter(catalog, spec).toList();
+    }
+
+    @Benchmark
+    public List<Product> compiledFilter() {
+        return compiled.filter(catalog, spec).toList();
+    }
+}
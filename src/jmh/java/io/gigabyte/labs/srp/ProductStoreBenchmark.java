@@ -0,0 +1,120 @@
+package io.gigabyte.labs.srp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas contra {@link InMemoryProductRepository} a escala de catálogo. {@code updateThenScan}
+ * intercala un cambio de precio antes de cada escaneo, como una carga mixta.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar ProductStoreBenchmark -p products=10000000 -prof gc
+ * </pre>
+ * Con {@code -prof gc}, {@code gc.alloc.rate.norm} debería quedarse en 0 para las búsquedas por id
+ * y por rango.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class ProductStoreBenchmark {
+
+    private static final int LOOKUPS = 1024;
+    private static final int CATEGORIES = 50;
+    private static final int MAX_PRICE = 100_000;
+    private static final int UPDATE_ROUNDS = 64;
+
+    @Param({"1000000", "10000000"})
+    public int products;
+
+    private InMemoryProductRepository store;
+    private String[] probeIds;
+    private int[] probePrices;
+    private Product[][] priceUpdates;
+    private int updateRound;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new InMemoryProductRepository(products);
+        SplittableRandom random = new SplittableRandom(42);
+        List<Product> batch = new ArrayList<>(100_000);
+        for (int i = 0; i < products; i++) {
+            batch.add(new Product("sku-" + i, "product " + i, 1 + random.nextInt(MAX_PRICE), random.nextInt(500),
+              "category-" + random.nextInt(CATEGORIES)));
+            if (batch.size() == 100_000) {
+                store.saveProducts(batch);
+                batch.clear();
+            }
+        }
+        store.saveProducts(batch);
+
+        probeIds = new String[LOOKUPS];
+        probePrices = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            probeIds[i] = "sku-" + random.nextInt(products);
+            probePrices[i] = 1 + random.nextInt(MAX_PRICE - 10);
+        }
+        // Rondas de productos y precios al azar, para que las actualizaciones lleguen a fundirse en el índice
+        priceUpdates = new Product[UPDATE_ROUNDS][LOOKUPS];
+        for (Product[] round : priceUpdates) {
+            for (int i = 0; i < LOOKUPS; i++) {
+                String id = "sku-" + random.nextInt(products);
+                round[i] = new Product(id, id, 1 + random.nextInt(MAX_PRICE), 1, "category-0");
+            }
+        }
+        store.countInPriceRange(0, 0); // construye el índice de precios fuera de la medida
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void idLookup(Blackhole bh) {
+        for (String id : probeIds) {
+            bh.consume(store.rowOf(id));
+        }
+    }
+
+    // Rango estrecho: ~0,01% del catálogo por escaneo
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void priceRangeScan(Blackhole bh) {
+        for (int price : probePrices) {
+            store.forEachInPriceRange(price, price + 10, bh::consume);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void updateThenScan(Blackhole bh) {
+        Product[] updates = priceUpdates[updateRound++ % UPDATE_ROUNDS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            store.saveProduct(updates[i]);
+            store.forEachInPriceRange(probePrices[i], probePrices[i] + 10, bh::consume);
+        }
+    }
+
+    @Benchmark
+    public long categoryScan() {
+        long[] total = new long[1];
+        store.forEachInCategory("category-7", row -> total[0] += store.quantityAt(row));
+        return total[0];
+    }
+}
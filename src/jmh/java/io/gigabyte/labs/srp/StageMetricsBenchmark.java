@@ -0,0 +1,124 @@
+package io.gigabyte.labs.srp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Coste de las métricas por etapa en {@link ProductService#addProduct}: la misma llamada con las
+ * métricas apagadas ({@code -Dio.gigabyte.labs.metrics=false}, el JIT elimina los timers),
+ * encendidas, encendidas bajo una grabación JFR con la configuración por defecto, y encendidas con
+ * el {@code StageEvent} activado, donde cada etapa se convierte en un evento.
+ * <ul>
+ *   <li>{@code outbox}: log a través de {@link AsyncLogAppender} y notificaciones a través de
+ *   {@link NotificationOutbox}, como en producción. Cada alta espera al fsync del outbox, así que
+ *   la operación se mide en cientos de microsegundos y el ruido del disco tapa la diferencia entre
+ *   apagado y encendido; el sobrecoste se resuelve con {@code StageTimerBenchmark}.</li>
+ *   <li>{@code memory}: sólo el repositorio, con logger y notificador sin backend. Es el peor caso:
+ *   cuatro etapas casi sin trabajo, donde el contador y el muestreo pesan de forma visible.</li>
+ * </ul>
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar StageMetricsBenchmark -prof gc
+ * </pre>
+ * Con {@code -prof gc}, {@code gc.alloc.rate.norm} debe ser igual con y sin métricas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StageMetricsBenchmark {
+
+    private static final int PRODUCTS = 1024;
+
+    @Param({"outbox", "memory"})
+    public String backend;
+
+    private Path directory;
+    private AsyncLogAppender appender;
+    private NotificationOutbox outbox;
+    private ProductService service;
+    private Product[] products;
+    private User user;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        InMemoryProductRepository repository = new InMemoryProductRepository(PRODUCTS);
+        if (backend.equals("outbox")) {
+            directory = Files.createTempDirectory("stage-metrics");
+            appender = new AsyncLogAppender(directory.resolve("app.log"), 64 * 1024, AsyncLogAppender.OverflowPolicy.DROP);
+            outbox = new NotificationOutbox(directory.resolve("outbox.log"), 3, Duration.ofMillis(10));
+            outbox.registerChannel(NotificationService.CHANNEL, (recipient, batch) -> {
+            }, 1, 256);
+            service = new ProductService(repository, new LoggingService(appender), new NotificationService(outbox));
+        } else {
+            service = new ProductService(repository, new LoggingService(), new NotificationService());
+        }
+        products = new Product[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            products[i] = new Product("sku-" + i, "product " + i, 100 + i, 10, "category-" + i % 16);
+        }
+        user = new User();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (outbox != null) {
+            outbox.close();
+            appender.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Dio.gigabyte.labs.metrics=false")
+    public void metricsOff() {
+        addNext();
+    }
+
+    @Benchmark
+    public void metricsOn() {
+        addNext();
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-XX:StartFlightRecording")
+    public void metricsOnWithJfr() {
+        addNext();
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-XX:StartFlightRecording:+io.gigabyte.labs.Stage#enabled=true")
+    public void metricsOnWithStageEvents() {
+        addNext();
+    }
+
+    private void addNext() {
+        service.addProduct(products[next++ & (PRODUCTS - 1)], user);
+    }
+}
@@ -1,72 +1,132 @@
 package io.gigabyte.labs.concurrent;
 
+import io.gigabyte.labs.metrics.Metrics;
+import io.gigabyte.labs.metrics.StageTimer;
+
+import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncExampleReal implements AutoCloseable {
+
+    private static final int MAX_CONCURRENT_FETCHES = 256;
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(10);
+    private static final int PIPELINE_BUFFER = 64;
+    private static final int CACHE_ENTRIES = 1024;
+    private static final Duration REFRESH_AFTER = Duration.ofSeconds(30);
+    private static final Duration CACHE_TTL = Duration.ofMinutes(2);
+    private static final StageTimer FETCH = Metrics.global().timer("AsyncExampleReal", "fetch");
+    private static final StageTimer PROCESS = Metrics.global().timer("AsyncExampleReal", "process");
+    private static final StageTimer SEND = Metrics.global().timer("AsyncExampleReal", "send");
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    // Las peticiones concurrentes de una misma fuente comparten un único fetch
+    private final SourceCache sources = new SourceCache(this::loadFromSource, CACHE_ENTRIES, REFRESH_AFTER, CACHE_TTL);
+
+    private final Metrics.Registration cacheMetrics;
+
+    public AsyncExampleReal() {
+        // Cada instancia tiene su propia caché, así que publica con su propio nombre
+        cacheMetrics = sources.exportTo(Metrics.global(), "AsyncExampleReal-" + INSTANCES.incrementAndGet());
+    }
+
+    // Quita las métricas de la caché del registro global, que si no retendría la instancia
+    @Override
+    public void close() {
+        cacheMetrics.close();
+    }
 
-public class AsyncExampleReal {
+    // Pasa por la caché: sólo va a la fuente si el dato falta o ha caducado
+    public String fetchDataFromSource(int sourceId) {
+        return sources.get(sourceId);
+    }
+
+    public SourceCache.Stats cacheStats() {
+        return sources.stats();
+    }
 
     // Simula la recuperación de datos de una fuente externa
+    private String loadFromSource(int sourceId) {
+        System.out.println(Thread.currentThread().getName() + " - Iniciando fetchDataFromSource " + sourceId);
+        long start = FETCH.start();
+        try {
+            Thread.sleep(sourceId * 1000L); // Simula un retraso que depende del ID de la fuente
+        } catch (InterruptedException e) {
+            FETCH.fail(start);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Fetch de la fuente " + sourceId + " interrumpido", e);
+        }
+        FETCH.stop(start);
+        System.out.println(Thread.currentThread().getName() + " - Datos recuperados de la fuente " + sourceId);
+        return "Datos de la fuente " + sourceId;
+    }
+
     public CompletableFuture<String> fetchDataFromSourceAsync(int sourceId) {
-        return CompletableFuture.supplyAsync(() -> {
-            System.out.println(Thread.currentThread().getName() + " - Iniciando fetchDataFromSourceAsync " + sourceId);
-            try {
-                Thread.sleep(sourceId * 1000); // Simula un retraso que depende del ID de la fuente
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-            System.out.println(Thread.currentThread().getName() + " - Datos recuperados de la fuente " + sourceId);
-            return "Datos de la fuente " + sourceId;
-        });
+        return sources.getAsync(sourceId);
     }
 
     // Simula el procesamiento de datos
     public String processData(String data) {
         System.out.println(Thread.currentThread().getName() + " - Iniciando processData");
-        return data + " - procesados";
+        long start = PROCESS.start();
+        String processed = data + " - procesados";
+        PROCESS.stop(start);
+        return processed;
     }
 
     // Simula el envío de datos al cliente
     public void sendDataToClient(String data) {
+        long start = SEND.start();
         System.out.println(Thread.currentThread().getName() + " - Enviando datos al cliente: " + data);
+        SEND.stop(start);
     }
 
     public CompletableFuture<Void> asynchronousMethod() {
+        return asynchronousMethod(List.of(1, 2, 3, 4));
+    }
+
+    // Fan-out sobre hilos virtuales: cada resultado se procesa y envía en cuanto llega
+    public CompletableFuture<Void> asynchronousMethod(List<Integer> sourceIds) {
         System.out.println(Thread.currentThread().getName() + " - Iniciando asynchronousMethod");
-        CompletableFuture<String> fetchFuture1 = fetchDataFromSourceAsync(1);
-        CompletableFuture<String> fetchFuture2 = fetchDataFromSourceAsync(2);
-        CompletableFuture<String> fetchFuture3 = fetchDataFromSourceAsync(3);
-        CompletableFuture<String> fetchFuture4 = fetchDataFromSourceAsync(4);
-
-        return CompletableFuture.allOf(fetchFuture1, fetchFuture2, fetchFuture3)
-          .thenRun(() -> {
-              try {
-                  String data1 = fetchFuture1.get();
-                  String data2 = fetchFuture2.get();
-                  String data3 = fetchFuture3.get();
-                  String data4 = fetchFuture4.get();
-
-                  String processedData1 = processData(data1);
-                  String processedData2 = processData(data2);
-                  String processedData3 = processData(data3);
-                  String processedData4 = processData(data4);
-
-                  sendDataToClient(processedData1);
-                  sendDataToClient(processedData2);
-                  sendDataToClient(processedData3);
-                  sendDataToClient(processedData4);
-              } catch (InterruptedException | ExecutionException e) {
-                  e.printStackTrace();
+        FanOutFetcher fetcher = FanOutFetcher.ofVirtualThreads(this::fetchDataFromSource, MAX_CONCURRENT_FETCHES, FETCH_TIMEOUT);
+        return fetcher.fetchAll(sourceIds, result -> {
+              if (result.isSuccess()) {
+                  sendDataToClient(processData(result.data()));
+              } else {
+                  System.out.println(Thread.currentThread().getName() + " - Fuente " + result.sourceId() + " falló: " + result.error());
               }
           })
+          .whenComplete((ignored, error) -> fetcher.close())
           .thenRun(() -> System.out.println(Thread.currentThread().getName() + " - asynchronousMethod completado"));
     }
 
+    // Variante en streaming: fetch, procesamiento y envío solapados con buffers acotados entre etapas
+    public CompletableFuture<Void> pipelinedMethod(List<Integer> sourceIds) {
+        System.out.println(Thread.currentThread().getName() + " - Iniciando pipelinedMethod");
+        StreamingPipeline pipeline = new StreamingPipeline(this::fetchDataFromSource, this::processData, this::sendDataToClient,
+          new StreamingPipeline.StageConfig(MAX_CONCURRENT_FETCHES, PIPELINE_BUFFER),
+          new StreamingPipeline.StageConfig(Runtime.getRuntime().availableProcessors(), PIPELINE_BUFFER),
+          new StreamingPipeline.StageConfig(1, PIPELINE_BUFFER));
+        return pipeline.run(sourceIds)
+          .thenRun(() -> pipeline.metrics().forEach(m -> System.out.println(Thread.currentThread().getName() + " - " + m)));
+    }
+
     public static void main(String[] args) throws ExecutionException, InterruptedException {
-        AsyncExampleReal example = new AsyncExampleReal();
-        long startTime = System.currentTimeMillis(); // Marca de tiempo inicial
-        CompletableFuture<Void> future = example.asynchronousMethod();
-        future.get(); // Espera a que se completen todas las operaciones asincrónicas
-        long endTime = System.currentTimeMillis(); // Marca de tiempo final
-        System.out.println(Thread.currentThread().getName() + " - Tiempo total de ejecución (asincrónico): " + (endTime - startTime) + " ms");
+        try (AsyncExampleReal example = new AsyncExampleReal()) {
+            long startTime = System.currentTimeMillis(); // Marca de tiempo inicial
+            CompletableFuture<Void> future = example.asynchronousMethod();
+            future.get(); // Espera a que se completen todas las operaciones asincrónicas
+            long endTime = System.currentTimeMillis(); // Marca de tiempo final
+            System.out.println(Thread.currentThread().getName() + " - Tiempo total de ejecución (asincrónico): " + (endTime - startTime) + " ms");
+            // Fan-in: ids repetidos y ya cacheados; ninguno vuelve a la fuente
+            startTime = System.currentTimeMillis();
+            example.asynchronousMethod(List.of(1, 2, 3, 4, 4, 3, 2, 1)).get();
+            endTime = System.currentTimeMillis();
+            System.out.println(Thread.currentThread().getName() + " - Tiempo con la caché caliente: " + (endTime - startTime) + " ms");
+            System.out.println(Thread.currentThread().getName() + " - " + example.cacheStats());
+            System.out.print(Metrics.global().render());
+        }
     }
 }
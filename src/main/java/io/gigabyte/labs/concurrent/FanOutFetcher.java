@@ -0,0 +1,133 @@
+package io.gigabyte.labs.concurrent;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Motor fan-out/fan-in: lanza un fetch por fuente sobre un executor (hilos virtuales por defecto),
+ * limita cuántos corren a la vez y entrega cada resultado en orden de llegada.
+ * La latencia total depende de la fuente más lenta, no de la suma ni del tamaño del pool.
+ */
+public class FanOutFetcher implements AutoCloseable {
+
+    private final IntFunction<String> fetcher;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final Semaphore permits;
+    private final Duration timeout;
+
+    public FanOutFetcher(IntFunction<String> fetcher, ExecutorService executor, int maxConcurrency, Duration timeout) {
+        this(fetcher, executor, false, maxConcurrency, timeout);
+    }
+
+    private FanOutFetcher(IntFunction<String> fetcher, ExecutorService executor, boolean ownsExecutor,
+                          int maxConcurrency, Duration timeout) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.fetcher = fetcher;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.permits = new Semaphore(maxConcurrency);
+        this.timeout = timeout;
+    }
+
+    // Un hilo virtual por fetch; el executor se cierra junto con el motor
+    public static FanOutFetcher ofVirtualThreads(IntFunction<String> fetcher, int maxConcurrency, Duration timeout) {
+        return new FanOutFetcher(fetcher, Executors.newVirtualThreadPerTaskExecutor(), true, maxConcurrency, timeout);
+    }
+
+    /**
+     * Lanza todos los fetch y entrega cada {@link SourceResult} a {@code sink} en cuanto termina.
+     * Las llamadas a {@code sink} se serializan, de modo que el consumidor ve un flujo secuencial.
+     * El futuro devuelto se completa cuando todas las fuentes han respondido, fallado o expirado.
+     */
+    public CompletableFuture<Void> fetchAll(Collection<Integer> sourceIds, Consumer<SourceResult> sink) {
+        ReentrantLock sinkLock = new ReentrantLock();
+        CompletableFuture<?>[] all = new CompletableFuture<?>[sourceIds.size()];
+        int i = 0;
+        for (int sourceId : sourceIds) {
+            all[i++] = fetchOne(sourceId).thenAccept(result -> {
+                sinkLock.lock();
+                try {
+                    sink.accept(result);
+                } finally {
+                    sinkLock.unlock();
+                }
+            });
+        }
+        return CompletableFuture.allOf(all);
+    }
+
+    // Nunca se completa de forma excepcional: los errores y timeouts viajan dentro del SourceResult
+    public CompletableFuture<SourceResult> fetchOne(int sourceId) {
+        CompletableFuture<String> data = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                data.completeExceptionally(e);
+                return;
+            }
+            if (timeout != null) {
+                // El timeout cuenta desde que la fuente empieza, no desde que se encola en el semáforo
+                data.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            try {
+                data.complete(fetcher.apply(sourceId));
+            } catch (Throwable t) {
+                data.completeExceptionally(t);
+            } finally {
+                permits.release();
+            }
+        });
+        return data.handle((value, error) -> {
+            if (error == null) {
+                return SourceResult.success(sourceId, value);
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                task.cancel(true); // libera el hilo que sigue esperando a la fuente
+            }
+            return SourceResult.failure(sourceId, cause);
+        });
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown(); // no bloquea: close() puede llamarse desde un hilo del propio executor
+        }
+    }
+
+    public record SourceResult(int sourceId, String data, Throwable error) {
+
+        static SourceResult success(int sourceId, String data) {
+            return new SourceResult(sourceId, data, null);
+        }
+
+        static SourceResult failure(int sourceId, Throwable error) {
+            return new SourceResult(sourceId, null, error);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public boolean isTimeout() {
+            return error instanceof TimeoutException;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package io.gigabyte.labs.concurrent;
+
+import io.gigabyte.labs.metrics.Metrics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Caché delante de una fuente lenta ({@code fetchDataFromSource}), con tres piezas:
+ * <ol>
+ *   <li>single-flight: las peticiones concurrentes de un mismo id ausente comparten un único fetch;</li>
+ *   <li>TTL y tamaño: un dato vale {@code ttl} desde que se obtuvo, y por encima de {@code maxEntries}
+ *   se expulsa uno poco usado. Es un LRU aproximado (CLOCK): un acierto sólo marca la entrada, sin
+ *   bloqueos, y al expulsar se recorren las claves en orden de llegada dando una segunda vuelta a
+ *   las marcadas; las caducadas salen primero;</li>
+ *   <li>refresh-ahead: pasado {@code refreshAfter}, la siguiente petición recibe el dato viejo y lanza
+ *   un único fetch de fondo que lo renueva (stale-while-revalidate). Sólo se refrescan los ids que
+ *   se siguen pidiendo; uno que nadie pide caduca sin más.</li>
+ * </ol>
+ * Los errores no se guardan: un fetch fallido llega a todas las peticiones que lo esperaban y la
+ * siguiente lo reintenta. Si falla un refresco, el dato viejo se sigue sirviendo hasta el TTL.
+ */
+public class SourceCache implements IntFunction<String> {
+
+    /**
+     * {@code hits} incluye los {@code staleHits}; {@code coalesced} son las peticiones que esperaron
+     * al fetch de otra. Sin la caché cada petición sería un fetch, de ahí {@link #fetchesSaved()}.
+     */
+    public record Stats(long hits, long staleHits, long misses, long coalesced, long refreshes,
+                        long refreshFailures, long evictions, int size) {
+
+        public long requests() {
+            return hits + misses + coalesced;
+        }
+
+        public double hitRatio() {
+            long requests = requests();
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        public long sourceFetches() {
+            return misses + refreshes;
+        }
+
+        public long fetchesSaved() {
+            return requests() - sourceFetches();
+        }
+    }
+
+    private static final class Entry {
+        final String value;
+        final long loadedAt;
+        // Sin volatile: la expulsión es aproximada y una marca que llegue tarde sólo cambia la víctima
+        boolean referenced;
+
+        Entry(String value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final IntFunction<String> source;
+    private final int maxEntries;
+    private final long refreshAfterNanos;
+    private final long ttlNanos;
+    private final Executor refresher;
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    // Cada clave presente está una vez, en orden de llegada; es la esfera del CLOCK
+    private final Queue<Integer> clock = new ConcurrentLinkedQueue<>();
+    private final Map<Integer, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Los refrescos y los fetch de getAsync corren en hilos virtuales
+    public SourceCache(IntFunction<String> source, int maxEntries, Duration refreshAfter, Duration ttl) {
+        this(source, maxEntries, refreshAfter, ttl, task -> Thread.ofVirtual().name("source-refresh").start(task));
+    }
+
+    public SourceCache(IntFunction<String> source, int maxEntries, Duration refreshAfter, Duration ttl, Executor refresher) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (refreshAfter.isNegative() || refreshAfter.compareTo(ttl) > 0) {
+            throw new IllegalArgumentException("refreshAfter must be between zero and ttl");
+        }
+        this.source = source;
+        this.maxEntries = maxEntries;
+        this.refreshAfterNanos = refreshAfter.toNanos();
+        this.ttlNanos = ttl.toNanos();
+        this.refresher = refresher;
+    }
+
+    @Override
+    public String apply(int sourceId) {
+        return get(sourceId);
+    }
+
+    // Bloquea sólo si el dato falta o ha caducado; el primero en llegar hace el fetch en su propio hilo
+    public String get(int sourceId) {
+        String cached = cached(sourceId);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(sourceId, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        load(sourceId, mine, false);
+        return await(mine);
+    }
+
+    // Como get, pero sin bloquear: el fetch corre en el executor de refresco
+    public CompletableFuture<String> getAsync(int sourceId) {
+        String cached = cached(sourceId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(sourceId, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+        refresher.execute(() -> load(sourceId, mine, false));
+        return mine.copy();
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), staleHits.sum(), misses.sum(), coalesced.sum(), refreshes.sum(),
+          refreshFailures.sum(), evictions.sum(), entries.size());
+    }
+
+    /**
+     * Publica las estadísticas en {@code metrics} como {@code labs_cache_*{cache="name"}}, entre ellas
+     * la tasa de aciertos y los fetch ahorrados. El nombre tiene que ser único en el registro, que
+     * mantiene viva la caché hasta que se cierra el registro devuelto.
+     */
+    public Metrics.Registration exportTo(Metrics metrics, String name) {
+        List<Metrics.Registration> registrations = List.of(
+          metrics.counter("labs_cache_requests_total", "cache", name, () -> stats().requests()),
+          metrics.counter("labs_cache_hits_total", "cache", name, () -> stats().hits()),
+          metrics.counter("labs_cache_stale_hits_total", "cache", name, () -> stats().staleHits()),
+          metrics.counter("labs_cache_coalesced_total", "cache", name, () -> stats().coalesced()),
+          metrics.counter("labs_cache_source_fetches_total", "cache", name, () -> stats().sourceFetches()),
+          metrics.counter("labs_cache_fetches_saved_total", "cache", name, () -> stats().fetchesSaved()),
+          metrics.counter("labs_cache_evictions_total", "cache", name, () -> stats().evictions()),
+          metrics.gauge("labs_cache_hit_ratio", "cache", name, () -> stats().hitRatio()),
+          metrics.gauge("labs_cache_entries", "cache", name, () -> stats().size()));
+        return () -> registrations.forEach(Metrics.Registration::close);
+    }
+
+    // Dato vigente o null; si toca refrescarlo, lanza un único refresco de fondo
+    private String cached(int sourceId) {
+        Entry entry = entries.get(sourceId);
+        if (entry == null) {
+            return null;
+        }
+        long age = System.nanoTime() - entry.loadedAt;
+        if (age >= ttlNanos) {
+            return null;
+        }
+        hits.increment();
+        // Sólo se escribe si cambia, para no ensuciar la línea de caché de una entrada caliente
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        if (age >= refreshAfterNanos) {
+            staleHits.increment();
+            CompletableFuture<String> refresh = new CompletableFuture<>();
+            if (inFlight.putIfAbsent(sourceId, refresh) == null) {
+                refreshes.increment();
+                refresher.execute(() -> load(sourceId, refresh, true));
+            }
+        }
+        return entry.value;
+    }
+
+    private void load(int sourceId, CompletableFuture<String> target, boolean refresh) {
+        try {
+            if (!refresh) {
+                // Puede haber terminado otro fetch entre la consulta y el registro en inFlight
+                String cached = cached(sourceId);
+                if (cached != null) {
+                    target.complete(cached);
+                    return;
+                }
+                misses.increment();
+            }
+            String value = source.apply(sourceId);
+            put(sourceId, value);
+            target.complete(value);
+        } catch (Throwable t) {
+            if (refresh) {
+                refreshFailures.increment();
+            }
+            target.completeExceptionally(t);
+        } finally {
+            // Después de guardar el dato, para que ninguna petición vea un hueco entre ambos
+            inFlight.remove(sourceId, target);
+        }
+    }
+
+    // Un refresco reemplaza la entrada sin cambiar su sitio en la esfera
+    private void put(int sourceId, String value) {
+        if (entries.put(sourceId, new Entry(value, System.nanoTime())) == null) {
+            clock.add(sourceId);
+        }
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    // Sólo los fetch llegan aquí, así que el monitor no lo toca ningún acierto
+    private synchronized void evict() {
+        long now = System.nanoTime();
+        while (entries.size() > maxEntries) {
+            Integer sourceId = clock.poll();
+            if (sourceId == null) {
+                return;
+            }
+            Entry entry = entries.get(sourceId);
+            if (entry == null) {
+                continue;
+            }
+            if (entry.referenced && now - entry.loadedAt < ttlNanos) {
+                entry.referenced = false;
+                clock.add(sourceId);
+            } else if (entries.remove(sourceId, entry)) {
+                evictions.increment();
+            } else {
+                // Un refresco la reemplazó mientras tanto: sigue presente y conserva su sitio
+                clock.add(sourceId);
+            }
+        }
+    }
+
+    private static String await(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
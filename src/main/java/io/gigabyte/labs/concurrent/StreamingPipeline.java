@@ -0,0 +1,191 @@
+package io.gigabyte.labs.concurrent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Pipeline fetch → processData → sendDataToClient basado en {@link Flow}.
+ * Cada etapa tiene su propio paralelismo y un buffer acotado hacia la siguiente; si
+ * sendDataToClient es lento, los buffers se llenan y la presión llega hasta el productor
+ * de ids, en lugar de acumular todos los payloads en memoria.
+ */
+public class StreamingPipeline {
+
+    public record StageConfig(int parallelism, int bufferSize) {
+        public StageConfig {
+            if (parallelism <= 0 || bufferSize <= 0) {
+                throw new IllegalArgumentException("parallelism and bufferSize must be positive");
+            }
+        }
+    }
+
+    public record StageMetrics(String stage, long received, long emitted, long failed, double emittedPerSecond) {
+    }
+
+    private final IntFunction<String> fetch;
+    private final UnaryOperator<String> process;
+    private final Consumer<String> send;
+    private final StageConfig fetchConfig;
+    private final StageConfig processConfig;
+    private final StageConfig sendConfig;
+
+    private volatile List<Stage<?, ?>> lastRun = List.of();
+
+    public StreamingPipeline(IntFunction<String> fetch, UnaryOperator<String> process, Consumer<String> send,
+                             StageConfig fetchConfig, StageConfig processConfig, StageConfig sendConfig) {
+        this.fetch = fetch;
+        this.process = process;
+        this.send = send;
+        this.fetchConfig = fetchConfig;
+        this.processConfig = processConfig;
+        this.sendConfig = sendConfig;
+    }
+
+    /**
+     * Empuja los ids por el pipeline. El hilo llamante se bloquea cuando el buffer de la etapa
+     * de fetch está lleno; el futuro se completa cuando el último dato se ha enviado.
+     */
+    public CompletableFuture<Void> run(Collection<Integer> sourceIds) {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        Stage<Integer, String> fetchStage = new Stage<>("fetch", fetch::apply, executor, fetchConfig);
+        Stage<String, String> processStage = new Stage<>("process", process, executor, processConfig);
+        Stage<String, Void> sendStage = new Stage<>("send", data -> {
+            send.accept(data);
+            return null;
+        }, executor, sendConfig);
+        lastRun = List.of(fetchStage, processStage, sendStage);
+
+        CompletableFuture<Void> done = sendStage.completion();
+        fetchStage.subscribe(processStage);
+        processStage.subscribe(sendStage);
+
+        try (SubmissionPublisher<Integer> source = new SubmissionPublisher<>(executor, fetchConfig.bufferSize())) {
+            source.subscribe(fetchStage);
+            for (int sourceId : sourceIds) {
+                source.submit(sourceId); // bloquea si la etapa de fetch va por detrás
+            }
+        }
+        return done.whenComplete((ignored, error) -> executor.shutdown());
+    }
+
+    // Contadores de la última ejecución, en orden fetch, process, send
+    public List<StageMetrics> metrics() {
+        return lastRun.stream().map(Stage::metrics).toList();
+    }
+
+    /**
+     * Etapa intermedia: recibe del upstream, aplica la función con hasta {@code parallelism}
+     * elementos en vuelo y publica el resultado en un buffer de {@code bufferSize}. Sólo pide un
+     * nuevo elemento cuando ha conseguido entregar el anterior, así que un downstream lleno frena
+     * a esta etapa y, por cascada, a las anteriores.
+     */
+    private static final class Stage<T, R> extends SubmissionPublisher<R> implements Flow.Processor<T, R> {
+
+        private final String name;
+        private final Function<T, R> fn;
+        private final ExecutorService workers;
+        private final int parallelism;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private final LongAdder received = new LongAdder();
+        private final LongAdder emitted = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private volatile boolean upstreamDone;
+        private volatile long startNanos;
+        private volatile long endNanos;
+        private Flow.Subscription subscription;
+
+        Stage(String name, Function<T, R> fn, ExecutorService workers, StageConfig config) {
+            super(workers, config.bufferSize());
+            this.name = name;
+            this.fn = fn;
+            this.workers = workers;
+            this.parallelism = config.parallelism();
+        }
+
+        CompletableFuture<Void> completion() {
+            return completion;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            startNanos = System.nanoTime();
+            subscription.request(parallelism);
+        }
+
+        @Override
+        public void onNext(T item) {
+            received.increment();
+            inFlight.incrementAndGet();
+            workers.execute(() -> {
+                try {
+                    R result = fn.apply(item);
+                    if (result != null) {
+                        submit(result);
+                    }
+                    emitted.increment();
+                } catch (RuntimeException e) {
+                    failed.increment();
+                } catch (Error e) {
+                    // Un Error no es un fallo de un elemento: se aborta el pipeline en vez de seguir
+                    failed.increment();
+                    finish(e);
+                    throw e;
+                } finally {
+                    subscription.request(1);
+                    if (inFlight.decrementAndGet() == 0 && upstreamDone) {
+                        finish(null);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            finish(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            upstreamDone = true;
+            if (inFlight.get() == 0) {
+                finish(null);
+            }
+        }
+
+        private void finish(Throwable error) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            endNanos = System.nanoTime();
+            if (error == null) {
+                close();
+                completion.complete(null);
+            } else {
+                closeExceptionally(error);
+                completion.completeExceptionally(error);
+            }
+        }
+
+        StageMetrics metrics() {
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            double seconds = startNanos == 0 ? 0 : (end - startNanos) / 1e9;
+            long out = emitted.sum();
+            return new StageMetrics(name, received.sum(), out, failed.sum(), seconds > 0 ? out / seconds : 0);
+        }
+    }
+}
@@ -1,15 +1,56 @@
 package io.gigabyte.labs.concurrent;
 
-public class SyncExampleReal {
+import io.gigabyte.labs.metrics.Metrics;
+import io.gigabyte.labs.metrics.StageTimer;
 
-    // Simula la recuperación de datos de una fuente externa
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SyncExampleReal implements AutoCloseable {
+
+    private static final int CACHE_ENTRIES = 1024;
+    private static final Duration REFRESH_AFTER = Duration.ofSeconds(30);
+    private static final Duration CACHE_TTL = Duration.ofMinutes(2);
+
+    private static final StageTimer FETCH = Metrics.global().timer("SyncExampleReal", "fetch");
+    private static final StageTimer PROCESS = Metrics.global().timer("SyncExampleReal", "process");
+    private static final StageTimer SEND = Metrics.global().timer("SyncExampleReal", "send");
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final SourceCache sources = new SourceCache(this::loadFromSource, CACHE_ENTRIES, REFRESH_AFTER, CACHE_TTL);
+
+    private final Metrics.Registration cacheMetrics;
+
+    public SyncExampleReal() {
+        // Cada instancia tiene su propia caché, así que publica con su propio nombre
+        cacheMetrics = sources.exportTo(Metrics.global(), "SyncExampleReal-" + INSTANCES.incrementAndGet());
+    }
+
+    // Quita las métricas de la caché del registro global, que si no retendría la instancia
+    @Override
+    public void close() {
+        cacheMetrics.close();
+    }
+
+    // Pasa por la caché: sólo va a la fuente si el dato falta o ha caducado
     public String fetchDataFromSource(int sourceId) {
+        return sources.get(sourceId);
+    }
+
+    public SourceCache.Stats cacheStats() {
+        return sources.stats();
+    }
+
+    // Simula la recuperación de datos de una fuente externa
+    private String loadFromSource(int sourceId) {
         System.out.println(Thread.currentThread().getName() + " - Iniciando fetchDataFromSource " + sourceId);
+        long start = FETCH.start();
         try {
             Thread.sleep(sourceId * 1000); // Simula un retraso que depende del ID de la fuente
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
+        FETCH.stop(start);
         System.out.println(Thread.currentThread().getName() + " - Datos recuperados de la fuente " + sourceId);
         return "Datos de la fuente " + sourceId;
     }
@@ -17,12 +58,17 @@ public class SyncExampleReal {
     // Simula el procesamiento de datos
     public String processData(String data) {
         System.out.println(Thread.currentThread().getName() + " - Iniciando processData");
-        return data + " - procesados";
+        long start = PROCESS.start();
+        String processed = data + " - procesados";
+        PROCESS.stop(start);
+        return processed;
     }
 
     // Simula el envío de datos al cliente
     public void sendDataToClient(String data) {
+        long start = SEND.start();
         System.out.println(Thread.currentThread().getName() + " - Enviando datos al cliente: " + data);
+        SEND.stop(start);
     }
 
     public void synchronousMethod() {
@@ -36,11 +82,19 @@ public class SyncExampleReal {
     }
 
     public static void main(String[] args) {
-        SyncExampleReal example = new SyncExampleReal();
-        long startTime = System.currentTimeMillis(); // Marca de tiempo inicial
-        example.synchronousMethod();
-        long endTime = System.currentTimeMillis(); // Marca de tiempo final
-        System.out.println(Thread.currentThread().getName() + " - Tiempo total de ejecución (sincrónico): " + (endTime - startTime) + " ms");
+        try (SyncExampleReal example = new SyncExampleReal()) {
+            long startTime = System.currentTimeMillis(); // Marca de tiempo inicial
+            example.synchronousMethod();
+            long endTime = System.currentTimeMillis(); // Marca de tiempo final
+            System.out.println(Thread.currentThread().getName() + " - Tiempo total de ejecución (sincrónico): " + (endTime - startTime) + " ms");
+            // Segunda pasada con los mismos ids: todo sale de la caché
+            startTime = System.currentTimeMillis();
+            example.synchronousMethod();
+            endTime = System.currentTimeMillis();
+            System.out.println(Thread.currentThread().getName() + " - Tiempo con la caché caliente: " + (endTime - startTime) + " ms");
+            System.out.println(Thread.currentThread().getName() + " - " + example.cacheStats());
+            System.out.print(Metrics.global().render());
+        }
     }
 }
 
@@ -0,0 +1,100 @@
+package io.gigabyte.labs.content;
+
+import io.gigabyte.labs.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prueba de carga en lazo cerrado para {@link ContentServer}: {@code clients} hilos virtuales piden
+ * recursos del curso al azar, uno tras otro, durante {@code seconds}. Un tercio de las peticiones
+ * revalida con el ETag visto antes, como haría un navegador con la caché caliente. Muestra
+ * peticiones/s, percentiles de latencia y el conteo por código de estado. Arranca un servidor
+ * embebido sobre src/main/resources salvo que se indique una URL base.
+ * <p>
+ * Uso: ContentLoadTest [clientes] [segundos] [urlBase]
+ */
+public class ContentLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        ContentServer server = null;
+        String baseUrl;
+        List<String> paths;
+        if (args.length > 2) {
+            baseUrl = args[2];
+            paths = List.of("/");
+        } else {
+            server = ContentServer.start(Path.of("src/main/resources"), Files.createTempDirectory("content-cache"),
+              new InetSocketAddress("127.0.0.1", 0));
+            baseUrl = "http://127.0.0.1:" + server.port();
+            paths = new ArrayList<>(server.paths());
+        }
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+          .connectTimeout(Duration.ofSeconds(5)).build();
+        LatencyHistogram latency = new LatencyHistogram();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        Map<String, String> etags = new ConcurrentHashMap<>();
+        LongAdder errors = new LongAdder();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        long startTime = System.nanoTime();
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String path = paths.get(random.nextInt(paths.size()));
+                    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + encode(path)))
+                      .header("Accept-Encoding", "gzip");
+                    String etag = etags.get(path);
+                    if (etag != null && random.nextInt(3) == 0) {
+                        request.header("If-None-Match", etag);
+                    }
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+                        latency.recordNanos(System.nanoTime() - sent);
+                        statuses.computeIfAbsent(response.statusCode(), s -> new LongAdder()).increment();
+                        response.headers().firstValue("ETag").ifPresent(tag -> etags.put(path, tag));
+                    } catch (IOException e) {
+                        errors.increment();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - startTime) / 1e9;
+
+        System.out.printf("%d clientes, %.1f s: %.0f req/s%n", clients, elapsed, latency.count() / elapsed);
+        System.out.println("latencia: " + latency);
+        System.out.println("status: " + statuses + " errores=" + errors.sum());
+        if (server != null) {
+            System.out.println(server.stats());
+            server.close();
+        }
+    }
+
+    private static String encode(String path) {
+        return path.replace(" ", "%20");
+    }
+}
@@ -0,0 +1,431 @@
+package io.gigabyte.labs.content;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Servidor de ficheros estáticos para el material del curso. Todo se prepara una vez al arrancar:
+ * <ul>
+ *   <li>el markdown se renderiza a HTML en {@code cacheDir} y se sirve en su URL {@code .md};</li>
+ *   <li>los recursos de texto tienen una variante gzip en {@code cacheDir}, y un fichero {@code .br}
+ *   o {@code .gz} junto a un recurso se usa como su variante precomprimida;</li>
+ *   <li>cada recurso lleva un ETag fuerte calculado sobre su contenido, así que
+ *   {@code If-None-Match} se responde con 304 sin tocar el fichero.</li>
+ * </ul>
+ * El servidor habla HTTP/1.1 (GET/HEAD, keep-alive) sobre socket channels bloqueantes, un hilo
+ * virtual por conexión. Los cuerpos se envían con {@link FileChannel#transferTo}, que el kernel
+ * convierte en sendfile: las páginas del fichero van al socket sin copiarse a través del heap.
+ */
+public class ContentServer implements AutoCloseable {
+
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+    private static final Set<String> COMPRESSIBLE = Set.of(
+      "text/html; charset=utf-8", "text/markdown; charset=utf-8", "text/plain; charset=utf-8",
+      "application/yaml", "text/javascript", "text/css", "image/svg+xml", "application/json");
+
+    public record Stats(long requests, long notModified, long notFound, long compressed, long bytesSent,
+                        long connections) {
+    }
+
+    // Cada codificación es una representación distinta, así que lleva su propio ETag fuerte
+    private record Variant(FileChannel channel, long length, String encoding, String etag) {
+    }
+
+    private record Asset(String contentType, Variant identity, Variant gzip, Variant brotli) {
+        boolean hasVariants() {
+            return gzip != null || brotli != null;
+        }
+
+        boolean hasEtag(String etag) {
+            return etag.equals(identity.etag()) || (gzip != null && etag.equals(gzip.etag()))
+              || (brotli != null && etag.equals(brotli.etag()));
+        }
+    }
+
+    private record Request(String method, String path, Map<String, String> headers, boolean keepAlive) {
+    }
+
+    private final Map<String, Asset> assets;
+    private final ServerSocketChannel server;
+    private final Thread acceptor;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+
+    private ContentServer(Map<String, Asset> assets, ServerSocketChannel server) {
+        this.assets = assets;
+        this.server = server;
+        this.acceptor = Thread.ofPlatform().name("content-acceptor").daemon().unstarted(this::acceptLoop);
+    }
+
+    public static ContentServer start(Path root, Path cacheDir, InetSocketAddress address) {
+        try {
+            Map<String, Asset> assets = prepare(root, cacheDir);
+            ServerSocketChannel server = ServerSocketChannel.open().bind(address, 1_024);
+            ContentServer contentServer = new ContentServer(assets, server);
+            contentServer.acceptor.start();
+            return contentServer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start content server for " + root, e);
+        }
+    }
+
+    public int port() {
+        try {
+            return ((InetSocketAddress) server.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Set<String> paths() {
+        return assets.keySet();
+    }
+
+    public Stats stats() {
+        return new Stats(requests.sum(), notModified.sum(), notFound.sum(), compressed.sum(), bytesSent.sum(),
+          accepted.sum());
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.close();
+            acceptor.join();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SocketChannel connection : connections) {
+            closeQuietly(connection);
+        }
+        for (Asset asset : assets.values()) {
+            for (Variant variant : new Variant[]{asset.identity(), asset.gzip(), asset.brotli()}) {
+                if (variant != null) {
+                    closeQuietly(variant.channel());
+                }
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel connection = server.accept();
+                // Cabeceras y cuerpo salen en escrituras separadas; Nagle retendría el cuerpo
+                connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                accepted.increment();
+                connections.add(connection);
+                Thread.ofVirtual().name("content-connection").start(() -> serve(connection));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                // Un accept fallido (p. ej. demasiados ficheros abiertos) no debe parar el servidor
+            }
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        ByteBuffer input = ByteBuffer.allocate(MAX_HEADER_BYTES);
+        try (connection) {
+            while (true) {
+                Request request = readRequest(connection, input);
+                if (request == null) {
+                    return;
+                }
+                respond(connection, request);
+                if (!request.keepAlive()) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // El cliente se ha ido; no hay nada que informar
+        } finally {
+            connections.remove(connection);
+        }
+    }
+
+    private void respond(SocketChannel connection, Request request) throws IOException {
+        requests.increment();
+        if (!request.method().equals("GET") && !request.method().equals("HEAD")) {
+            writeHeaders(connection, "405 Method Not Allowed", Map.of("Allow", "GET, HEAD", "Content-Length", "0"),
+              request.keepAlive());
+            return;
+        }
+        Asset asset = assets.get(request.path());
+        if (asset == null) {
+            notFound.increment();
+            writeHeaders(connection, "404 Not Found", Map.of("Content-Length", "0"), request.keepAlive());
+            return;
+        }
+        Variant variant = negotiate(asset, request.headers().get("accept-encoding"));
+        Map<String, String> headers = new TreeMap<>();
+        headers.put("ETag", variant.etag());
+        headers.put("Cache-Control", "public, max-age=300");
+        if (asset.hasVariants()) {
+            headers.put("Vary", "Accept-Encoding");
+        }
+        if (matches(request.headers().get("if-none-match"), asset)) {
+            notModified.increment();
+            writeHeaders(connection, "304 Not Modified", headers, request.keepAlive());
+            return;
+        }
+        headers.put("Content-Type", asset.contentType());
+        headers.put("Content-Length", Long.toString(variant.length()));
+        if (variant.encoding() != null) {
+            headers.put("Content-Encoding", variant.encoding());
+            compressed.increment();
+        }
+        writeHeaders(connection, "200 OK", headers, request.keepAlive());
+        if (request.method().equals("GET")) {
+            long position = 0;
+            while (position < variant.length()) {
+                position += variant.channel().transferTo(position, variant.length() - position, connection);
+            }
+            bytesSent.add(variant.length());
+        }
+    }
+
+    private static Variant negotiate(Asset asset, String acceptEncoding) {
+        if (acceptEncoding == null || !asset.hasVariants()) {
+            return asset.identity();
+        }
+        boolean br = false;
+        boolean gzip = false;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean refused = parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?");
+            br |= coding.equals("br") && !refused;
+            gzip |= coding.equals("gzip") && !refused;
+        }
+        if (br && asset.brotli() != null) {
+            return asset.brotli();
+        }
+        if (gzip && asset.gzip() != null) {
+            return asset.gzip();
+        }
+        return asset.identity();
+    }
+
+    // La copia del cliente está al día si tiene cualquier representación del mismo contenido
+    private static boolean matches(String ifNoneMatch, Asset asset) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || asset.hasEtag(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeHeaders(SocketChannel connection, String status, Map<String, String> headers,
+                                     boolean keepAlive) throws IOException {
+        StringBuilder head = new StringBuilder(256).append("HTTP/1.1 ").append(status).append("\r\n");
+        headers.forEach((name, value) -> head.append(name).append(": ").append(value).append("\r\n"));
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(head.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1));
+        while (bytes.hasRemaining()) {
+            connection.write(bytes);
+        }
+    }
+
+    // Lee la cabecera de una petición; los bytes de la siguiente (pipelining) se quedan en el buffer. Null en EOF.
+    private static Request readRequest(SocketChannel connection, ByteBuffer input) throws IOException {
+        int end;
+        while ((end = headerEnd(input)) < 0) {
+            if (!input.hasRemaining()) {
+                writeHeaders(connection, "431 Request Header Fields Too Large", Map.of("Content-Length", "0"), false);
+                return null;
+            }
+            if (connection.read(input) < 0) {
+                return null;
+            }
+        }
+        String head = new String(input.array(), 0, end, StandardCharsets.ISO_8859_1);
+        input.flip().position(end + 4);
+        input.compact();
+
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3) {
+            writeHeaders(connection, "400 Bad Request", Map.of("Content-Length", "0"), false);
+            return null;
+        }
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT), lines[i].substring(colon + 1).trim());
+            }
+        }
+        String connectionHeader = headers.getOrDefault("connection", "").toLowerCase(Locale.ROOT);
+        boolean keepAlive = requestLine[2].equals("HTTP/1.1") ? !connectionHeader.equals("close")
+          : connectionHeader.equals("keep-alive");
+        // Los cuerpos de petición no se leen; cerrar después mantiene el flujo sincronizado
+        if (!headers.getOrDefault("content-length", "0").equals("0") || headers.containsKey("transfer-encoding")) {
+            keepAlive = false;
+        }
+        return new Request(requestLine[0], normalize(requestLine[1]), headers, keepAlive);
+    }
+
+    private static int headerEnd(ByteBuffer input) {
+        byte[] bytes = input.array();
+        for (int i = 3; i < input.position(); i++) {
+            if (bytes[i] == '\n' && bytes[i - 1] == '\r' && bytes[i - 2] == '\n' && bytes[i - 3] == '\r') {
+                return i - 3;
+            }
+        }
+        return -1;
+    }
+
+    private static String normalize(String target) {
+        int query = target.indexOf('?');
+        String path = query < 0 ? target : target.substring(0, query);
+        try {
+            path = URLDecoder.decode(path.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+        return path.isEmpty() ? "/" : path;
+    }
+
+    private static Map<String, Asset> prepare(Path root, Path cacheDir) throws IOException {
+        Map<String, Asset> assets = new HashMap<>();
+        List<String> listing = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".gz") || name.endsWith(".br")) {
+                    continue;
+                }
+                String relative = root.relativize(file).toString().replace('\\', '/');
+                Asset asset;
+                if (name.endsWith(".md")) {
+                    // Un fichero precomprimido al lado tendría el markdown, no el HTML renderizado
+                    Path html = cacheDir.resolve(relative + ".html");
+                    Files.createDirectories(html.getParent());
+                    Files.writeString(html, MarkdownRenderer.render(Files.readString(file), relative));
+                    asset = asset(html, "text/html; charset=utf-8", null, null, cacheDir.resolve(relative + ".html.gz"));
+                } else {
+                    asset = asset(file, contentType(name), sibling(file, ".gz"), sibling(file, ".br"),
+                      cacheDir.resolve(relative + ".gz"));
+                }
+                assets.put("/" + relative, asset);
+                listing.add(relative);
+            }
+        }
+        Files.createDirectories(cacheDir);
+        StringBuilder markdown = new StringBuilder("# Course material\n\n");
+        listing.forEach(relative -> markdown.append("- [").append(relative).append("](").append(relative).append(")\n"));
+        Path index = cacheDir.resolve("index.html");
+        Files.writeString(index, MarkdownRenderer.render(markdown.toString(), "Course material"));
+        assets.put("/", asset(index, "text/html; charset=utf-8", null, null, cacheDir.resolve("index.html.gz")));
+        return Map.copyOf(assets);
+    }
+
+    // Sin un gzip precomprimido, a los recursos comprimibles se les genera uno en gzipTarget
+    private static Asset asset(Path file, String contentType, Path gzip, Path brotli, Path gzipTarget)
+      throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        String etag = "\"" + Long.toHexString(crc.getValue()) + "-" + Long.toHexString(content.length) + "\"";
+        if (gzip == null && COMPRESSIBLE.contains(contentType)) {
+            Files.createDirectories(gzipTarget.getParent());
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipTarget)) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                out.write(content);
+            }
+            // Si no encoge, no compensa servirlo con Content-Encoding
+            gzip = Files.size(gzipTarget) < content.length ? gzipTarget : null;
+        }
+        return new Asset(contentType, variant(file, null, etag), variant(gzip, "gzip", etag), variant(brotli, "br", etag));
+    }
+
+    private static Variant variant(Path file, String encoding, String contentEtag) throws IOException {
+        if (file == null) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        String etag = encoding == null ? contentEtag
+          : contentEtag.substring(0, contentEtag.length() - 1) + "-" + encoding + "\"";
+        return new Variant(channel, channel.size(), encoding, etag);
+    }
+
+    private static Path sibling(Path file, String suffix) {
+        Path sibling = file.resolveSibling(file.getFileName() + suffix);
+        return Files.isRegularFile(sibling) ? sibling : null;
+    }
+
+    private static String contentType(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        String extension = lower.substring(lower.lastIndexOf('.') + 1);
+        return switch (extension) {
+            case "png" -> "image/png";
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "gif" -> "image/gif";
+            case "svg" -> "image/svg+xml";
+            case "html" -> "text/html; charset=utf-8";
+            case "md" -> "text/markdown; charset=utf-8";
+            case "yaml", "yml" -> "application/yaml";
+            case "json" -> "application/json";
+            case "js", "mjs" -> "text/javascript";
+            case "css" -> "text/css";
+            case "txt" -> "text/plain; charset=utf-8";
+            default -> "application/octet-stream";
+        };
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Apagando
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.gigabyte.labs.content;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Mantiene un {@link SearchIndex} al día con sus ficheros mediante un {@link WatchService} sobre la
+ * raíz de recursos y cada directorio {@code week-*}. Los eventos se acumulan hasta que el árbol lleva
+ * {@link #QUIET_MILLIS} en calma, así que una ráfaga de escrituras de un editor provoca una sola
+ * actualización, y sólo se reindexan los ficheros que nombran los eventos. El índice se guarda tras
+ * cada actualización; si falla, se cuenta en {@link #failures()} y el hilo sigue vigilando.
+ */
+public class IndexWatcher implements AutoCloseable {
+
+    static final long QUIET_MILLIS = 200;
+
+    private final SearchIndex index;
+    private final WatchService watcher;
+    private final Thread thread;
+    private final LongAdder failures = new LongAdder();
+
+    public IndexWatcher(SearchIndex index) {
+        this.index = index;
+        try {
+            this.watcher = FileSystems.getDefault().newWatchService();
+            register(index.root());
+            try (Stream<Path> weeks = Files.list(index.root())) {
+                for (Path week : (Iterable<Path>) weeks.filter(Files::isDirectory)::iterator) {
+                    register(week);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot watch " + index.root(), e);
+        }
+        this.thread = Thread.ofPlatform().name("search-index-watcher").daemon().start(this::run);
+    }
+
+    // Actualizaciones que fallaron (disco lleno, permisos...); sus ficheros se reintentan en la siguiente
+    public long failures() {
+        return failures.sum();
+    }
+
+    @Override
+    public void close() {
+        try {
+            watcher.close();
+            thread.join();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        Set<Path> changed = new HashSet<>();
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                do {
+                    try {
+                        collect(key, changed);
+                    } catch (RuntimeException e) {
+                        failed(e);
+                    }
+                } while ((key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                if (changed.isEmpty()) {
+                    continue;
+                }
+                try {
+                    index.update(changed);
+                    index.save();
+                    changed.clear();
+                } catch (RuntimeException e) {
+                    // El hilo sigue vigilando: si muriera, el índice no se volvería a actualizar nunca
+                    failed(e);
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Cerrado
+        }
+    }
+
+    private void failed(RuntimeException e) {
+        failures.increment();
+        Thread current = Thread.currentThread();
+        current.getUncaughtExceptionHandler().uncaughtException(current, e);
+    }
+
+    // La clave se rearma aunque algo falle; si no, su directorio dejaría de dar eventos
+    private void collect(WatchKey key, Set<Path> changed) {
+        try {
+            collectEvents(key, changed);
+        } finally {
+            key.reset();
+        }
+    }
+
+    private void collectEvents(WatchKey key, Set<Path> changed) {
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Se perdieron eventos: se comparan todos los ficheros
+                index.refresh();
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            if (directory.equals(index.root()) && Files.isDirectory(file)) {
+                try {
+                    register(file);
+                    try (Stream<Path> files = Files.list(file)) {
+                        files.filter(index::isDocument).forEach(changed::add);
+                    }
+                } catch (IOException e) {
+                    // Ya no estaba cuando se fue a mirar
+                }
+            } else if (index.isDocument(file)) {
+                changed.add(file);
+            }
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+        directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+          StandardWatchEventKinds.ENTRY_DELETE);
+    }
+}
@@ -0,0 +1,272 @@
+package io.gigabyte.labs.content;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renderizador mínimo de Markdown a HTML con lo que usa el material del curso: títulos ATX, bloques
+ * de código cercados (también dentro de listas), listas con viñetas y numeradas anidadas, citas,
+ * tablas con barras, separadores horizontales y párrafos, además de código en línea, negrita,
+ * cursiva, enlaces e imágenes. Todo lo demás se muestra como texto escapado.
+ */
+final class MarkdownRenderer {
+
+    private static final Pattern HEADING = Pattern.compile("^(#{1,6})\\s+(.*?)\\s*#*$");
+    private static final Pattern FENCE = Pattern.compile("^(\\s*)(```+|~~~+)\\s*([\\w+-]*).*$");
+    private static final Pattern LIST_ITEM = Pattern.compile("^(\\s*)([-*+]|\\d+[.)])\\s+(.*)$");
+    private static final Pattern RULE = Pattern.compile("^\\s*([-*_])(\\s*\\1){2,}\\s*$");
+    private static final Pattern TABLE_SEPARATOR = Pattern.compile("^\\s*\\|?\\s*:?-+:?\\s*(\\|\\s*:?-+:?\\s*)*\\|?\\s*$");
+    private static final Pattern INLINE = Pattern.compile(
+      "(`+)(.+?)\\1"                                   // código en línea
+        + "|!\\[([^\\]]*)\\]\\(([^)\\s]+)[^)]*\\)"      // imagen
+        + "|\\[([^\\]]+)\\]\\(([^)\\s]+)[^)]*\\)"       // enlace
+        + "|\\*\\*(.+?)\\*\\*|__(.+?)__"                // negrita
+        + "|\\*([^*\\s][^*]*?)\\*|(?<![\\w])_([^_\\s][^_]*?)_(?![\\w])"); // cursiva
+
+    private MarkdownRenderer() {
+    }
+
+    static String render(String markdown, String title) {
+        StringBuilder html = new StringBuilder(markdown.length() * 2);
+        html.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>")
+          .append(escape(title)).append("</title></head>\n<body>\n");
+        new Block(html).render(markdown.split("\r?\n", -1));
+        return html.append("</body></html>\n").toString();
+    }
+
+    private static final class Block {
+        private final StringBuilder out;
+        private final StringBuilder paragraph = new StringBuilder();
+        // Listas abiertas, la más interna al final: sangría y etiqueta de cierre
+        private final Deque<Integer> listIndents = new ArrayDeque<>();
+        private final Deque<String> listTags = new ArrayDeque<>();
+        private boolean inQuote;
+
+        Block(StringBuilder out) {
+            this.out = out;
+        }
+
+        void render(String[] lines) {
+            for (int i = 0; i < lines.length; i++) {
+                String line = lines[i];
+                Matcher fence = FENCE.matcher(line);
+                if (fence.matches()) {
+                    i = codeBlock(lines, i, fence);
+                    continue;
+                }
+                if (line.isBlank()) {
+                    flushParagraph();
+                    continue;
+                }
+                Matcher heading = HEADING.matcher(line);
+                if (heading.matches()) {
+                    closeAll();
+                    int level = heading.group(1).length();
+                    out.append("<h").append(level).append('>').append(inline(heading.group(2)))
+                      .append("</h").append(level).append(">\n");
+                    continue;
+                }
+                if (RULE.matcher(line).matches()) {
+                    closeAll();
+                    out.append("<hr>\n");
+                    continue;
+                }
+                if (line.trim().startsWith("|") && i + 1 < lines.length && TABLE_SEPARATOR.matcher(lines[i + 1]).matches()) {
+                    closeAll();
+                    i = table(lines, i);
+                    continue;
+                }
+                Matcher item = LIST_ITEM.matcher(line);
+                if (item.matches()) {
+                    listItem(item.group(1).length(), Character.isDigit(item.group(2).charAt(0)) ? "ol" : "ul", item.group(3));
+                    continue;
+                }
+                if (line.startsWith(">")) {
+                    if (!inQuote) {
+                        closeAll();
+                        out.append("<blockquote>\n");
+                        inQuote = true;
+                    }
+                    appendText(line.substring(1).trim());
+                    continue;
+                }
+                if (!listTags.isEmpty() && paragraph.isEmpty() && !Character.isWhitespace(line.charAt(0))) {
+                    closeLists(-1);
+                }
+                appendText(line.trim());
+            }
+            closeAll();
+        }
+
+        private int codeBlock(String[] lines, int start, Matcher fence) {
+            flushParagraph();
+            if (listTags.isEmpty() || fence.group(1).isEmpty()) {
+                closeAll();
+            }
+            String marker = fence.group(2);
+            int indent = fence.group(1).length();
+            String language = fence.group(3);
+            out.append(language.isEmpty() ? "<pre><code>" : "<pre><code class=\"language-" + escape(language) + "\">");
+            int i = start + 1;
+            for (; i < lines.length; i++) {
+                String line = lines[i];
+                if (line.trim().startsWith(marker)) {
+                    break;
+                }
+                out.append(escape(stripIndent(line, indent))).append('\n');
+            }
+            out.append("</code></pre>\n");
+            return i;
+        }
+
+        private int table(String[] lines, int start) {
+            out.append("<table>\n<thead><tr>");
+            for (String cell : cells(lines[start])) {
+                out.append("<th>").append(inline(cell)).append("</th>");
+            }
+            out.append("</tr></thead>\n<tbody>\n");
+            int i = start + 2;
+            for (; i < lines.length && lines[i].trim().startsWith("|"); i++) {
+                out.append("<tr>");
+                for (String cell : cells(lines[i])) {
+                    out.append("<td>").append(inline(cell)).append("</td>");
+                }
+                out.append("</tr>\n");
+            }
+            out.append("</tbody></table>\n");
+            return i - 1;
+        }
+
+        private void listItem(int indent, String tag, String text) {
+            flushParagraph();
+            closeQuote();
+            while (!listIndents.isEmpty() && indent < listIndents.peekLast()) {
+                out.append("</li></").append(listTags.removeLast()).append(">\n");
+                listIndents.removeLast();
+            }
+            if (listIndents.isEmpty() || indent > listIndents.peekLast()) {
+                out.append('<').append(tag).append(">\n");
+                listIndents.addLast(indent);
+                listTags.addLast(tag);
+            } else if (!listTags.peekLast().equals(tag)) {
+                out.append("</li></").append(listTags.removeLast()).append(">\n<").append(tag).append(">\n");
+                listTags.addLast(tag);
+            } else {
+                out.append("</li>\n");
+            }
+            out.append("<li>").append(inline(text));
+        }
+
+        private void appendText(String text) {
+            if (!paragraph.isEmpty()) {
+                paragraph.append('\n');
+            }
+            paragraph.append(text);
+        }
+
+        private void flushParagraph() {
+            if (paragraph.isEmpty()) {
+                return;
+            }
+            if (!listTags.isEmpty()) {
+                out.append("<br>").append(inline(paragraph.toString()));
+            } else {
+                out.append("<p>").append(inline(paragraph.toString())).append("</p>\n");
+            }
+            paragraph.setLength(0);
+        }
+
+        private void closeQuote() {
+            if (inQuote) {
+                flushParagraph();
+                out.append("</blockquote>\n");
+                inQuote = false;
+            }
+        }
+
+        private void closeLists(int indent) {
+            while (!listIndents.isEmpty() && listIndents.peekLast() > indent) {
+                out.append("</li></").append(listTags.removeLast()).append(">\n");
+                listIndents.removeLast();
+            }
+        }
+
+        private void closeAll() {
+            flushParagraph();
+            closeQuote();
+            closeLists(-1);
+        }
+    }
+
+    private static String[] cells(String row) {
+        String trimmed = row.trim();
+        if (trimmed.startsWith("|")) {
+            trimmed = trimmed.substring(1);
+        }
+        if (trimmed.endsWith("|")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        String[] cells = trimmed.split("\\|", -1);
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = cells[i].trim();
+        }
+        return cells;
+    }
+
+    private static String stripIndent(String line, int indent) {
+        int i = 0;
+        while (i < indent && i < line.length() && line.charAt(i) == ' ') {
+            i++;
+        }
+        return line.substring(i);
+    }
+
+    static String inline(String text) {
+        StringBuilder html = new StringBuilder(text.length() + 16);
+        Matcher m = INLINE.matcher(text);
+        int last = 0;
+        while (m.find()) {
+            html.append(escape(text.substring(last, m.start())));
+            if (m.group(1) != null) {
+                html.append("<code>").append(escape(m.group(2).strip())).append("</code>");
+            } else if (m.group(4) != null) {
+                html.append("<img src=\"").append(escape(m.group(4))).append("\" alt=\"").append(escape(m.group(3))).append("\">");
+            } else if (m.group(6) != null) {
+                html.append("<a href=\"").append(escape(m.group(6))).append("\">").append(inline(m.group(5))).append("</a>");
+            } else if (m.group(7) != null || m.group(8) != null) {
+                html.append("<strong>").append(inline(m.group(7) != null ? m.group(7) : m.group(8))).append("</strong>");
+            } else {
+                html.append("<em>").append(inline(m.group(9) != null ? m.group(9) : m.group(10))).append("</em>");
+            }
+            last = m.end();
+        }
+        return html.append(escape(text.substring(last))).toString();
+    }
+
+    static String escape(String text) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement = switch (c) {
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '&' -> "&amp;";
+                case '"' -> "&quot;";
+                default -> null;
+            };
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped == null ? text : escaped.toString();
+    }
+}
@@ -0,0 +1,148 @@
+package io.gigabyte.labs.content;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Codificación de la lista de postings de un término: enteros de longitud variable (7 bits por
+ * byte), con ids de documento y posiciones guardados como diferencia con el valor anterior para
+ * que la mayoría quepa en un byte.
+ * <pre>
+ * docCount y, por documento: docDelta, termFrequency, positionDelta x termFrequency
+ * </pre>
+ * Los lectores usan get absolutos, así que el mismo buffer (en heap o mapeado) se puede leer a la vez.
+ */
+final class PostingsCodec {
+
+    private PostingsCodec() {
+    }
+
+    static int documentFrequency(ByteBuffer postings) {
+        return new Reader(postings).remaining;
+    }
+
+    static boolean containsAny(ByteBuffer postings, IntPredicate docs) {
+        Reader reader = new Reader(postings);
+        while (reader.next()) {
+            if (docs.test(reader.doc)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copia de {@code postings} sin los documentos que cumplen {@code drop}, mezclada con las
+     * entradas de {@code insert} (id de documento a posiciones) en orden de id. Los ids insertados no
+     * pueden ser de los que {@code drop} deja en su sitio. Devuelve null si el resultado no tiene
+     * documentos.
+     */
+    static ByteBuffer rewrite(ByteBuffer postings, IntPredicate drop, SortedMap<Integer, int[]> insert) {
+        Writer writer = new Writer();
+        Iterator<Map.Entry<Integer, int[]>> pending = insert.entrySet().iterator();
+        Map.Entry<Integer, int[]> next = pending.hasNext() ? pending.next() : null;
+        if (postings != null) {
+            Reader reader = new Reader(postings);
+            while (reader.next()) {
+                while (next != null && next.getKey() < reader.doc) {
+                    writer.add(next.getKey(), next.getValue(), next.getValue().length);
+                    next = pending.hasNext() ? pending.next() : null;
+                }
+                if (!drop.test(reader.doc)) {
+                    writer.add(reader.doc, reader.positions, reader.frequency);
+                }
+            }
+        }
+        for (; next != null; next = pending.hasNext() ? pending.next() : null) {
+            writer.add(next.getKey(), next.getValue(), next.getValue().length);
+        }
+        return writer.count == 0 ? null : writer.toBuffer();
+    }
+
+    // Recorre los documentos de una lista de postings; las posiciones se decodifican en un array reutilizado
+    static final class Reader {
+        private final ByteBuffer buffer;
+        private int offset;
+        private int remaining;
+        int doc;
+        int frequency;
+        int[] positions = new int[8];
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.offset = 0;
+            this.remaining = readVarInt();
+        }
+
+        boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            doc += readVarInt();
+            frequency = readVarInt();
+            if (positions.length < frequency) {
+                positions = new int[Integer.highestOneBit(frequency) << 1];
+            }
+            int position = 0;
+            for (int i = 0; i < frequency; i++) {
+                position += readVarInt();
+                positions[i] = position;
+            }
+            return true;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get(offset++);
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    private static final class Writer {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private int count;
+        private int lastDoc;
+
+        void add(int doc, int[] positions, int frequency) {
+            writeVarInt(body, doc - lastDoc);
+            lastDoc = doc;
+            writeVarInt(body, frequency);
+            int last = 0;
+            for (int i = 0; i < frequency; i++) {
+                writeVarInt(body, positions[i] - last);
+                last = positions[i];
+            }
+            count++;
+        }
+
+        ByteBuffer toBuffer() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.size() + 5);
+            writeVarInt(out, count);
+            out.writeBytes(body.toByteArray());
+            return ByteBuffer.wrap(out.toByteArray()).asReadOnlyBuffer();
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int[] copyPositions(Reader reader) {
+        return Arrays.copyOf(reader.positions, reader.frequency);
+    }
+}
@@ -0,0 +1,476 @@
+package io.gigabyte.labs.content;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Índice invertido de texto completo sobre el markdown del curso ({@code week-*}/{@code day*.md}
+ * bajo la raíz de recursos). Cada término apunta a una lista de postings con posiciones codificada
+ * con {@link PostingsCodec}.
+ * <p>
+ * Las consultas se ordenan con BM25; las partes entre comillas se buscan como frases (posiciones
+ * consecutivas), el resto como términos sueltos, y la puntuación de un documento es la suma de
+ * todas las partes. El texto se pasa a minúsculas y se le quitan los acentos, así que
+ * {@code diseño} y {@code diseno} coinciden.
+ * <p>
+ * {@link #save()} escribe el índice en un único fichero; {@link #open} lo mapea en memoria y lee
+ * los postings directamente del mapeo, y después sólo vuelve a leer los documentos cuyo tamaño o
+ * fecha de modificación han cambiado. Los postings actualizados viven en el heap hasta el
+ * siguiente save.
+ */
+public class SearchIndex {
+
+    private static final int MAGIC = 0x53494458;
+    private static final int VERSION = 1;
+    private static final int MAX_TOKEN_LENGTH = 64;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Pattern QUERY_PART = Pattern.compile("\"([^\"]+)\"|(\\S+)");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    public record Hit(String path, double score) {
+    }
+
+    public record Stats(int documents, int terms, long postingsBytes, int reindexed, boolean loadedFromDisk) {
+    }
+
+    private record DocInfo(String path, int length, long lastModified, long size) {
+    }
+
+    // Un documento a indexar, o a quitar si text es null
+    private record Change(String path, String text, long lastModified, long size) {
+    }
+
+    private final Path root;
+    private final Path indexFile;
+    private final PathMatcher documents;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Protegido por lock. Los ids de documento son huecos en docs; uno quitado deja el hueco a null
+    private final List<DocInfo> docs = new ArrayList<>();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final Map<String, ByteBuffer> postings = new HashMap<>();
+    // Términos de los documentos indexados en esta ejecución; los cargados de disco recurren a recorrerlo todo
+    private final Map<Integer, Set<String>> docTerms = new HashMap<>();
+    private long totalLength;
+    private int liveDocs;
+    private int reindexed;
+    private boolean loadedFromDisk;
+
+    private SearchIndex(Path root, Path indexFile) {
+        this.root = root;
+        this.indexFile = indexFile;
+        this.documents = FileSystems.getDefault().getPathMatcher("glob:week-*/day*.md");
+    }
+
+    // Carga el índice guardado, si lo hay, y lo pone al día con los ficheros bajo root
+    public static SearchIndex open(Path root, Path indexFile) {
+        SearchIndex index = new SearchIndex(root, indexFile);
+        if (indexFile != null && Files.isRegularFile(indexFile)) {
+            index.load();
+        }
+        index.refresh();
+        return index;
+    }
+
+    Path root() {
+        return root;
+    }
+
+    boolean isDocument(Path file) {
+        return documents.matches(root.relativize(file));
+    }
+
+    // Vuelve a leer los documentos nuevos o cambiados y quita los borrados; devuelve cuántos se reindexaron
+    public int refresh() {
+        Set<Path> seen = new HashSet<>();
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            files.filter(Files::isRegularFile).filter(this::isDocument).forEach(seen::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list " + root, e);
+        }
+        List<Path> changed = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Path file : seen) {
+                Integer id = docIds.get(relative(file));
+                if (id == null || isStale(docs.get(id), file)) {
+                    changed.add(file);
+                }
+            }
+            for (String path : docIds.keySet()) {
+                if (!seen.contains(root.resolve(path))) {
+                    changed.add(root.resolve(path));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return update(changed);
+    }
+
+    // Reindexa los ficheros indicados, o los quita del índice si ya no existen
+    public int update(Collection<Path> files) {
+        Map<String, Change> changes = new LinkedHashMap<>();
+        for (Path file : files) {
+            String text = null;
+            long lastModified = 0;
+            long size = 0;
+            if (Files.isRegularFile(file) && isDocument(file)) {
+                try {
+                    text = Files.readString(file);
+                    lastModified = Files.getLastModifiedTime(file).toMillis();
+                    size = Files.size(file);
+                } catch (IOException e) {
+                    // Desaparecido o ilegible a mitad de la actualización: se trata como borrado
+                    text = null;
+                }
+            }
+            changes.put(relative(file), new Change(relative(file), text, lastModified, size));
+        }
+        lock.writeLock().lock();
+        try {
+            apply(changes.values());
+            reindexed += changes.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return changes.size();
+    }
+
+    // Indexa textos que no vienen de ficheros bajo root; sirve para agrandar los benchmarks
+    void addDocuments(Map<String, String> texts) {
+        List<Change> changes = new ArrayList<>(texts.size());
+        texts.forEach((path, text) -> changes.add(new Change(path, text, 0, text.length())));
+        lock.writeLock().lock();
+        try {
+            apply(changes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Hit> search(String query, int limit) {
+        List<List<String>> parts = new ArrayList<>();
+        Matcher matcher = QUERY_PART.matcher(query);
+        while (matcher.find()) {
+            List<String> tokens = tokenize(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+            if (matcher.group(1) != null && tokens.size() > 1) {
+                parts.add(tokens);
+            } else {
+                tokens.forEach(token -> parts.add(List.of(token)));
+            }
+        }
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = new HashMap<>();
+            double averageLength = liveDocs == 0 ? 1 : (double) totalLength / liveDocs;
+            for (List<String> part : parts) {
+                if (part.size() == 1) {
+                    scoreTerm(part.get(0), averageLength, scores);
+                } else {
+                    scorePhrase(part, averageLength, scores);
+                }
+            }
+            PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+            scores.forEach((doc, score) -> {
+                top.add(new Hit(docs.get(doc).path(), score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            });
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed().thenComparing(Hit::path));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            long bytes = postings.values().stream().mapToLong(ByteBuffer::capacity).sum();
+            return new Stats(liveDocs, postings.size(), bytes, reindexed, loadedFromDisk);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Escribe el índice junto a su destino y lo renombra encima, así que una caída deja el fichero
+     * viejo o el nuevo y un lector que tenga mapeado el viejo no se ve afectado.
+     */
+    public void save() {
+        if (indexFile == null) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            Path parent = indexFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, indexFile.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(docs.size());
+                for (DocInfo doc : docs) {
+                    writeString(out, doc == null ? "" : doc.path());
+                    out.writeInt(doc == null ? 0 : doc.length());
+                    out.writeLong(doc == null ? 0 : doc.lastModified());
+                    out.writeLong(doc == null ? 0 : doc.size());
+                }
+                out.writeInt(postings.size());
+                for (Map.Entry<String, ByteBuffer> entry : postings.entrySet()) {
+                    writeString(out, entry.getKey());
+                    ByteBuffer bytes = entry.getValue().duplicate().clear();
+                    out.writeInt(bytes.remaining());
+                    byte[] copy = new byte[bytes.remaining()];
+                    bytes.get(copy);
+                    out.write(copy);
+                }
+            }
+            Files.move(temp, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot save search index to " + indexFile, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+          .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean word = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(folded.substring(start, Math.min(i, start + MAX_TOKEN_LENGTH)));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private void scoreTerm(String term, double averageLength, Map<Integer, Double> scores) {
+        ByteBuffer list = postings.get(term);
+        if (list == null) {
+            return;
+        }
+        PostingsCodec.Reader reader = new PostingsCodec.Reader(list);
+        double idf = idf(PostingsCodec.documentFrequency(list));
+        while (reader.next()) {
+            scores.merge(reader.doc, bm25(idf, reader.frequency, docs.get(reader.doc).length(), averageLength), Double::sum);
+        }
+    }
+
+    private void scorePhrase(List<String> terms, double averageLength, Map<Integer, Double> scores) {
+        List<Map<Integer, int[]>> positions = new ArrayList<>(terms.size());
+        double idf = 0;
+        for (String term : terms) {
+            ByteBuffer list = postings.get(term);
+            if (list == null) {
+                return;
+            }
+            idf += idf(PostingsCodec.documentFrequency(list));
+            Map<Integer, int[]> byDoc = new HashMap<>();
+            PostingsCodec.Reader reader = new PostingsCodec.Reader(list);
+            while (reader.next()) {
+                byDoc.put(reader.doc, PostingsCodec.copyPositions(reader));
+            }
+            positions.add(byDoc);
+        }
+        for (Map.Entry<Integer, int[]> first : positions.get(0).entrySet()) {
+            int doc = first.getKey();
+            int matches = 0;
+            for (int start : first.getValue()) {
+                boolean all = true;
+                for (int i = 1; i < positions.size() && all; i++) {
+                    int[] next = positions.get(i).get(doc);
+                    all = next != null && Arrays.binarySearch(next, start + i) >= 0;
+                }
+                if (all) {
+                    matches++;
+                }
+            }
+            if (matches > 0) {
+                scores.merge(doc, bm25(idf, matches, docs.get(doc).length(), averageLength), Double::sum);
+            }
+        }
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (liveDocs - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static double bm25(double idf, int frequency, int length, double averageLength) {
+        return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    // Aplica un lote de cambios (como mucho uno por ruta) reescribiendo una sola vez cada lista de
+    // postings afectada, así que indexar muchos documentos con un término común cuesta una pasada por su lista
+    private void apply(Collection<Change> changes) {
+        Set<Integer> dropped = new HashSet<>();
+        Set<String> touched = new HashSet<>();
+        boolean scanAll = false;
+        for (Change change : changes) {
+            Integer id = docIds.get(change.path());
+            if (id == null) {
+                continue;
+            }
+            Set<String> terms = docTerms.remove(id);
+            if (terms == null) {
+                scanAll = true;
+            } else {
+                touched.addAll(terms);
+            }
+            dropped.add(id);
+            totalLength -= docs.get(id).length();
+            liveDocs--;
+            docs.set(id, null);
+            if (change.text() == null) {
+                docIds.remove(change.path());
+            }
+        }
+        Map<String, SortedMap<Integer, int[]>> additions = new HashMap<>();
+        for (Change change : changes) {
+            if (change.text() == null) {
+                continue;
+            }
+            List<String> tokens = tokenize(change.text());
+            Map<String, List<Integer>> positions = new LinkedHashMap<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                positions.computeIfAbsent(tokens.get(i), t -> new ArrayList<>()).add(i);
+            }
+            // Un documento reindexado conserva su hueco
+            Integer existing = docIds.get(change.path());
+            int id = existing != null ? existing : docs.size();
+            DocInfo info = new DocInfo(change.path(), tokens.size(), change.lastModified(), change.size());
+            if (existing == null) {
+                docs.add(info);
+                docIds.put(change.path(), id);
+            } else {
+                docs.set(id, info);
+            }
+            positions.forEach((term, list) -> additions.computeIfAbsent(term, t -> new TreeMap<>())
+              .put(id, list.stream().mapToInt(Integer::intValue).toArray()));
+            docTerms.put(id, positions.keySet());
+            totalLength += tokens.size();
+            liveDocs++;
+        }
+        // Los documentos cargados de disco no tienen lista de términos, así que quitarlos revisa todos los términos
+        if (scanAll) {
+            touched.addAll(postings.keySet());
+        }
+        touched.addAll(additions.keySet());
+        for (String term : touched) {
+            ByteBuffer list = postings.get(term);
+            SortedMap<Integer, int[]> insert = additions.getOrDefault(term, Collections.emptySortedMap());
+            if (insert.isEmpty() && (list == null || !PostingsCodec.containsAny(list, dropped::contains))) {
+                continue;
+            }
+            ByteBuffer rewritten = PostingsCodec.rewrite(list, dropped::contains, insert);
+            if (rewritten == null) {
+                postings.remove(term);
+            } else {
+                postings.put(term, rewritten);
+            }
+        }
+    }
+
+    private boolean isStale(DocInfo doc, Path file) {
+        try {
+            return doc == null || doc.size() != Files.size(file)
+              || doc.lastModified() != Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private String relative(Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private void load() {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+                return;
+            }
+            int docCount = mapped.getInt();
+            for (int id = 0; id < docCount; id++) {
+                String path = readString(mapped);
+                DocInfo doc = new DocInfo(path, mapped.getInt(), mapped.getLong(), mapped.getLong());
+                docs.add(path.isEmpty() ? null : doc);
+                if (!path.isEmpty()) {
+                    docIds.put(path, id);
+                    totalLength += doc.length();
+                    liveDocs++;
+                }
+            }
+            int termCount = mapped.getInt();
+            for (int i = 0; i < termCount; i++) {
+                String term = readString(mapped);
+                int length = mapped.getInt();
+                postings.put(term, mapped.slice(mapped.position(), length).asReadOnlyBuffer());
+                mapped.position(mapped.position() + length);
+            }
+            loadedFromDisk = true;
+        } catch (IOException | RuntimeException e) {
+            // Un fichero ausente, truncado o ajeno sólo supone reconstruirlo entero
+            docs.clear();
+            docIds.clear();
+            postings.clear();
+            totalLength = 0;
+            liveDocs = 0;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
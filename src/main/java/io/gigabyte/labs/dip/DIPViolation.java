@@ -1,12 +1,36 @@
 package io.gigabyte.labs.dip;
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
 class OrderProcessor {
     private EmailNotification emailNotifier = new EmailNotification();
+    private OrderEngine engine;
 
     public void processOrder(Order order) {
         // Lógica para procesar el pedido
         emailNotifier.sendEmail(order.getUserEmail(), "Your order has been processed");
     }
+
+    // Procesa en paralelo respetando el orden por usuario
+    public CompletableFuture<Void> processOrders(Collection<Order> orders) {
+        return engine().processOrders(orders);
+    }
+
+    public CompletableFuture<Void> submit(Order order) {
+        return engine().submit(order);
+    }
+
+    public OrderEngine.Stats stats() {
+        return engine().stats();
+    }
+
+    private synchronized OrderEngine engine() {
+        if (engine == null) {
+            engine = new OrderEngine(this::processOrder);
+        }
+        return engine;
+    }
 }
 
 class EmailNotification {
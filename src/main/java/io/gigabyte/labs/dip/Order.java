@@ -2,11 +2,20 @@ package io.gigabyte.labs.dip;
 
 import io.gigabyte.labs.TipoNotificacion;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public class Order {
+    private String userEmail;
     private TipoNotificacion tipoNotificacion;
+    private Set<TipoNotificacion> tiposNotificacion = EnumSet.noneOf(TipoNotificacion.class);
 
     public String getUserEmail() {
-        return null;
+        return userEmail;
+    }
+
+    public void setUserEmail(String userEmail) {
+        this.userEmail = userEmail;
     }
 
     public TipoNotificacion getTipoNotificacion() {
@@ -16,4 +25,18 @@ public class Order {
     public void setTipoNotificacion(TipoNotificacion tipoNotificacion) {
         this.tipoNotificacion = tipoNotificacion;
     }
+
+    // Canales a notificar; si no se configuraron varios, el único tipoNotificacion
+    public Set<TipoNotificacion> getTiposNotificacion() {
+        if (!tiposNotificacion.isEmpty()) {
+            return tiposNotificacion;
+        }
+        return tipoNotificacion == null ? EnumSet.noneOf(TipoNotificacion.class) : EnumSet.of(tipoNotificacion);
+    }
+
+    public void setTiposNotificacion(Set<TipoNotificacion> tiposNotificacion) {
+        this.tiposNotificacion = tiposNotificacion.isEmpty()
+          ? EnumSet.noneOf(TipoNotificacion.class)
+          : EnumSet.copyOf(tiposNotificacion);
+    }
 }
\ No newline at end of file
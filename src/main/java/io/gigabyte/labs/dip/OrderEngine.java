@@ -0,0 +1,133 @@
+package io.gigabyte.labs.dip;
+
+import io.gigabyte.labs.metrics.LatencyHistogram;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Motor de pedidos en paralelo. Los pedidos se reparten en particiones por email de usuario; cada
+ * partición la vacía como mucho una tarea a la vez, así que los pedidos de un mismo usuario se
+ * atienden en orden de llegada, mientras que particiones distintas corren en paralelo sobre un
+ * {@link ForkJoinPool} con work-stealing.
+ */
+public class OrderEngine implements AutoCloseable {
+
+    // Pedidos atendidos por tarea antes de ceder el hilo a otras particiones
+    private static final int DRAIN_QUANTUM = 64;
+
+    public record Stats(long processed, long failed, double ordersPerSecond, LatencyHistogram latency) {
+    }
+
+    private final Consumer<Order> handler;
+    private final ForkJoinPool pool;
+    private final Partition[] partitions;
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final long startNanos = System.nanoTime();
+
+    public OrderEngine(Consumer<Order> handler) {
+        this(handler, Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors() * 8);
+    }
+
+    public OrderEngine(Consumer<Order> handler, int parallelism, int partitionCount) {
+        this.handler = handler;
+        // asyncMode: colas locales FIFO, adecuadas para tareas tipo evento a las que nadie hace join
+        this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition();
+        }
+    }
+
+    public CompletableFuture<Void> submit(Order order) {
+        Pending pending = new Pending(order, System.nanoTime(), new CompletableFuture<>());
+        partitionOf(order).enqueue(pending);
+        return pending.done();
+    }
+
+    public CompletableFuture<Void> processOrders(Collection<Order> orders) {
+        CompletableFuture<?>[] all = new CompletableFuture<?>[orders.size()];
+        int i = 0;
+        for (Order order : orders) {
+            all[i++] = submit(order);
+        }
+        return CompletableFuture.allOf(all);
+    }
+
+    public Stats stats() {
+        long done = processed.sum();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return new Stats(done, failed.sum(), seconds > 0 ? done / seconds : 0, latency);
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private Partition partitionOf(Order order) {
+        String email = order.getUserEmail();
+        int hash = email == null ? 0 : email.hashCode();
+        return partitions[Math.floorMod(hash ^ (hash >>> 16), partitions.length)];
+    }
+
+    private record Pending(Order order, long submittedNanos, CompletableFuture<Void> done) {
+    }
+
+    private final class Partition implements Runnable {
+        private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void enqueue(Pending pending) {
+            queue.add(pending);
+            if (scheduled.compareAndSet(false, true)) {
+                pool.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < DRAIN_QUANTUM; i++) {
+                    Pending next = queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    handle(next);
+                }
+            } finally {
+                // También si el handler lanza un Error: si no, la partición quedaría marcada para siempre
+                scheduled.set(false);
+                // Puede haber llegado un pedido entre el último poll y el borrado de la marca
+                if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                    pool.execute(this);
+                }
+            }
+        }
+
+        private void handle(Pending pending) {
+            try {
+                handler.accept(pending.order());
+                processed.increment();
+                pending.done().complete(null);
+            } catch (RuntimeException e) {
+                failed.increment();
+                pending.done().completeExceptionally(e);
+            } catch (Error e) {
+                failed.increment();
+                pending.done().completeExceptionally(e);
+                throw e;
+            } finally {
+                latency.recordNanos(System.nanoTime() - pending.submittedNanos());
+            }
+        }
+    }
+}
@@ -3,50 +3,188 @@ package io.gigabyte.labs.dip.ok;
 
 import io.gigabyte.labs.TipoNotificacion;
 import io.gigabyte.labs.dip.Order;
+import io.gigabyte.labs.dip.OrderEngine;
+import io.gigabyte.labs.metrics.Metrics;
+import io.gigabyte.labs.metrics.StageTimer;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 interface NotificationService {
     void sendNotification(String to, String message);
 }
 
+// Conexión reutilizable hacia el proveedor de un canal (SMTP, gateway SMS, servicio push)
+class ChannelConnection {
+    private final TipoNotificacion tipo;
+
+    ChannelConnection(TipoNotificacion tipo) {
+        this.tipo = tipo;
+    }
+
+    public TipoNotificacion getTipo() {
+        return tipo;
+    }
+
+    public void write(String to, String message) {
+        // Escritura sobre la conexión ya abierta
+    }
+}
+
 class EmailNotification implements NotificationService {
+    private final ChannelConnection connection;
+
+    EmailNotification(ChannelConnection connection) {
+        this.connection = connection;
+    }
+
     public void sendNotification(String to, String message) {
         // Envío de correo electrónico
+        connection.write(to, message);
     }
 }
 
 class SMSNotification implements NotificationService {
+    private final ChannelConnection connection;
+
+    SMSNotification(ChannelConnection connection) {
+        this.connection = connection;
+    }
+
     @Override
     public void sendNotification(String to, String message) {
-
+        connection.write(to, message);
     }
 }
 
 class PushNotification implements NotificationService {
+    private final ChannelConnection connection;
+
+    PushNotification(ChannelConnection connection) {
+        this.connection = connection;
+    }
 
     @Override
     public void sendNotification(String to, String message) {
+        connection.write(to, message);
+    }
+}
+
+// Pool fijo de senders, cada uno dueño de su conexión; el tamaño del pool es el límite de concurrencia del canal
+class PooledNotificationService implements NotificationService {
+    private final BlockingQueue<NotificationService> senders;
 
+    PooledNotificationService(TipoNotificacion tipo, int size, Function<ChannelConnection, NotificationService> factory) {
+        this.senders = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            senders.add(factory.apply(new ChannelConnection(tipo)));
+        }
+    }
+
+    @Override
+    public void sendNotification(String to, String message) {
+        NotificationService sender;
+        try {
+            sender = senders.take(); // espera si todas las conexiones del canal están ocupadas
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a connection", e);
+        }
+        try {
+            sender.sendNotification(to, message);
+        } finally {
+            senders.add(sender);
+        }
+    }
+}
+
+// Un servicio por canal creado una sola vez y compartido por todos los pedidos
+class NotificationRegistry {
+    private final Map<TipoNotificacion, NotificationService> services = new EnumMap<>(TipoNotificacion.class);
+    private final ExecutorService fanOut = Executors.newVirtualThreadPerTaskExecutor();
+
+    static NotificationRegistry withDefaults() {
+        NotificationRegistry registry = new NotificationRegistry();
+        registry.register(TipoNotificacion.EMAIL, new PooledNotificationService(TipoNotificacion.EMAIL, 8, EmailNotification::new));
+        registry.register(TipoNotificacion.SMS, new PooledNotificationService(TipoNotificacion.SMS, 4, SMSNotification::new));
+        registry.register(TipoNotificacion.PUSH, new PooledNotificationService(TipoNotificacion.PUSH, 16, PushNotification::new));
+        return registry;
+    }
+
+    public void register(TipoNotificacion tipo, NotificationService service) {
+        services.put(tipo, service);
+    }
+
+    public NotificationService get(TipoNotificacion tipo) {
+        NotificationService service = tipo == null ? null : services.get(tipo);
+        return service != null ? service : services.get(TipoNotificacion.EMAIL);
+    }
+
+    // Un solo canal se envía en el hilo actual; varios canales se envían en paralelo
+    public CompletableFuture<Void> dispatch(Set<TipoNotificacion> tipos, String to, String message) {
+        if (tipos.size() <= 1) {
+            get(tipos.isEmpty() ? null : tipos.iterator().next()).sendNotification(to, message);
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<?>[] sends = tipos.stream()
+          .map(tipo -> CompletableFuture.runAsync(() -> get(tipo).sendNotification(to, message), fanOut))
+          .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(sends);
     }
 }
 
 class OrderProcessor {
+    private static final StageTimer NOTIFY = Metrics.global().timer("OrderProcessor", "notify");
+
+    private final NotificationRegistry notifications;
+    private OrderEngine engine;
+
+    OrderProcessor() {
+        this(NotificationRegistry.withDefaults());
+    }
+
+    OrderProcessor(NotificationRegistry notifications) {
+        this.notifications = notifications;
+    }
 
     public void processOrder(Order order) {
         // Lógica para procesar el pedido
-        NotificationService notifier = getNotificationService(order.getTipoNotificacion());
-        notifier.sendNotification(order.getUserEmail(), "Your order has been processed");
-    }
-
-    private NotificationService getNotificationService(TipoNotificacion tipoNotificacion) {
-        if (tipoNotificacion == TipoNotificacion.SMS) {
-            return new SMSNotification();
-        } else if (tipoNotificacion == TipoNotificacion.EMAIL) {
-            return new EmailNotification();
-        } else if (tipoNotificacion == TipoNotificacion.PUSH) {
-            return new PushNotification();
-        } else {
-            return new EmailNotification();
+        long start = NOTIFY.start();
+        try {
+            notifications.dispatch(order.getTiposNotificacion(), order.getUserEmail(), "Your order has been processed").join();
+        } catch (RuntimeException e) {
+            NOTIFY.fail(start);
+            throw e;
+        }
+        NOTIFY.stop(start);
+    }
+
+    // Procesa en paralelo respetando el orden por usuario
+    public CompletableFuture<Void> processOrders(Collection<Order> orders) {
+        return engine().processOrders(orders);
+    }
+
+    public CompletableFuture<Void> submit(Order order) {
+        return engine().submit(order);
+    }
+
+    public OrderEngine.Stats stats() {
+        return engine().stats();
+    }
+
+    private synchronized OrderEngine engine() {
+        if (engine == null) {
+            engine = new OrderEngine(this::processOrder);
         }
+        return engine;
     }
 }
 
@@ -0,0 +1,76 @@
+package io.gigabyte.labs.dip.ok;
+
+import io.gigabyte.labs.TipoNotificacion;
+import io.gigabyte.labs.dip.Order;
+import io.gigabyte.labs.dip.OrderEngine;
+import io.gigabyte.labs.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reproduce pedidos sintéticos contra {@link OrderProcessor} y muestra pedidos por segundo
+ * y el histograma de latencia, seguidos de las métricas por etapa de {@link Metrics}.
+ * Uso: OrderLoadGenerator [pedidos] [usuarios] [pedidos/s]
+ * Sin tasa, todos los pedidos se envían de golpe y la latencia incluye la espera en cola;
+ * con tasa, se envían a ritmo constante (lazo abierto) y la latencia refleja la del motor.
+ */
+public class OrderLoadGenerator {
+
+    public static void main(String[] args) {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+        List<Order> workload = generate(orders, users, new SplittableRandom(42));
+        OrderProcessor processor = new OrderProcessor();
+        long startTime = System.nanoTime();
+        if (rate <= 0) {
+            processor.processOrders(workload).join();
+        } else {
+            replayAtRate(processor, workload, rate);
+        }
+        long elapsed = System.nanoTime() - startTime;
+
+        OrderEngine.Stats stats = processor.stats();
+        System.out.println("Pedidos procesados: " + stats.processed() + " (fallidos: " + stats.failed() + ")");
+        System.out.printf("Throughput: %.0f pedidos/s%n", stats.processed() / (elapsed / 1e9));
+        System.out.println("Latencia: " + stats.latency());
+        System.out.print(Metrics.global().render());
+    }
+
+    private static void replayAtRate(OrderProcessor processor, List<Order> workload, int rate) {
+        long intervalNanos = 1_000_000_000L / rate;
+        long next = System.nanoTime();
+        List<CompletableFuture<Void>> pending = new ArrayList<>(workload.size());
+        for (Order order : workload) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            pending.add(processor.submit(order));
+            next += intervalNanos;
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+    }
+
+    static List<Order> generate(int orders, int users, SplittableRandom random) {
+        TipoNotificacion[] tipos = TipoNotificacion.values();
+        List<Order> workload = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            Order order = new Order();
+            order.setUserEmail("user" + random.nextInt(users) + "@example.com");
+            if (random.nextInt(10) == 0) {
+                order.setTiposNotificacion(EnumSet.of(tipos[random.nextInt(tipos.length)], tipos[random.nextInt(tipos.length)]));
+            } else {
+                order.setTipoNotificacion(tipos[random.nextInt(tipos.length)]);
+            }
+            workload.add(order);
+        }
+        return workload;
+    }
+}
@@ -0,0 +1,132 @@
+package io.gigabyte.labs.liskov.ok;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Procesa una lista larga de {@link MappedMedia} con memoria acotada. Un hilo se adelanta mapeando
+ * y precargando los siguientes medios mientras los workers procesan los anteriores; cada medio
+ * ocupa su tamaño en un presupuesto de {@code maxInFlightBytes} desde que se precarga hasta que se
+ * libera tras procesarlo, y como mucho hay {@code prefetch} medios esperando turno.
+ * <p>
+ * Con un solo worker los medios se procesan en orden; con varios, el orden no está garantizado.
+ */
+class DisplayPipeline {
+
+    record Stats(long processed, long failed, long bytes, long peakInFlightBytes, long prefetchStalls) {
+    }
+
+    private final long maxInFlightBytes;
+    private final int prefetch;
+    private final int workers;
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final AtomicLong peakInFlight = new AtomicLong();
+    private final LongAdder prefetchStalls = new LongAdder();
+
+    // Guarded by this
+    private long inFlightBytes;
+
+    DisplayPipeline(long maxInFlightBytes, int prefetch, int workers) {
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.prefetch = prefetch;
+        this.workers = workers;
+    }
+
+    void displayAll(List<? extends MappedMedia> items) {
+        run(items, MappedMedia::display);
+    }
+
+    void run(List<? extends MappedMedia> items, Consumer<? super MappedMedia> action) {
+        BlockingQueue<Slot> ready = new ArrayBlockingQueue<>(Math.max(1, prefetch));
+        List<Thread> threads = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            threads.add(Thread.ofVirtual().name("display-" + i).start(() -> consume(ready, action)));
+        }
+        try {
+            try {
+                for (MappedMedia media : items) {
+                    acquire(media.size());
+                    try {
+                        media.prefetch();
+                    } catch (RuntimeException e) {
+                        releaseBudget(media.size());
+                        failed.increment();
+                        continue;
+                    }
+                    ready.put(new Slot(media));
+                }
+            } finally {
+                // También si el bucle lanza (un elemento null, por ejemplo): sin END los workers esperarían siempre
+                for (int i = 0; i < workers; i++) {
+                    ready.put(Slot.END);
+                }
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            threads.forEach(Thread::interrupt);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    Stats stats() {
+        return new Stats(processed.sum(), failed.sum(), bytes.sum(), peakInFlight.get(), prefetchStalls.sum());
+    }
+
+    private void consume(BlockingQueue<Slot> ready, Consumer<? super MappedMedia> action) {
+        while (true) {
+            MappedMedia media;
+            try {
+                media = ready.take().media();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (media == null) {
+                return;
+            }
+            try {
+                action.accept(media);
+                processed.increment();
+                bytes.add(media.size());
+            } catch (Throwable t) {
+                // También un Error: si el worker muriera, el productor se quedaría bloqueado en put
+                failed.increment();
+            } finally {
+                media.release();
+                releaseBudget(media.size());
+            }
+        }
+    }
+
+    // Un medio mayor que el presupuesto entra solo, cuando no hay nada más en vuelo
+    private synchronized void acquire(long size) throws InterruptedException {
+        long needed = Math.min(size, maxInFlightBytes);
+        if (inFlightBytes + needed > maxInFlightBytes) {
+            prefetchStalls.increment();
+        }
+        while (inFlightBytes + needed > maxInFlightBytes) {
+            wait();
+        }
+        inFlightBytes += needed;
+        peakInFlight.accumulateAndGet(inFlightBytes, Math::max);
+    }
+
+    private synchronized void releaseBudget(long size) {
+        inFlightBytes -= Math.min(size, maxInFlightBytes);
+        notifyAll();
+    }
+
+    // Un slot sin medio marca el final para cada worker
+    private record Slot(MappedMedia media) {
+        static final Slot END = new Slot(null);
+    }
+}
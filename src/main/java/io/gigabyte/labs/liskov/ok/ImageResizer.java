@@ -0,0 +1,253 @@
+package io.gigabyte.labs.liskov.ok;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Motor de redimensionado separable: una pasada horizontal (origen → intermedio) y otra vertical
+ * (intermedio → destino). Cada pasada se reparte en franjas de {@link #TILE_ROWS} filas que se
+ * procesan en un {@link ForkJoinPool}. Los pesos de cada filtro se calculan una vez por eje y
+ * redimensionado, y en reducciones el filtro se ensancha con la escala para promediar todos los
+ * píxeles de origen (sin aliasing).
+ * <p>
+ * Los buffers intermedio y destino salen de un {@link PixelBuffer.Pool}; quien recibe el resultado
+ * lo devuelve con {@link PixelBuffer#release()}.
+ */
+class ImageResizer implements AutoCloseable {
+
+    // Franja mínima por tarea: suficientes filas para amortizar el fork sin perder reparto
+    static final int TILE_ROWS = 32;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final PixelBuffer.Pool buffers;
+
+    ImageResizer() {
+        this(ForkJoinPool.commonPool(), false);
+    }
+
+    ImageResizer(int parallelism) {
+        this(new ForkJoinPool(parallelism), true);
+    }
+
+    private ImageResizer(ForkJoinPool pool, boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.buffers = new PixelBuffer.Pool(8);
+    }
+
+    // Decodifica una sola vez a un buffer del pool, que se reutiliza para todos los tamaños
+    PixelBuffer decode(Path file) {
+        BufferedImage image;
+        try {
+            image = ImageIO.read(file.toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede leer la imagen " + file, e);
+        }
+        if (image == null) {
+            throw new IllegalArgumentException("Formato de imagen no soportado: " + file);
+        }
+        PixelBuffer buffer = buffers.acquire(image.getWidth(), image.getHeight());
+        image.getRGB(0, 0, image.getWidth(), image.getHeight(), buffer.pixels, 0, image.getWidth());
+        return buffer;
+    }
+
+    PixelBuffer allocate(int width, int height) {
+        return buffers.acquire(width, height);
+    }
+
+    PixelBuffer resize(PixelBuffer source, int width, int height, ResampleKernel kernel) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Dimensiones inválidas: " + width + "x" + height);
+        }
+        PixelBuffer target = buffers.acquire(width, height);
+        if (kernel == ResampleKernel.NEAREST) {
+            pool.invoke(new Band(0, height, (from, to) -> nearest(source, target, from, to)));
+            return target;
+        }
+        Contributions horizontal = Contributions.of(source.width, width, kernel);
+        Contributions vertical = Contributions.of(source.height, height, kernel);
+        PixelBuffer intermediate = buffers.acquire(width, source.height);
+        try {
+            pool.invoke(new Band(0, source.height, (from, to) -> horizontalPass(source, intermediate, horizontal, from, to)));
+            pool.invoke(new Band(0, height, (from, to) -> verticalPass(intermediate, target, vertical, from, to)));
+        } finally {
+            intermediate.release();
+        }
+        return target;
+    }
+
+    static BufferedImage toImage(PixelBuffer buffer) {
+        BufferedImage image = new BufferedImage(buffer.width, buffer.height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, buffer.width, buffer.height, buffer.pixels, 0, buffer.width);
+        return image;
+    }
+
+    int pooledBuffers() {
+        return buffers.pooled();
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.close();
+        }
+    }
+
+    private static void nearest(PixelBuffer source, PixelBuffer target, int from, int to) {
+        int[] src = source.pixels;
+        int[] dst = target.pixels;
+        int[] columns = new int[target.width];
+        for (int x = 0; x < target.width; x++) {
+            columns[x] = Math.min(source.width - 1, (int) ((x + 0.5) * source.width / target.width));
+        }
+        for (int y = from; y < to; y++) {
+            int row = Math.min(source.height - 1, (int) ((y + 0.5) * source.height / target.height)) * source.width;
+            int out = y * target.width;
+            for (int x = 0; x < target.width; x++) {
+                dst[out + x] = src[row + columns[x]];
+            }
+        }
+    }
+
+    private static void horizontalPass(PixelBuffer source, PixelBuffer target, Contributions c, int from, int to) {
+        int[] src = source.pixels;
+        int[] dst = target.pixels;
+        for (int y = from; y < to; y++) {
+            int row = y * source.width;
+            int out = y * target.width;
+            for (int x = 0; x < target.width; x++) {
+                float a = 0, r = 0, g = 0, b = 0;
+                int start = c.starts[x];
+                int w = x * c.maxTaps;
+                for (int k = 0; k < c.counts[x]; k++) {
+                    int argb = src[row + start + k];
+                    float weight = c.weights[w + k];
+                    a += weight * (argb >>> 24);
+                    r += weight * ((argb >> 16) & 0xFF);
+                    g += weight * ((argb >> 8) & 0xFF);
+                    b += weight * (argb & 0xFF);
+                }
+                dst[out + x] = pack(a, r, g, b);
+            }
+        }
+    }
+
+    // Recorre filas completas del intermedio para leer la memoria en orden
+    private static void verticalPass(PixelBuffer source, PixelBuffer target, Contributions c, int from, int to) {
+        int[] src = source.pixels;
+        int[] dst = target.pixels;
+        int width = target.width;
+        float[] acc = new float[width * 4];
+        for (int y = from; y < to; y++) {
+            Arrays.fill(acc, 0);
+            int start = c.starts[y];
+            int w = y * c.maxTaps;
+            for (int k = 0; k < c.counts[y]; k++) {
+                float weight = c.weights[w + k];
+                int row = (start + k) * width;
+                for (int x = 0, i = 0; x < width; x++, i += 4) {
+                    int argb = src[row + x];
+                    acc[i] += weight * (argb >>> 24);
+                    acc[i + 1] += weight * ((argb >> 16) & 0xFF);
+                    acc[i + 2] += weight * ((argb >> 8) & 0xFF);
+                    acc[i + 3] += weight * (argb & 0xFF);
+                }
+            }
+            int out = y * width;
+            for (int x = 0, i = 0; x < width; x++, i += 4) {
+                dst[out + x] = pack(acc[i], acc[i + 1], acc[i + 2], acc[i + 3]);
+            }
+        }
+    }
+
+    private static int pack(float a, float r, float g, float b) {
+        return clamp(a) << 24 | clamp(r) << 16 | clamp(g) << 8 | clamp(b);
+    }
+
+    // Lanczos tiene lóbulos negativos, así que el resultado puede salirse de 0..255
+    private static int clamp(float value) {
+        int v = Math.round(value);
+        return v < 0 ? 0 : Math.min(v, 255);
+    }
+
+    private interface RowTask {
+        void run(int from, int to);
+    }
+
+    private static final class Band extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final RowTask task;
+
+        Band(int from, int to, RowTask task) {
+            this.from = from;
+            this.to = to;
+            this.task = task;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TILE_ROWS) {
+                task.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Band(from, mid, task), new Band(mid, to, task));
+        }
+    }
+
+    /**
+     * Píxeles de origen y pesos normalizados que contribuyen a cada píxel de destino en un eje.
+     * Los pesos se guardan en un único array, {@code maxTaps} por píxel de destino.
+     */
+    private static final class Contributions {
+        final int[] starts;
+        final int[] counts;
+        final float[] weights;
+        final int maxTaps;
+
+        private Contributions(int[] starts, int[] counts, float[] weights, int maxTaps) {
+            this.starts = starts;
+            this.counts = counts;
+            this.weights = weights;
+            this.maxTaps = maxTaps;
+        }
+
+        static Contributions of(int sourceSize, int targetSize, ResampleKernel kernel) {
+            double scale = (double) sourceSize / targetSize;
+            double filterScale = Math.max(scale, 1);
+            double support = kernel.support * filterScale;
+            int maxTaps = (int) Math.ceil(support) * 2 + 1;
+            int[] starts = new int[targetSize];
+            int[] counts = new int[targetSize];
+            float[] weights = new float[targetSize * maxTaps];
+            for (int i = 0; i < targetSize; i++) {
+                double center = (i + 0.5) * scale;
+                int left = Math.max(0, (int) Math.floor(center - support));
+                int right = Math.min(sourceSize, (int) Math.ceil(center + support));
+                right = Math.min(right, left + maxTaps);
+                double total = 0;
+                for (int j = left; j < right; j++) {
+                    double weight = kernel.weight((j + 0.5 - center) / filterScale);
+                    weights[i * maxTaps + j - left] = (float) weight;
+                    total += weight;
+                }
+                if (total != 0) {
+                    for (int j = 0; j < right - left; j++) {
+                        weights[i * maxTaps + j] /= (float) total;
+                    }
+                }
+                starts[i] = left;
+                counts[i] = right - left;
+            }
+            return new Contributions(starts, counts, weights, maxTaps);
+        }
+    }
+}
@@ -1,6 +1,14 @@
 package io.gigabyte.labs.liskov.ok;
 
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 
 interface Displayable {
     void display();
@@ -15,12 +23,73 @@ interface Bouncable {
 }
 
 class Image implements Displayable, Resizable  {
+    private final Path source;
+    private final ImageResizer resizer;
+    private final ResampleKernel kernel;
+    // Se decodifica en el primer resize y se reutiliza en los siguientes
+    private PixelBuffer original;
+    private PixelBuffer current;
+
+    Image() {
+        this(null, null, ResampleKernel.BILINEAR);
+    }
+
+    Image(Path source, ImageResizer resizer, ResampleKernel kernel) {
+        this.source = source;
+        this.resizer = resizer;
+        this.kernel = kernel;
+    }
+
     public void display() {
         System.out.println("Displaying image");
     }
 
-    public void resize(int width, int height) {
+    public synchronized void resize(int width, int height) {
         System.out.println("Resizing image to width: " + width + ", height: " + height);
+        if (source == null) {
+            return;
+        }
+        if (original == null) {
+            original = resizer.decode(source);
+        }
+        PixelBuffer resized = resizer.resize(original, width, height, kernel);
+        if (current != null) {
+            current.release();
+        }
+        current = resized;
+    }
+
+    // Último resultado de resize, o null si todavía no se ha redimensionado
+    synchronized PixelBuffer pixels() {
+        return current;
+    }
+
+    // Variante en PNG; sólo se redimensiona si no está ya en la caché
+    ByteBuffer rendition(int width, int height, RenditionCache cache) {
+        if (source == null) {
+            throw new IllegalStateException("Image has no source file to render");
+        }
+        RenditionCache.RenditionKey key = new RenditionCache.RenditionKey(source.toString(), width, height, kernel);
+        return cache.get(key, () -> encodePng(width, height));
+    }
+
+    private byte[] encodePng(int width, int height) {
+        PixelBuffer resized;
+        synchronized (this) {
+            if (original == null) {
+                original = resizer.decode(source);
+            }
+            resized = resizer.resize(original, width, height, kernel);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(ImageResizer.toImage(resized), "png", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            resized.release();
+        }
     }
 }
 
@@ -48,5 +117,18 @@ public class LiskovOK {
         displayables.stream().forEach(Displayable::display);
         List<Resizable> resizables = List.of(new Video(), new Image());
         resizables.stream().forEach(resizable -> resizable.resize(56, 45));
+
+        // Con un directorio como argumento, muestra todos sus ficheros sin cargarlos de golpe en el heap
+        if (args.length > 0) {
+            List<MappedMedia> media;
+            try (Stream<Path> files = Files.walk(Path.of(args[0]))) {
+                media = files.filter(Files::isRegularFile).map(MappedMedia::of).toList();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            DisplayPipeline pipeline = new DisplayPipeline(64L << 20, 16, 1);
+            pipeline.displayAll(media);
+            System.out.println(pipeline.stats());
+        }
     }
 }
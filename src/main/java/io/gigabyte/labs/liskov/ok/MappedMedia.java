@@ -0,0 +1,105 @@
+package io.gigabyte.labs.liskov.ok;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Medio respaldado por un fichero que no se lee hasta que hace falta: {@link #content()} mapea el
+ * fichero la primera vez y {@link #release()} suelta el mapping. La memoria mapeada no cuenta en
+ * el heap y el sistema operativo la libera cuando el GC recoge el buffer, así que un medio
+ * liberado y sin referencias no retiene nada.
+ */
+abstract class MappedMedia implements Displayable {
+    private final Path file;
+    private final long size;
+    private MappedByteBuffer content;
+
+    MappedMedia(Path file) {
+        this.file = file;
+        try {
+            this.size = Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede leer " + file, e);
+        }
+    }
+
+    // Elige la implementación por la extensión del fichero
+    static MappedMedia of(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".mp4") || name.endsWith(".mov") || name.endsWith(".webm")) {
+            return new MappedVideo(file);
+        }
+        if (name.endsWith(".mp3") || name.endsWith(".wav") || name.endsWith(".ogg")) {
+            return new MappedAudio(file);
+        }
+        return new MappedImage(file);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long size() {
+        return size;
+    }
+
+    synchronized MappedByteBuffer content() {
+        if (content == null) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se puede mapear " + file, e);
+            }
+        }
+        return content;
+    }
+
+    // Trae las páginas a memoria antes de que se necesiten, para que display() no espere al disco
+    void prefetch() {
+        content().load();
+    }
+
+    synchronized boolean isLoaded() {
+        return content != null;
+    }
+
+    synchronized void release() {
+        content = null;
+    }
+}
+
+class MappedImage extends MappedMedia {
+    MappedImage(Path file) {
+        super(file);
+    }
+
+    public void display() {
+        System.out.println("Displaying image " + file().getFileName() + " (" + content().capacity() + " bytes)");
+    }
+}
+
+class MappedVideo extends MappedMedia {
+    MappedVideo(Path file) {
+        super(file);
+    }
+
+    public void display() {
+        System.out.println("Playing video " + file().getFileName() + " (" + content().capacity() + " bytes)");
+    }
+}
+
+class MappedAudio extends MappedMedia {
+    MappedAudio(Path file) {
+        super(file);
+    }
+
+    public void display() {
+        System.out.println("Playing audio " + file().getFileName() + " (" + content().capacity() + " bytes)");
+    }
+}
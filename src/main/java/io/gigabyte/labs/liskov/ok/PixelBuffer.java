@@ -0,0 +1,67 @@
+package io.gigabyte.labs.liskov.ok;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+// Píxeles ARGB empaquetados, fila a fila. El array puede ser mayor que width * height si viene del pool
+final class PixelBuffer {
+    final int width;
+    final int height;
+    final int[] pixels;
+    private final Pool pool;
+
+    private PixelBuffer(int width, int height, int[] pixels, Pool pool) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+        this.pool = pool;
+    }
+
+    int get(int x, int y) {
+        return pixels[y * width + x];
+    }
+
+    // Devuelve el array al pool; el buffer no se debe usar después
+    void release() {
+        if (pool != null) {
+            pool.recycle(pixels);
+        }
+    }
+
+    /**
+     * Pool de arrays de píxeles para no reservar un array nuevo en cada redimensionado. Sólo reutiliza
+     * arrays de hasta el doble del tamaño pedido, para no retener memoria de imágenes grandes.
+     */
+    static final class Pool {
+        private final int maxPooled;
+        private final ArrayDeque<int[]> free = new ArrayDeque<>();
+
+        Pool(int maxPooled) {
+            this.maxPooled = maxPooled;
+        }
+
+        synchronized PixelBuffer acquire(int width, int height) {
+            int needed = Math.multiplyExact(width, height);
+            Iterator<int[]> it = free.iterator();
+            while (it.hasNext()) {
+                int[] candidate = it.next();
+                if (candidate.length >= needed && candidate.length / 2 <= needed) {
+                    it.remove();
+                    return new PixelBuffer(width, height, candidate, this);
+                }
+            }
+            return new PixelBuffer(width, height, new int[needed], this);
+        }
+
+        private synchronized void recycle(int[] pixels) {
+            if (free.size() == maxPooled) {
+                free.removeFirst();
+            }
+            free.addLast(pixels);
+        }
+
+        synchronized int pooled() {
+            return free.size();
+        }
+    }
+}
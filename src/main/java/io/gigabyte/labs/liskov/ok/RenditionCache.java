@@ -0,0 +1,257 @@
+package io.gigabyte.labs.liskov.ok;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Caché de variantes redimensionadas ya codificadas, en dos niveles:
+ * <ol>
+ *   <li>memoria: LRU acotado por el total de bytes de las variantes;</li>
+ *   <li>disco: un fichero por variante, leído con memory-mapping, también LRU acotado por bytes.</li>
+ * </ol>
+ * Un acierto en disco sube la variante a memoria. Si varias peticiones piden a la vez la misma
+ * variante ausente, sólo la primera la genera y las demás esperan su resultado.
+ * Los {@link ByteBuffer} devueltos son de sólo lectura.
+ */
+class RenditionCache {
+
+    record RenditionKey(String mediaId, int width, int height, ResampleKernel kernel) {
+        // Nombre estable y seguro para el sistema de ficheros
+        String fileName() {
+            return filePrefix(mediaId) + width + "x" + height + "_" + kernel + ".bin";
+        }
+
+        static String filePrefix(String mediaId) {
+            return Integer.toHexString(mediaId.hashCode()) + "-" + mediaId.replaceAll("[^A-Za-z0-9._-]", "_") + "_";
+        }
+    }
+
+    /**
+     * {@code coalesced} son las peticiones que esperaron a la carga de otra: cuentan como peticiones
+     * pero no como aciertos, igual que en {@code SourceCache}.
+     */
+    record Stats(long heapHits, long diskHits, long misses, long coalesced, long evictions,
+                 long heapBytes, long diskBytes) {
+        long requests() {
+            return heapHits + diskHits + misses + coalesced;
+        }
+
+        double heapHitRatio() {
+            long requests = requests();
+            return requests == 0 ? 0 : (double) heapHits / requests;
+        }
+
+        double hitRatio() {
+            long requests = requests();
+            return requests == 0 ? 0 : (double) (heapHits + diskHits) / requests;
+        }
+    }
+
+    private final long maxHeapBytes;
+    private final long maxDiskBytes;
+    private final Path directory;
+    private final LinkedHashMap<RenditionKey, byte[]> heap = new LinkedHashMap<>(64, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<RenditionKey, CompletableFuture<ByteBuffer>> inFlight = new ConcurrentHashMap<>();
+    private long heapBytes;
+    private long diskBytes;
+
+    private final LongAdder heapHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    RenditionCache(long maxHeapBytes, Path directory, long maxDiskBytes) {
+        this.maxHeapBytes = maxHeapBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            // Las variantes de ejecuciones anteriores siguen siendo válidas; los .tmp son escrituras a medias
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".bin")) {
+                        trackOnDisk(name, Files.size(file));
+                    } else if (name.endsWith(".tmp")) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se puede abrir la caché de variantes " + directory, e);
+        }
+    }
+
+    ByteBuffer get(RenditionKey key, Supplier<byte[]> render) {
+        byte[] cached = fromHeap(key);
+        if (cached != null) {
+            heapHits.increment();
+            return ByteBuffer.wrap(cached).asReadOnlyBuffer();
+        }
+        CompletableFuture<ByteBuffer> mine = new CompletableFuture<>();
+        CompletableFuture<ByteBuffer> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        try {
+            mine.complete(load(key, render));
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+        } catch (Error e) {
+            // También un OutOfMemoryError al renderizar: los que esperan en mine no pueden quedarse colgados
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+        return await(mine);
+    }
+
+    synchronized void invalidate(String mediaId) {
+        heap.entrySet().removeIf(entry -> {
+            if (!entry.getKey().mediaId().equals(mediaId)) {
+                return false;
+            }
+            heapBytes -= entry.getValue().length;
+            return true;
+        });
+        String prefix = RenditionKey.filePrefix(mediaId);
+        disk.entrySet().removeIf(entry -> {
+            if (!entry.getKey().startsWith(prefix)) {
+                return false;
+            }
+            diskBytes -= entry.getValue();
+            deleteQuietly(entry.getKey());
+            return true;
+        });
+    }
+
+    synchronized Stats stats() {
+        return new Stats(heapHits.sum(), diskHits.sum(), misses.sum(), coalesced.sum(), evictions.sum(),
+          heapBytes, diskBytes);
+    }
+
+    private ByteBuffer load(RenditionKey key, Supplier<byte[]> render) {
+        // Puede haberse completado otra carga entre la consulta a memoria y el registro en inFlight
+        byte[] cached = fromHeap(key);
+        if (cached != null) {
+            heapHits.increment();
+            return ByteBuffer.wrap(cached).asReadOnlyBuffer();
+        }
+        ByteBuffer mapped = fromDisk(key);
+        if (mapped != null) {
+            diskHits.increment();
+            byte[] bytes = new byte[mapped.remaining()];
+            mapped.duplicate().get(bytes);
+            toHeap(key, bytes);
+            return mapped;
+        }
+        misses.increment();
+        byte[] bytes = render.get();
+        toDisk(key, bytes);
+        toHeap(key, bytes);
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    private synchronized byte[] fromHeap(RenditionKey key) {
+        return heap.get(key);
+    }
+
+    private synchronized void toHeap(RenditionKey key, byte[] bytes) {
+        if (bytes.length > maxHeapBytes) {
+            return;
+        }
+        byte[] previous = heap.put(key, bytes);
+        heapBytes += bytes.length - (previous == null ? 0 : previous.length);
+        Iterator<Map.Entry<RenditionKey, byte[]>> eldest = heap.entrySet().iterator();
+        while (heapBytes > maxHeapBytes) {
+            heapBytes -= eldest.next().getValue().length;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private ByteBuffer fromDisk(RenditionKey key) {
+        String name = key.fileName();
+        synchronized (this) {
+            if (disk.get(name) == null) {
+                return null;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve(name), StandardOpenOption.READ)) {
+            // El mapping sigue siendo válido después de cerrar el canal
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            // Borrado por una expulsión concurrente: se trata como fallo de caché
+            return null;
+        }
+    }
+
+    private void toDisk(RenditionKey key, byte[] bytes) {
+        if (bytes.length > maxDiskBytes) {
+            return;
+        }
+        String name = key.fileName();
+        try {
+            Path temp = Files.createTempFile(directory, name, ".tmp");
+            Files.write(temp, bytes);
+            Files.move(temp, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // El nivel de disco es opcional: sin él la variante sigue sirviéndose desde memoria
+            return;
+        }
+        synchronized (this) {
+            trackOnDisk(name, bytes.length);
+        }
+    }
+
+    private void trackOnDisk(String name, long size) {
+        Long previous = disk.put(name, size);
+        diskBytes += size - (previous == null ? 0 : previous);
+        Iterator<Map.Entry<String, Long>> eldest = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes) {
+            Map.Entry<String, Long> evicted = eldest.next();
+            diskBytes -= evicted.getValue();
+            eldest.remove();
+            deleteQuietly(evicted.getKey());
+            evictions.increment();
+        }
+    }
+
+    private void deleteQuietly(String name) {
+        try {
+            Files.deleteIfExists(directory.resolve(name));
+        } catch (IOException e) {
+            // Se reintenta al sobrescribirla o en el próximo arranque
+        }
+    }
+
+    private static ByteBuffer await(CompletableFuture<ByteBuffer> future) {
+        try {
+            return future.join().duplicate();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.gigabyte.labs.liskov.ok;
+
+// Filtros de remuestreo, de más rápido a mejor calidad
+enum ResampleKernel {
+    NEAREST(0.5) {
+        @Override
+        double weight(double x) {
+            return x >= -0.5 && x < 0.5 ? 1 : 0;
+        }
+    },
+    BILINEAR(1.0) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            return x < 1 ? 1 - x : 0;
+        }
+    },
+    LANCZOS3(3.0) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            if (x >= 3) {
+                return 0;
+            }
+            if (x < 1e-9) {
+                return 1;
+            }
+            double px = Math.PI * x;
+            return 3 * Math.sin(px) * Math.sin(px / 3) / (px * px);
+        }
+    };
+
+    // Radio del filtro en píxeles de origen, antes de escalar para reducciones
+    final double support;
+
+    ResampleKernel(double support) {
+        this.support = support;
+    }
+
+    abstract double weight(double x);
+}
@@ -0,0 +1,7 @@
+package io.gigabyte.labs.lyfto;
+
+/**
+ * Esquema {@code Driver} de la API Lyfto; los nombres de los campos siguen a los del contrato.
+ */
+public record Driver(String id, String name, double rating, int edad) {
+}
@@ -0,0 +1,258 @@
+package io.gigabyte.labs.lyfto;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Índice espacial concurrente de conductores: una rejilla de celdas de tamaño fijo (como un
+ * geohash de precisión fija, pero con la fila y la columna empaquetadas en un long en vez de
+ * intercaladas, porque aquí no hacen falta búsquedas por prefijo).
+ * <p>
+ * No hay ningún candado global. Cada celda es un conjunto concurrente dentro de un
+ * {@link ConcurrentHashMap}, y la posición de cada conductor es un registro inmutable publicado
+ * con una escritura volátil. Una actualización dentro de la misma celda (el caso habitual cuando
+ * se envían posiciones cada pocos segundos) es solo esa escritura; cambiar de celda toca además
+ * las dos celdas afectadas. Las consultas k-nearest recorren anillos de celdas alrededor del
+ * origen y paran en cuanto ningún anillo más lejano puede mejorar el resultado.
+ * <p>
+ * La disponibilidad vive junto a la posición para que {@link #claim} sea un único CAS: dos
+ * emparejamientos concurrentes nunca se llevan al mismo conductor.
+ */
+public class DriverIndex {
+
+    private static final double KM_PER_DEGREE = Math.PI * Location.EARTH_RADIUS_KM / 180;
+
+    public record Candidate(String driverId, Location location, double distanceKm) {
+    }
+
+    public record Stats(int drivers, int cells, long updates, long cellChanges, long queries, long cellsVisited) {
+    }
+
+    // Se sustituye entero, así quien lo lee nunca ve latitud y celda de actualizaciones distintas.
+    // (x, y, z) es el punto en la esfera unidad: la cuerda entre dos puntos crece igual que la
+    // distancia sobre la superficie, así que ordenar por cuerda evita la trigonometría en las consultas
+    private record Position(double latitude, double longitude, long cell, double x, double y, double z) {
+
+        static Position of(Location location, long cell) {
+            double lat = Math.toRadians(location.latitude());
+            double lon = Math.toRadians(location.longitude());
+            double cosLat = Math.cos(lat);
+            return new Position(location.latitude(), location.longitude(), cell,
+              cosLat * Math.cos(lon), cosLat * Math.sin(lon), Math.sin(lat));
+        }
+
+        double chordSquared(Position other) {
+            double dx = x - other.x;
+            double dy = y - other.y;
+            double dz = z - other.z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    private record Nearby(Entry entry, Position position, double chordSquared) {
+    }
+
+    private static final class Entry {
+        final String driverId;
+        final AtomicBoolean available = new AtomicBoolean(true);
+        volatile Position position;
+
+        Entry(String driverId) {
+            this.driverId = driverId;
+        }
+    }
+
+    private final double cellDegrees;
+    // Ancho real de las columnas: 360 / lonCells, para que todas midan lo mismo también junto a ±180°
+    private final double lonCellDegrees;
+    private final int latCells;
+    private final int lonCells;
+    private final ConcurrentHashMap<String, Entry> drivers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Entry>> cells = new ConcurrentHashMap<>();
+
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder cellChanges = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder cellsVisited = new LongAdder();
+
+    // cellKm: lado de la celda medido sobre un meridiano; con ~1 km hay decenas de conductores por celda en una ciudad
+    public DriverIndex(double cellKm) {
+        if (!(cellKm > 0)) {
+            throw new IllegalArgumentException("cellKm must be positive");
+        }
+        this.cellDegrees = cellKm / KM_PER_DEGREE;
+        this.latCells = (int) Math.ceil(180 / cellDegrees) + 1;
+        this.lonCells = (int) Math.ceil(360 / cellDegrees);
+        this.lonCellDegrees = 360.0 / lonCells;
+    }
+
+    // Alta o actualización de posición; un conductor nuevo entra disponible
+    public void update(String driverId, Location location) {
+        Entry entry = drivers.computeIfAbsent(driverId, Entry::new);
+        long cell = cell(latIndex(location.latitude()), lonIndex(location.longitude()));
+        updates.increment();
+        // Candado por conductor: solo se disputa si llegan dos posiciones del mismo conductor a la vez
+        synchronized (entry) {
+            Position previous = entry.position;
+            entry.position = Position.of(location, cell);
+            if (previous != null && previous.cell() == cell) {
+                return;
+            }
+            // Primero se añade a la celda nueva: una consulta concurrente puede verlo en las dos,
+            // pero descarta la copia cuya celda no coincide con la posición actual
+            cells.compute(cell, (key, members) -> {
+                Set<Entry> set = members != null ? members : ConcurrentHashMap.newKeySet();
+                set.add(entry);
+                return set;
+            });
+            if (previous != null) {
+                leave(previous.cell(), entry);
+                cellChanges.increment();
+            }
+        }
+    }
+
+    public boolean remove(String driverId) {
+        Entry entry = drivers.remove(driverId);
+        if (entry == null) {
+            return false;
+        }
+        synchronized (entry) {
+            Position previous = entry.position;
+            entry.position = null;
+            if (previous != null) {
+                leave(previous.cell(), entry);
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(String driverId) {
+        return drivers.containsKey(driverId);
+    }
+
+    /**
+     * Hasta {@code k} conductores disponibles a menos de {@code maxKm} de {@code from}, del más
+     * cercano al más lejano. Es una foto sin bloqueo: un candidato puede haber sido reclamado o
+     * haberse movido un poco cuando se use, por eso el emparejamiento termina con {@link #claim}.
+     */
+    public List<Candidate> nearest(Location from, int k, double maxKm) {
+        queries.increment();
+        PriorityQueue<Nearby> best = new PriorityQueue<>(k + 1,
+          Comparator.comparingDouble(Nearby::chordSquared).reversed());
+        Position origin = Position.of(from, 0);
+        double maxChord = chord(maxKm);
+        int lat = latIndex(from.latitude());
+        int lon = lonIndex(from.longitude());
+        // Lado más corto de la celda en la zona de búsqueda (las celdas se estrechan hacia los polos)
+        double reachDegrees = maxKm / KM_PER_DEGREE + cellDegrees;
+        double edgeKm = KM_PER_DEGREE * Math.min(cellDegrees,
+          lonCellDegrees * Math.cos(Math.toRadians(Math.min(89.9, Math.abs(from.latitude()) + reachDegrees))));
+        int maxRing = (int) Math.min(lonCells / 2, Math.ceil(maxKm / edgeKm) + 1);
+        int visited = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Todo lo que hay en el anillo r está al menos a (r - 1) lados de celda del origen
+            double ringFloorKm = Math.max(0, ring - 1) * edgeKm;
+            double ringFloorChord = chord(ringFloorKm);
+            if (ringFloorKm > maxKm || best.size() == k && ringFloorChord * ringFloorChord >= best.peek().chordSquared()) {
+                break;
+            }
+            for (int dLat = -ring; dLat <= ring; dLat++) {
+                int row = lat + dLat;
+                if (row < 0 || row >= latCells) {
+                    continue;
+                }
+                // En las filas intermedias del anillo solo cuentan las dos columnas del borde
+                int step = Math.abs(dLat) == ring ? 1 : Math.max(1, 2 * ring);
+                for (int dLon = -ring; dLon <= ring; dLon += step) {
+                    long cell = cell(row, Math.floorMod(lon + dLon, lonCells));
+                    Set<Entry> members = cells.get(cell);
+                    visited++;
+                    if (members != null) {
+                        collect(members, cell, origin, k, maxChord * maxChord, best);
+                    }
+                }
+            }
+        }
+        cellsVisited.add(visited);
+        List<Nearby> sorted = new ArrayList<>(best);
+        sorted.sort(Comparator.comparingDouble(Nearby::chordSquared));
+        List<Candidate> result = new ArrayList<>(sorted.size());
+        for (Nearby nearby : sorted) {
+            Position position = nearby.position();
+            result.add(new Candidate(nearby.entry().driverId, new Location(position.latitude(), position.longitude()),
+              Location.distanceKm(from.latitude(), from.longitude(), position.latitude(), position.longitude())));
+        }
+        return result;
+    }
+
+    // Reserva atómica: true solo para el primer hilo que lo reclama mientras estaba disponible
+    public boolean claim(String driverId) {
+        Entry entry = drivers.get(driverId);
+        return entry != null && entry.available.compareAndSet(true, false);
+    }
+
+    public void release(String driverId) {
+        Entry entry = drivers.get(driverId);
+        if (entry != null) {
+            entry.available.set(true);
+        }
+    }
+
+    public int size() {
+        return drivers.size();
+    }
+
+    public Stats stats() {
+        return new Stats(drivers.size(), cells.size(), updates.sum(), cellChanges.sum(), queries.sum(), cellsVisited.sum());
+    }
+
+    private void collect(Set<Entry> members, long cell, Position origin, int k, double maxChordSquared,
+                         PriorityQueue<Nearby> best) {
+        for (Entry entry : members) {
+            Position position = entry.position;
+            if (position == null || position.cell() != cell || !entry.available.get()) {
+                continue;
+            }
+            double chordSquared = origin.chordSquared(position);
+            if (chordSquared > maxChordSquared || best.size() == k && chordSquared >= best.peek().chordSquared()) {
+                continue;
+            }
+            best.add(new Nearby(entry, position, chordSquared));
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+    }
+
+    // Quita la celda del mapa cuando se vacía, dentro del mismo compute que la modifica
+    private void leave(long cell, Entry entry) {
+        cells.computeIfPresent(cell, (key, members) -> {
+            members.remove(entry);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    // Cuerda en la esfera unidad que corresponde a una distancia sobre la superficie
+    private static double chord(double km) {
+        return 2 * Math.sin(Math.min(Math.PI, km / Location.EARTH_RADIUS_KM) / 2);
+    }
+
+    private int latIndex(double latitude) {
+        return (int) Math.floor((latitude + 90) / cellDegrees);
+    }
+
+    private int lonIndex(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / lonCellDegrees), lonCells);
+    }
+
+    private static long cell(int latIndex, int lonIndex) {
+        return (long) latIndex << 32 | lonIndex;
+    }
+}
@@ -0,0 +1,280 @@
+package io.gigabyte.labs.lyfto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lector JSON mínimo para los cuerpos de las peticiones, que son pequeños: devuelve un árbol de
+ * {@code Map<String, Object>}, {@code List<Object>}, {@code String}, {@code Long} (números sin
+ * parte decimal ni exponente), {@code Double}, {@code Boolean} y {@code null}.
+ * Cualquier error de sintaxis es una {@link IllegalArgumentException} con la posición.
+ */
+public final class JsonReader {
+
+    private static final int MAX_DEPTH = 64;
+
+    private final byte[] data;
+    private final int end;
+    private int position;
+    private int depth;
+
+    private JsonReader(byte[] data, int length) {
+        this.data = data;
+        this.end = length;
+    }
+
+    public static Object parse(byte[] data) {
+        return parse(data, data.length);
+    }
+
+    public static Object parse(byte[] data, int length) {
+        JsonReader reader = new JsonReader(data, length);
+        Object value = reader.value();
+        reader.skipWhitespace();
+        if (reader.position != reader.end) {
+            throw reader.error("trailing data");
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> parseObject(byte[] data) {
+        if (parse(data) instanceof Map<?, ?> object) {
+            return (Map<String, Object>) object;
+        }
+        throw new IllegalArgumentException("Expected a JSON object");
+    }
+
+    private Object value() {
+        skipWhitespace();
+        if (position == end) {
+            throw error("unexpected end");
+        }
+        return switch (data[position]) {
+            case '{' -> object();
+            case '[' -> array();
+            case '"' -> string();
+            case 't' -> literal("true", Boolean.TRUE);
+            case 'f' -> literal("false", Boolean.FALSE);
+            case 'n' -> literal("null", null);
+            default -> number();
+        };
+    }
+
+    private Map<String, Object> object() {
+        enter();
+        position++;
+        Map<String, Object> object = new LinkedHashMap<>();
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            depth--;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("expected a field name");
+            }
+            String name = string();
+            skipWhitespace();
+            expect(':');
+            object.put(name, value());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                depth--;
+                return object;
+            }
+        }
+    }
+
+    private List<Object> array() {
+        enter();
+        position++;
+        List<Object> array = new ArrayList<>();
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            depth--;
+            return array;
+        }
+        while (true) {
+            array.add(value());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                depth--;
+                return array;
+            }
+        }
+    }
+
+    private String string() {
+        position++;
+        int start = position;
+        // Camino rápido: sin escapes el string se decodifica de una vez desde los bytes
+        while (position < end && data[position] != '"' && data[position] != '\\') {
+            if ((data[position] & 0xFF) < 0x20) {
+                throw error("control character in string");
+            }
+            position++;
+        }
+        if (position < end && data[position] == '"') {
+            return new String(data, start, position++ - start, StandardCharsets.UTF_8);
+        }
+        StringBuilder text = new StringBuilder(new String(data, start, position - start, StandardCharsets.UTF_8));
+        while (true) {
+            if (position >= end) {
+                throw error("unterminated string");
+            }
+            byte b = data[position];
+            if (b == '"') {
+                position++;
+                return text.toString();
+            }
+            if (b == '\\') {
+                text.append(escape());
+                continue;
+            }
+            int runStart = position;
+            while (position < end && data[position] != '"' && data[position] != '\\') {
+                if ((data[position] & 0xFF) < 0x20) {
+                    throw error("control character in string");
+                }
+                position++;
+            }
+            text.append(new String(data, runStart, position - runStart, StandardCharsets.UTF_8));
+        }
+    }
+
+    private char escape() {
+        if (position + 1 >= end) {
+            throw error("unterminated escape");
+        }
+        byte kind = data[position + 1];
+        position += 2;
+        return switch (kind) {
+            case '"' -> '"';
+            case '\\' -> '\\';
+            case '/' -> '/';
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            case 'u' -> {
+                if (position + 4 > end) {
+                    throw error("truncated unicode escape");
+                }
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(data[position++], 16);
+                    if (digit < 0) {
+                        throw error("invalid unicode escape");
+                    }
+                    code = code << 4 | digit;
+                }
+                yield (char) code;
+            }
+            default -> throw error("invalid escape");
+        };
+    }
+
+    // Gramática de JSON: sin ceros a la izquierda, y fracción y exponente con al menos un dígito
+    private Object number() {
+        int start = position;
+        boolean decimal = false;
+        if (peek() == '-') {
+            position++;
+        }
+        if (peek() == '0') {
+            position++;
+            if (position < end && isDigit(data[position])) {
+                throw error("invalid number: leading zero");
+            }
+        } else {
+            digits();
+        }
+        if (peek() == '.') {
+            decimal = true;
+            position++;
+            digits();
+        }
+        if (peek() == 'e' || peek() == 'E') {
+            decimal = true;
+            position++;
+            if (peek() == '+' || peek() == '-') {
+                position++;
+            }
+            digits();
+        }
+        String text = new String(data, start, position - start, StandardCharsets.US_ASCII);
+        if (!decimal && position - start < 19) {
+            return Long.parseLong(text);
+        }
+        double value = Double.parseDouble(text);
+        if (Double.isInfinite(value)) {
+            throw error("invalid number " + text);
+        }
+        return value;
+    }
+
+    private void digits() {
+        if (position == end || !isDigit(data[position])) {
+            throw error("unexpected character");
+        }
+        while (position < end && isDigit(data[position])) {
+            position++;
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        for (int i = 0; i < word.length(); i++) {
+            if (position + i >= end || data[position + i] != word.charAt(i)) {
+                throw error("unexpected character");
+            }
+        }
+        position += word.length();
+        return value;
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw error("nesting deeper than " + MAX_DEPTH);
+        }
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private int peek() {
+        return position < end ? data[position] : -1;
+    }
+
+    private void skipWhitespace() {
+        while (position < end && (data[position] == ' ' || data[position] == '\n' || data[position] == '\r'
+          || data[position] == '\t')) {
+            position++;
+        }
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at offset " + position + ": " + message);
+    }
+}
@@ -0,0 +1,294 @@
+package io.gigabyte.labs.lyfto;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * Escritor JSON en streaming: codifica directamente a UTF-8 sobre un {@code byte[]} reutilizable,
+ * sin construir Strings intermedios. Cuando el buffer pasa de {@link #FLUSH_BYTES} se vacía en el
+ * {@link Sink}, así que una lista larga sale en trozos sin ocupar toda la respuesta en memoria.
+ * <p>
+ * Las instancias salen de un {@link Pool}: con un hilo virtual por petición un ThreadLocal no
+ * serviría para reutilizar buffers.
+ */
+final class JsonWriter {
+
+    static final int FLUSH_BYTES = 16 * 1024;
+    private static final int MAX_DEPTH = 64;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final long FIXED_SCALE = 1_000_000;
+
+    // Recibe cada trozo lleno; los bytes solo son válidos durante la llamada
+    interface Sink {
+        void write(byte[] bytes, int length) throws IOException;
+    }
+
+    private final byte[] buffer = new byte[FLUSH_BYTES + 1024];
+    private int position;
+    private Sink sink;
+    // Bit i: el contenedor de profundidad i ya tiene algún elemento, el siguiente lleva coma
+    private long hasElements;
+    private int depth;
+    private boolean afterName;
+
+    JsonWriter reset(Sink sink) {
+        this.sink = sink;
+        position = 0;
+        hasElements = 0;
+        depth = 0;
+        afterName = false;
+        return this;
+    }
+
+    // Bytes pendientes que todavía no se han entregado al sink
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int pending() {
+        return position;
+    }
+
+    JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    JsonWriter name(String name) throws IOException {
+        separator();
+        string(name);
+        put((byte) ':');
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        separator();
+        string(value);
+        return flushIfFull();
+    }
+
+    JsonWriter value(long value) throws IOException {
+        separator();
+        digits(value);
+        return flushIfFull();
+    }
+
+    // Los valores con hasta 6 decimales exactos (coordenadas, tarifas) se escriben sin pasar por
+    // Double.toString; el resto usa la representación más corta de Java
+    JsonWriter value(double value) throws IOException {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("JSON cannot represent " + value);
+        }
+        separator();
+        long scaled = Math.abs(value) < 9e12 ? Math.round(value * FIXED_SCALE) : 0;
+        if (scaled / (double) FIXED_SCALE == value && (scaled != 0 || value == 0)) {
+            if (scaled < 0) {
+                put((byte) '-');
+                scaled = -scaled;
+            }
+            digits(scaled / FIXED_SCALE);
+            long fraction = scaled % FIXED_SCALE;
+            if (fraction != 0) {
+                put((byte) '.');
+                long unit = FIXED_SCALE / 10;
+                while (fraction != 0) {
+                    put((byte) ('0' + fraction / unit));
+                    fraction %= unit;
+                    unit /= 10;
+                }
+            }
+        } else {
+            String text = Double.toString(value);
+            for (int i = 0; i < text.length(); i++) {
+                put((byte) text.charAt(i));
+            }
+        }
+        return flushIfFull();
+    }
+
+    JsonWriter value(boolean value) throws IOException {
+        separator();
+        ascii(value ? "true" : "false");
+        return flushIfFull();
+    }
+
+    JsonWriter nullValue() throws IOException {
+        separator();
+        ascii("null");
+        return flushIfFull();
+    }
+
+    // Omite el campo cuando el valor es null, como hace el contrato con los opcionales
+    JsonWriter field(String name, String value) throws IOException {
+        return value == null ? this : name(name).value(value);
+    }
+
+    JsonWriter field(String name, double value) throws IOException {
+        return name(name).value(value);
+    }
+
+    JsonWriter field(String name, long value) throws IOException {
+        return name(name).value(value);
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        separator();
+        if (depth == MAX_DEPTH - 1) {
+            throw new IllegalStateException("JSON nesting deeper than " + MAX_DEPTH);
+        }
+        put((byte) bracket);
+        depth++;
+        hasElements &= ~(1L << depth);
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        put((byte) bracket);
+        depth--;
+        return flushIfFull();
+    }
+
+    private void separator() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        long bit = 1L << depth;
+        if ((hasElements & bit) != 0) {
+            put((byte) ',');
+        }
+        hasElements |= bit;
+    }
+
+    private void string(String value) throws IOException {
+        put((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            if (position + 6 > buffer.length) {
+                flush();
+            }
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer[position++] = '\\';
+                buffer[position++] = (byte) c;
+            } else if (c < 0x20) {
+                buffer[position++] = '\\';
+                buffer[position++] = 'u';
+                buffer[position++] = '0';
+                buffer[position++] = '0';
+                buffer[position++] = HEX[c >> 4];
+                buffer[position++] = HEX[c & 0xF];
+            } else if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+              && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // Surrogate suelto: no es UTF-8 válido, se sustituye como hace String.getBytes
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        put((byte) '"');
+    }
+
+    private void digits(long value) {
+        if (value == Long.MIN_VALUE) {
+            ascii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int length = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            length++;
+        }
+        ensure(length);
+        for (int i = position + length - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += length;
+    }
+
+    private void ascii(String text) {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[position++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        buffer[position++] = b;
+    }
+
+    // El margen sobre FLUSH_BYTES cubre cualquier token que no sea un string; los strings se vacían solos
+    private void ensure(int bytes) {
+        if (position + bytes > buffer.length) {
+            throw new IllegalStateException("JSON token does not fit in the buffer");
+        }
+    }
+
+    private JsonWriter flushIfFull() throws IOException {
+        if (position >= FLUSH_BYTES) {
+            flush();
+        }
+        return this;
+    }
+
+    private void flush() throws IOException {
+        if (sink == null) {
+            throw new IllegalStateException("JSON document larger than " + buffer.length + " bytes and no sink");
+        }
+        sink.write(buffer, position);
+        position = 0;
+    }
+
+    static final class Pool {
+        private final int maxPooled;
+        private final ArrayDeque<JsonWriter> free = new ArrayDeque<>();
+
+        Pool(int maxPooled) {
+            this.maxPooled = maxPooled;
+        }
+
+        synchronized JsonWriter acquire(Sink sink) {
+            JsonWriter writer = free.pollLast();
+            return (writer != null ? writer : new JsonWriter()).reset(sink);
+        }
+
+        synchronized void release(JsonWriter writer) {
+            writer.sink = null;
+            if (free.size() < maxPooled) {
+                free.addLast(writer);
+            }
+        }
+    }
+}
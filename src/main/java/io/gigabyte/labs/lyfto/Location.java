@@ -0,0 +1,28 @@
+package io.gigabyte.labs.lyfto;
+
+/**
+ * Esquema {@code Location} de la API Lyfto (ver {@code error-sample.yaml}), en grados decimales.
+ */
+public record Location(double latitude, double longitude) {
+
+    static final double EARTH_RADIUS_KM = 6371.0088;
+
+    public Location {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Invalid location: " + latitude + ", " + longitude);
+        }
+    }
+
+    // Distancia de círculo máximo (haversine)
+    public double distanceKm(Location other) {
+        return distanceKm(latitude, longitude, other.latitude, other.longitude);
+    }
+
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+          + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,124 @@
+package io.gigabyte.labs.lyfto;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Conversión entre los esquemas de la API Lyfto y JSON: lectura desde el árbol de
+ * {@link JsonReader} y escritura en streaming con {@link JsonWriter}.
+ */
+final class LyftoJson {
+
+    private LyftoJson() {
+    }
+
+    static void write(JsonWriter json, Ride ride) throws IOException {
+        json.beginObject()
+          .field("id", ride.id())
+          .field("userId", ride.userId())
+          .field("driverId", ride.driverId())
+          .field("vehicleId", ride.vehicleId());
+        if (ride.startLocation() != null) {
+            write(json.name("startLocation"), ride.startLocation());
+        }
+        if (ride.endLocation() != null) {
+            write(json.name("endLocation"), ride.endLocation());
+        }
+        json.field("status", ride.status().value())
+          .field("fare", ride.fare())
+          .endObject();
+    }
+
+    static void write(JsonWriter json, Location location) throws IOException {
+        json.beginObject()
+          .field("latitude", location.latitude())
+          .field("longitude", location.longitude())
+          .endObject();
+    }
+
+    static void write(JsonWriter json, Driver driver) throws IOException {
+        json.beginObject()
+          .field("id", driver.id())
+          .field("name", driver.name())
+          .field("rating", driver.rating())
+          .field("edad", driver.edad())
+          .endObject();
+    }
+
+    static void write(JsonWriter json, User user) throws IOException {
+        json.beginObject()
+          .field("id", user.id())
+          .field("name", user.name())
+          .field("email", user.email())
+          .field("phone", user.phone())
+          .endObject();
+    }
+
+    static void write(JsonWriter json, Vehicle vehicle) throws IOException {
+        json.beginObject()
+          .field("id", vehicle.id())
+          .field("make", vehicle.make())
+          .field("model", vehicle.model())
+          .field("year", vehicle.year())
+          .field("licensePlate", vehicle.licensePlate())
+          .endObject();
+    }
+
+    static Location location(Object value, String field) {
+        if (!(value instanceof Map<?, ?> object)) {
+            throw new IllegalArgumentException(field + " must be a Location object");
+        }
+        return new Location(number(object, "latitude", true), number(object, "longitude", true));
+    }
+
+    static Driver driver(Map<String, Object> body, String id) {
+        return new Driver(id, text(body, "name"), number(body, "rating", false), integer(body, "edad"));
+    }
+
+    static User user(Map<String, Object> body, String id) {
+        return new User(id, text(body, "name"), text(body, "email"), text(body, "phone"));
+    }
+
+    static Vehicle vehicle(Map<String, Object> body, String id) {
+        return new Vehicle(id, text(body, "make"), text(body, "model"), integer(body, "year"),
+          text(body, "licensePlate"));
+    }
+
+    // Campos opcionales: ausente es null; presente con otro tipo es un error
+    static String text(Map<?, ?> body, String field) {
+        Object value = body.get(field);
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        throw new IllegalArgumentException(field + " must be a string");
+    }
+
+    static double number(Map<?, ?> body, String field, boolean required) {
+        Object value = body.get(field);
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value == null && !required) {
+            return 0;
+        }
+        throw new IllegalArgumentException(field + (value == null ? " is required" : " must be a number"));
+    }
+
+    // Fuera del rango de int es un error, no un valor truncado
+    static int integer(Map<?, ?> body, String field) {
+        Object value = body.get(field);
+        if (value == null) {
+            return 0;
+        }
+        boolean integral = value instanceof Long
+          || value instanceof Double number && number == Math.rint(number);
+        if (!integral) {
+            throw new IllegalArgumentException(field + " must be an integer");
+        }
+        double number = ((Number) value).doubleValue();
+        if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(field + " is out of range");
+        }
+        return ((Number) value).intValue();
+    }
+}
@@ -0,0 +1,262 @@
+package io.gigabyte.labs.lyfto;
+
+import io.gigabyte.labs.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga para {@link LyftoServer} con una mezcla de operaciones sobre todos los
+ * recursos. Informa, por endpoint, de peticiones por segundo, percentiles de latencia y status.
+ * <ul>
+ *   <li>{@code closed}: {@code N} clientes (hilos virtuales) lanzan peticiones una tras otra. Mide
+ *   la capacidad, pero si el servidor se frena los clientes también, y las colas no se ven.</li>
+ *   <li>{@code open}: llegan {@code N} operaciones por segundo a ritmo fijo, respondan o no. La
+ *   latencia se mide desde el instante en que tocaba enviar, así que incluye la espera cuando el
+ *   servidor no da abasto (sin la omisión coordinada del modo cerrado).</li>
+ * </ul>
+ * Arranca un servidor embebido salvo que se le pase una URL base. Antes de medir da de alta
+ * conductores con posición, usuarios y vehículos.
+ * <p>
+ * Uso: LyftoLoadTest closed|open [clientes|ops por segundo] [segundos] [baseUrl]
+ */
+public class LyftoLoadTest {
+
+    private static final int DRIVERS = 2_000;
+    private static final int USERS = 200;
+    private static final int VEHICLES = 50;
+    private static final int MAX_OUTSTANDING = 20_000;
+    private static final double MIN_LAT = 19.30;
+    private static final double MAX_LAT = 19.50;
+    private static final double MIN_LON = -99.25;
+    private static final double MAX_LON = -99.05;
+
+    // Mezcla de operaciones; el peso es sobre 100
+    private enum Operation {
+        CREATE_RIDE(20), GET_RIDE(15), LIST_RIDES_V2(2), GET_DRIVER(15), UPDATE_LOCATION(30), CREATE_USER(8),
+        GET_USER(5), LIST_VEHICLES(5);
+
+        final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+
+        static Operation pick(ThreadLocalRandom random) {
+            int ticket = random.nextInt(100);
+            for (Operation operation : values()) {
+                ticket -= operation.weight;
+                if (ticket < 0) {
+                    return operation;
+                }
+            }
+            return UPDATE_LOCATION;
+        }
+    }
+
+    private record Endpoint(LatencyHistogram latency, Map<Integer, LongAdder> statuses) {
+    }
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+      .connectTimeout(Duration.ofSeconds(5)).build();
+    private final String baseUrl;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+    // Últimos viajes creados, para las consultas por id
+    private final AtomicReferenceArray<String> recentRides = new AtomicReferenceArray<>(1_024);
+    private final AtomicLong ridesCreated = new AtomicLong();
+
+    private LyftoLoadTest(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean open = args.length > 0 && args[0].equals("open");
+        int load = args.length > 1 ? Integer.parseInt(args[1]) : open ? 2_000 : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        LyftoServer server = null;
+        String baseUrl;
+        if (args.length > 3) {
+            baseUrl = args[3];
+        } else {
+            server = LyftoServer.start(new InetSocketAddress("127.0.0.1", 0), new RideService());
+            baseUrl = "http://127.0.0.1:" + server.port();
+        }
+
+        LyftoLoadTest test = new LyftoLoadTest(baseUrl);
+        test.seed();
+        long start = System.nanoTime();
+        long deadline = start + Duration.ofSeconds(seconds).toNanos();
+        long dropped = open ? test.openLoop(load, deadline) : test.closedLoop(load, deadline);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%s, %s, %.1f s%n", open ? "lazo abierto" : "lazo cerrado",
+          open ? load + " ops/s objetivo" : load + " clientes", elapsed);
+        test.report(elapsed);
+        System.out.println("errores de red=" + test.errors.sum() + (open ? " descartadas=" + dropped : ""));
+        if (server != null) {
+            System.out.println(server.stats());
+            System.out.println(server.rides().stats());
+            server.close();
+        }
+    }
+
+    private long closedLoop(int clients, long deadline) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                    run(Operation.pick(ThreadLocalRandom.current()), System.nanoTime());
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return 0;
+    }
+
+    // Cada operación sale en su propio hilo virtual a su hora; si hay demasiadas pendientes se descarta
+    private long openLoop(int perSecond, long deadline) throws InterruptedException {
+        long interval = 1_000_000_000L / perSecond;
+        LongAdder outstanding = new LongAdder();
+        long dropped = 0;
+        List<Thread> last = new ArrayList<>();
+        long next = System.nanoTime();
+        while (next < deadline) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (outstanding.sum() >= MAX_OUTSTANDING) {
+                dropped++;
+            } else {
+                long intended = next;
+                outstanding.increment();
+                Thread thread = Thread.ofVirtual().start(() -> {
+                    try {
+                        run(Operation.pick(ThreadLocalRandom.current()), intended);
+                    } finally {
+                        outstanding.decrement();
+                    }
+                });
+                if (deadline - next < 5_000_000_000L) {
+                    last.add(thread);
+                }
+            }
+            next += interval;
+        }
+        for (Thread thread : last) {
+            thread.join();
+        }
+        return dropped;
+    }
+
+    private void run(Operation operation, long intended) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case CREATE_RIDE -> {
+                String body = "{\"userId\":\"user_" + (1 + random.nextInt(USERS)) + "\",\"startLocation\":" + location(random)
+                  + ",\"endLocation\":" + location(random) + "}";
+                HttpResponse<byte[]> created = call("POST /rides", "POST", "/rides", body, intended);
+                if (created != null && created.statusCode() == 201) {
+                    String rideId = (String) JsonReader.parseObject(created.body()).get("id");
+                    recentRides.set((int) (ridesCreated.getAndIncrement() % recentRides.length()), rideId);
+                    // Se completa enseguida para devolver el conductor al conjunto de libres
+                    call("PUT /rides/{id}", "PUT", "/rides/" + rideId, "{\"status\":\"in_progress\"}", System.nanoTime());
+                    call("PUT /rides/{id}", "PUT", "/rides/" + rideId, "{\"status\":\"completed\"}", System.nanoTime());
+                }
+            }
+            case GET_RIDE -> {
+                long created = ridesCreated.get();
+                String rideId = created == 0 ? null
+                  : recentRides.get((int) (random.nextLong(created) % recentRides.length()));
+                if (rideId != null) {
+                    call("GET /rides/{id}", "GET", "/rides/" + rideId, null, intended);
+                }
+            }
+            case LIST_RIDES_V2 -> call("GET /v2/rides", "GET", "/v2/rides", null, intended);
+            case GET_DRIVER -> call("GET /drivers/{id}", "GET", "/drivers/driver_" + random.nextInt(DRIVERS), null, intended);
+            case UPDATE_LOCATION -> call("PUT /drivers/{id}/location", "PUT",
+              "/drivers/driver_" + random.nextInt(DRIVERS) + "/location", location(random), intended);
+            case CREATE_USER -> call("POST /users", "POST", "/users",
+              "{\"name\":\"Usuario\",\"email\":\"usuario@example.com\",\"phone\":\"+521234567890\"}", intended);
+            case GET_USER -> call("GET /users/{id}", "GET", "/users/user_" + (1 + random.nextInt(USERS)), null, intended);
+            case LIST_VEHICLES -> call("GET /vehicles", "GET", "/vehicles", null, intended);
+        }
+    }
+
+    // Devuelve null si falla la red; la latencia cuenta desde intended
+    private HttpResponse<byte[]> call(String endpoint, String method, String path, String body, long intended) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+        if (body != null) {
+            request.header("Content-Type", "application/json").method(method, HttpRequest.BodyPublishers.ofString(body));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        try {
+            HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            Endpoint stats = endpoints.computeIfAbsent(endpoint,
+              e -> new Endpoint(new LatencyHistogram(), new ConcurrentHashMap<>()));
+            stats.latency().recordNanos(System.nanoTime() - intended);
+            stats.statuses().computeIfAbsent(response.statusCode(), s -> new LongAdder()).increment();
+            return response;
+        } catch (IOException e) {
+            errors.increment();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void seed() {
+        long now = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < DRIVERS; i++) {
+            call("seed", "POST", "/drivers", "{\"id\":\"driver_" + i + "\",\"name\":\"Conductor " + i
+              + "\",\"rating\":4.8,\"edad\":30}", now);
+            call("seed", "PUT", "/drivers/driver_" + i + "/location", location(random), now);
+        }
+        for (int i = 1; i <= USERS; i++) {
+            call("seed", "POST", "/users", "{\"id\":\"user_" + i + "\",\"name\":\"Usuario " + i + "\"}", now);
+        }
+        for (int i = 1; i <= VEHICLES; i++) {
+            call("seed", "POST", "/vehicles", "{\"id\":\"vehicle_" + i
+              + "\",\"make\":\"Toyota\",\"model\":\"Camry\",\"year\":2020,\"licensePlate\":\"ABC" + i + "\"}", now);
+        }
+        endpoints.clear();
+    }
+
+    private void report(double elapsed) {
+        long total = 0;
+        for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+            LatencyHistogram latency = entry.getValue().latency();
+            total += latency.count();
+            System.out.printf("  %-28s %9.0f req/s  p50=%dus p99=%dus p99.9=%dus  status=%s%n", entry.getKey(),
+              latency.count() / elapsed, latency.percentileMicros(50), latency.percentileMicros(99),
+              latency.percentileMicros(99.9), entry.getValue().statuses());
+        }
+        System.out.printf("  %-28s %9.0f req/s%n", "total", total / elapsed);
+    }
+
+    private static String location(ThreadLocalRandom random) {
+        return "{\"latitude\":" + random.nextDouble(MIN_LAT, MAX_LAT) + ",\"longitude\":"
+          + random.nextDouble(MIN_LON, MAX_LON) + "}";
+    }
+}
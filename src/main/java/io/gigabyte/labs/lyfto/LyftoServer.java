@@ -0,0 +1,383 @@
+package io.gigabyte.labs.lyfto;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.gigabyte.labs.lyfto.validation.LyftoValidators;
+import io.gigabyte.labs.lyfto.validation.PayloadValidator;
+import io.gigabyte.labs.metrics.Metrics;
+import io.gigabyte.labs.metrics.MetricsEndpoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Servidor embebido de la API Lyfto ({@code error-sample.yaml}) sobre el HttpServer del JDK, con
+ * un hilo virtual por petición y todo en memoria: {@code /rides} y {@code /v2/rides} (mismo
+ * contrato), {@code /users}, {@code /drivers} y {@code /vehicles}, cada uno con alta, listado,
+ * consulta y actualización por id.
+ * <p>
+ * Fuera del contrato, {@code PUT /drivers/{driverId}/location} recibe un {@code Location}: sin
+ * posición un conductor no entra en el emparejamiento de {@link RideService}.
+ * {@code GET /metrics} devuelve las métricas por etapa de {@link Metrics} en formato Prometheus.
+ * <p>
+ * Las respuestas se codifican con {@link JsonWriter} sobre buffers reutilizados. Si caben en uno
+ * se envían con {@code Content-Length}; si no (listados largos), se envían en chunks según se
+ * llenan, sin tener nunca la respuesta entera en memoria.
+ * <p>
+ * Los cuerpos de las peticiones se validan contra el contrato con los validadores generados en el
+ * build ({@link LyftoValidators}) antes de parsearlos; un 400 indica el JSON pointer del primer
+ * campo que no cumple.
+ * <p>
+ * Errores: 400 cuerpo inválido, 404 recurso o ruta inexistente, 405 método no soportado,
+ * 409 transición de estado no permitida, 413 cuerpo demasiado grande, 503 sin conductores libres.
+ */
+public class LyftoServer implements AutoCloseable {
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final String NO_DELAY = "sun.net.httpserver.nodelay";
+    private static final PayloadValidator LOCATION = LyftoValidators.schema("Location");
+    private static final PayloadValidator CREATE_RIDE = LyftoValidators.requestBody("POST", "/rides");
+    private static final PayloadValidator UPDATE_RIDE = LyftoValidators.requestBody("PUT", "/rides/{rideId}");
+
+    public record Stats(long requests, long clientErrors, long serverErrors, long streamedResponses) {
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Encoder<T> {
+        void write(JsonWriter json, T value) throws IOException;
+    }
+
+    // Un recurso CRUD del contrato: cómo se busca, lista, guarda, valida y lee del cuerpo y escribe
+    private record Resource<T>(String idPrefix, AtomicLong sequence, Function<String, Optional<T>> find,
+                               Supplier<Collection<T>> all, UnaryOperator<T> save, PayloadValidator schema,
+                               BiFunction<Map<String, Object>, String, T> read, Encoder<T> encoder) {
+    }
+
+    private static final class HttpError extends RuntimeException {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final RideService rides;
+    private final JsonWriter.Pool writers = new JsonWriter.Pool(256);
+    private final Resource<User> userResource;
+    private final Resource<Driver> driverResource;
+    private final Resource<Vehicle> vehicleResource;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder streamed = new LongAdder();
+
+    private LyftoServer(HttpServer server, RideService rides) {
+        this.server = server;
+        this.rides = rides;
+        Map<String, User> users = new ConcurrentHashMap<>();
+        Map<String, Vehicle> vehicles = new ConcurrentHashMap<>();
+        this.userResource = new Resource<>("user_", new AtomicLong(), id -> Optional.ofNullable(users.get(id)),
+          users::values, user -> {
+              users.put(user.id(), user);
+              return user;
+          }, LyftoValidators.schema("User"), LyftoJson::user, LyftoJson::write);
+        this.driverResource = new Resource<>("driver_", new AtomicLong(), rides::driver, rides::drivers,
+          rides::saveDriver, LyftoValidators.schema("Driver"), LyftoJson::driver, LyftoJson::write);
+        this.vehicleResource = new Resource<>("vehicle_", new AtomicLong(), id -> Optional.ofNullable(vehicles.get(id)),
+          vehicles::values, vehicle -> {
+              vehicles.put(vehicle.id(), vehicle);
+              return vehicle;
+          }, LyftoValidators.schema("Vehicle"), LyftoJson::vehicle, LyftoJson::write);
+    }
+
+    public static LyftoServer start(InetSocketAddress address, RideService rides) {
+        // El HttpServer escribe cabeceras y cuerpo por separado; con Nagle activo el cuerpo espera al
+        // ACK retardado del cliente (~40 ms por respuesta). Se lee al crear el primer HttpServer de la JVM
+        if (System.getProperty(NO_DELAY) == null) {
+            System.setProperty(NO_DELAY, "true");
+        }
+        try {
+            HttpServer http = HttpServer.create(address, 1_024);
+            LyftoServer lyfto = new LyftoServer(http, rides);
+            http.createContext("/", lyfto::handle);
+            http.createContext("/metrics", MetricsEndpoint.handler(Metrics.global()));
+            http.setExecutor(lyfto.executor);
+            http.start();
+            return lyfto;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start Lyfto server on " + address, e);
+        }
+    }
+
+    // Uso: LyftoServer [port]
+    public static void main(String[] args) throws InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        LyftoServer server = start(new InetSocketAddress(port), new RideService());
+        System.out.println("Lyfto API en http://localhost:" + server.port());
+        Thread.currentThread().join();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public RideService rides() {
+        return rides;
+    }
+
+    public Stats stats() {
+        return new Stats(requests.sum(), clientErrors.sum(), serverErrors.sum(), streamed.sum());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        Response response = new Response(exchange);
+        try {
+            route(exchange, response);
+        } catch (HttpError e) {
+            error(response, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            error(response, 400, e.getMessage());
+        } catch (NoSuchElementException e) {
+            error(response, 404, e.getMessage());
+        } catch (IllegalStateException e) {
+            error(response, 503, e.getMessage());
+        } catch (RuntimeException e) {
+            error(response, 500, e.toString());
+        } finally {
+            // close() terminaría el chunked con el chunk final y el cliente daría por bueno un JSON cortado
+            if (!response.aborted) {
+                exchange.close();
+            }
+        }
+    }
+
+    private void route(HttpExchange exchange, Response response) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String[] parts = segments(path);
+        if (parts.length >= 2 && parts[0].equals("v2") && parts[1].equals("rides")) {
+            rides(exchange, response, parts, 2);
+            return;
+        }
+        switch (parts.length == 0 ? "" : parts[0]) {
+            case "rides" -> rides(exchange, response, parts, 1);
+            case "users" -> crud(exchange, response, parts, userResource);
+            case "vehicles" -> crud(exchange, response, parts, vehicleResource);
+            case "drivers" -> {
+                if (parts.length == 3 && parts[2].equals("location")) {
+                    requireMethod(exchange, "PUT");
+                    rides.updateDriverLocation(parts[1], LyftoJson.location(readBody(exchange, LOCATION), "body"));
+                    send(response, 204, null);
+                } else {
+                    crud(exchange, response, parts, driverResource);
+                }
+            }
+            default -> throw new HttpError(404, "No route for " + path);
+        }
+    }
+
+    private void rides(HttpExchange exchange, Response response, String[] parts, int from) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (parts.length == from) {
+            if (method.equals("POST")) {
+                Map<String, Object> body = readBody(exchange, CREATE_RIDE);
+                Ride ride = rides.createRide(LyftoJson.text(body, "userId"),
+                  LyftoJson.location(body.get("startLocation"), "startLocation"),
+                  LyftoJson.location(body.get("endLocation"), "endLocation"));
+                send(response, 201, json -> LyftoJson.write(json, ride));
+            } else {
+                requireMethod(exchange, "GET");
+                sendList(response, rides.rides(), LyftoJson::write);
+            }
+        } else if (parts.length == from + 1) {
+            String rideId = parts[from];
+            if (method.equals("PUT")) {
+                String status = LyftoJson.text(readBody(exchange, UPDATE_RIDE), "status");
+                if (status == null) {
+                    throw new IllegalArgumentException("status is required");
+                }
+                RideStatus next = RideStatus.fromValue(status);
+                Ride ride;
+                try {
+                    ride = rides.updateStatus(rideId, next);
+                } catch (IllegalArgumentException e) {
+                    throw new HttpError(409, e.getMessage());
+                }
+                send(response, 200, json -> LyftoJson.write(json, ride));
+            } else {
+                requireMethod(exchange, "GET");
+                Ride ride = rides.ride(rideId).orElseThrow(() -> new NoSuchElementException("Unknown ride: " + rideId));
+                send(response, 200, json -> LyftoJson.write(json, ride));
+            }
+        } else {
+            throw new HttpError(404, "No route for " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private <T> void crud(HttpExchange exchange, Response response, String[] parts, Resource<T> resource)
+      throws IOException {
+        String method = exchange.getRequestMethod();
+        if (parts.length == 1) {
+            if (method.equals("POST")) {
+                Map<String, Object> body = readBody(exchange, resource.schema());
+                String id = LyftoJson.text(body, "id");
+                T created = resource.save().apply(resource.read().apply(body,
+                  id != null ? id : resource.idPrefix() + resource.sequence().incrementAndGet()));
+                send(response, 201, json -> resource.encoder().write(json, created));
+            } else {
+                requireMethod(exchange, "GET");
+                sendList(response, resource.all().get(), resource.encoder());
+            }
+        } else if (parts.length == 2) {
+            String id = parts[1];
+            T existing = resource.find().apply(id)
+              .orElseThrow(() -> new NoSuchElementException("Unknown " + parts[0] + " id: " + id));
+            if (method.equals("PUT")) {
+                T updated = resource.save().apply(resource.read().apply(readBody(exchange, resource.schema()), id));
+                send(response, 200, json -> resource.encoder().write(json, updated));
+            } else {
+                requireMethod(exchange, "GET");
+                send(response, 200, json -> resource.encoder().write(json, existing));
+            }
+        } else {
+            throw new HttpError(404, "No route for " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private <T> void sendList(Response response, Collection<T> items, Encoder<T> encoder) throws IOException {
+        send(response, 200, json -> {
+            json.beginArray();
+            for (T item : items) {
+                encoder.write(json, item);
+            }
+            json.endArray();
+        });
+    }
+
+    // body null: respuesta sin cuerpo
+    private void send(Response response, int status, Body body) throws IOException {
+        if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        }
+        response.status = status;
+        if (body == null) {
+            response.start(-1);
+            return;
+        }
+        JsonWriter json = writers.acquire(response);
+        try {
+            body.write(json);
+            if (!response.started) {
+                response.start(json.pending());
+            }
+            response.out.write(json.buffer(), 0, json.pending());
+        } finally {
+            writers.release(json);
+        }
+    }
+
+    // Si la respuesta ya empezó a salir en chunks no se puede cambiar el status: se corta la conexión.
+    // La excepción llega al HttpServer, que cierra el socket sin escribir el chunk final.
+    private void error(Response response, int status, String message) throws IOException {
+        if (response.started) {
+            serverErrors.increment();
+            response.aborted = true;
+            throw new IOException("Response aborted after streaming started: " + message);
+        }
+        send(response, status, json -> json.beginObject().field("error", message).endObject());
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange, PayloadValidator schema) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new HttpError(413, "Request body larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            schema.validate(body);
+            return JsonReader.parseObject(body);
+        }
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new HttpError(405, exchange.getRequestMethod() + " not allowed on " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private static String[] segments(String path) {
+        List<String> parts = new ArrayList<>(4);
+        for (String part : path.split("/")) {
+            if (!part.isEmpty()) {
+                parts.add(part);
+            }
+        }
+        return parts.toArray(String[]::new);
+    }
+
+    // Los cabezales se envían con el primer chunk lleno o, si no lo hay, con la longitud exacta
+    private final class Response implements JsonWriter.Sink {
+        private final HttpExchange exchange;
+        int status = 200;
+        boolean started;
+        boolean aborted;
+        OutputStream out;
+
+        Response(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        @Override
+        public void write(byte[] bytes, int length) throws IOException {
+            if (!started) {
+                streamed.increment();
+                start(0);
+            }
+            out.write(bytes, 0, length);
+        }
+
+        // length: 0 para chunked, -1 sin cuerpo
+        void start(long length) throws IOException {
+            if (length >= 0) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+            }
+            exchange.sendResponseHeaders(status, length);
+            out = exchange.getResponseBody();
+            started = true;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package io.gigabyte.labs.lyfto;
+
+/**
+ * Esquema {@code Ride} de la API Lyfto. Es inmutable: un cambio de estado produce un nuevo Ride.
+ */
+public record Ride(String id, String userId, String driverId, String vehicleId,
+                   Location startLocation, Location endLocation, RideStatus status, double fare) {
+
+    Ride withStatus(RideStatus next) {
+        return new Ride(id, userId, driverId, vehicleId, startLocation, endLocation, next, fare);
+    }
+}
@@ -0,0 +1,147 @@
+package io.gigabyte.labs.lyfto;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Creación de viajes de la API Lyfto ({@code POST /rides}): empareja el {@code startLocation} con
+ * el conductor disponible más cercano del {@link DriverIndex} y lo reserva hasta que el viaje
+ * termina o se cancela. Todo vive en memoria.
+ * <p>
+ * El emparejamiento pide varios candidatos y los intenta reservar por orden de distancia; si otro
+ * viaje se adelanta con todos, vuelve a consultar. Así la consulta no necesita bloquear el índice.
+ */
+public class RideService {
+
+    private static final int CANDIDATES = 8;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final double BASE_FARE = 2.50;
+    private static final double FARE_PER_KM = 1.20;
+
+    public record Stats(long ridesCreated, long noDriver, long claimConflicts) {
+    }
+
+    private final DriverIndex index;
+    private final double searchRadiusKm;
+    private final Map<String, Driver> drivers = new ConcurrentHashMap<>();
+    private final Map<String, Ride> rides = new ConcurrentHashMap<>();
+    private final AtomicLong rideSequence = new AtomicLong();
+
+    private final LongAdder ridesCreated = new LongAdder();
+    private final LongAdder noDriver = new LongAdder();
+    private final LongAdder claimConflicts = new LongAdder();
+
+    public RideService(DriverIndex index, double searchRadiusKm) {
+        this.index = index;
+        this.searchRadiusKm = searchRadiusKm;
+    }
+
+    // Celdas de 1 km y búsqueda en un radio de 10 km
+    public RideService() {
+        this(new DriverIndex(1.0), 10.0);
+    }
+
+    public Driver registerDriver(Driver driver, Location location) {
+        drivers.put(driver.id(), driver);
+        index.update(driver.id(), location);
+        return driver;
+    }
+
+    // Alta o cambio del perfil; el conductor no entra en el emparejamiento hasta que envía su posición
+    public Driver saveDriver(Driver driver) {
+        drivers.put(driver.id(), driver);
+        return driver;
+    }
+
+    public void updateDriverLocation(String driverId, Location location) {
+        if (!drivers.containsKey(driverId)) {
+            throw new NoSuchElementException("Unknown driver: " + driverId);
+        }
+        index.update(driverId, location);
+    }
+
+    public Optional<Driver> driver(String driverId) {
+        return Optional.ofNullable(drivers.get(driverId));
+    }
+
+    public Collection<Driver> drivers() {
+        return drivers.values();
+    }
+
+    /**
+     * Crea un viaje {@code requested} con el conductor libre más cercano ya reservado.
+     *
+     * @throws IllegalStateException si no hay ningún conductor libre dentro del radio de búsqueda
+     */
+    public Ride createRide(String userId, Location start, Location end) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            List<DriverIndex.Candidate> candidates = index.nearest(start, CANDIDATES, searchRadiusKm);
+            if (candidates.isEmpty()) {
+                break;
+            }
+            for (DriverIndex.Candidate candidate : candidates) {
+                if (index.claim(candidate.driverId())) {
+                    Ride ride = new Ride("ride_" + rideSequence.incrementAndGet(), userId, candidate.driverId(), null,
+                      start, end, RideStatus.REQUESTED, fare(start, end));
+                    rides.put(ride.id(), ride);
+                    ridesCreated.increment();
+                    return ride;
+                }
+                claimConflicts.increment();
+            }
+        }
+        noDriver.increment();
+        throw new IllegalStateException("No driver available within " + searchRadiusKm + " km");
+    }
+
+    public Optional<Ride> ride(String rideId) {
+        return Optional.ofNullable(rides.get(rideId));
+    }
+
+    public Collection<Ride> rides() {
+        return rides.values();
+    }
+
+    /**
+     * Cambia el estado de un viaje ({@code PUT /rides/{rideId}}); al completarlo o cancelarlo el
+     * conductor vuelve a estar disponible.
+     *
+     * @throws NoSuchElementException   si el viaje no existe
+     * @throws IllegalArgumentException si la transición no está permitida
+     */
+    public Ride updateStatus(String rideId, RideStatus next) {
+        Ride updated = rides.computeIfPresent(rideId, (id, ride) -> {
+            if (!ride.status().canMoveTo(next)) {
+                throw new IllegalArgumentException("Cannot move ride " + id + " from " + ride.status().value()
+                  + " to " + next.value());
+            }
+            return ride.withStatus(next);
+        });
+        if (updated == null) {
+            throw new NoSuchElementException("Unknown ride: " + rideId);
+        }
+        if (next.isFinished()) {
+            index.release(updated.driverId());
+        }
+        return updated;
+    }
+
+    public DriverIndex index() {
+        return index;
+    }
+
+    public Stats stats() {
+        return new Stats(ridesCreated.sum(), noDriver.sum(), claimConflicts.sum());
+    }
+
+    private static double fare(Location start, Location end) {
+        double fare = BASE_FARE + FARE_PER_KM * start.distanceKm(end);
+        return Math.round(fare * 100) / 100.0;
+    }
+}
@@ -0,0 +1,43 @@
+package io.gigabyte.labs.lyfto;
+
+/**
+ * Estados de un {@link Ride}; {@link #value()} es el literal del contrato.
+ */
+public enum RideStatus {
+    REQUESTED("requested"),
+    IN_PROGRESS("in_progress"),
+    COMPLETED("completed"),
+    CANCELLED("cancelled");
+
+    private final String value;
+
+    RideStatus(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public static RideStatus fromValue(String value) {
+        for (RideStatus status : values()) {
+            if (status.value.equals(value)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown ride status: " + value);
+    }
+
+    // requested -> in_progress -> completed; se puede cancelar mientras no haya terminado
+    boolean canMoveTo(RideStatus next) {
+        return switch (this) {
+            case REQUESTED -> next == IN_PROGRESS || next == CANCELLED;
+            case IN_PROGRESS -> next == COMPLETED || next == CANCELLED;
+            case COMPLETED, CANCELLED -> false;
+        };
+    }
+
+    boolean isFinished() {
+        return this == COMPLETED || this == CANCELLED;
+    }
+}
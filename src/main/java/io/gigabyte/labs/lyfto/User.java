@@ -0,0 +1,7 @@
+package io.gigabyte.labs.lyfto;
+
+/**
+ * Esquema {@code User} de la API Lyfto.
+ */
+public record User(String id, String name, String email, String phone) {
+}
@@ -0,0 +1,7 @@
+package io.gigabyte.labs.lyfto;
+
+/**
+ * Esquema {@code Vehicle} de la API Lyfto.
+ */
+public record Vehicle(String id, String make, String model, int year, String licensePlate) {
+}
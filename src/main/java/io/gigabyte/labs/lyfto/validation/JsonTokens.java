@@ -0,0 +1,394 @@
+package io.gigabyte.labs.lyfto.validation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Cursor sobre los tokens de un documento JSON para los validadores generados: avanza una sola vez
+ * por los bytes comprobando la sintaxis y el tipo de cada valor, sin construir árbol ni Strings.
+ * Los nombres de campo y los valores de los enums se comparan como bytes UTF-8; solo los que
+ * llevan secuencias de escape se decodifican antes de comparar.
+ * <p>
+ * Uso típico: {@code beginObject(); while (nextField()) { if (nameIs(ID)) string(); else skipValue(); }}.
+ * Cualquier error lanza {@link JsonValidationException} con la posición en bytes.
+ */
+public final class JsonTokens {
+
+    private static final int MAX_DEPTH = 64;
+
+    private final byte[] data;
+    private final int end;
+    private int position;
+    private int depth;
+    // Justo después de '{' o '[': el siguiente elemento no va precedido de coma
+    private boolean afterBegin;
+
+    // Último string leído (nombre de campo o valor), como rango de bytes sin escapes decodificados
+    private int stringStart;
+    private int stringEnd;
+    private boolean stringEscaped;
+    private int nameStart;
+    private int nameEnd;
+    private byte[] decodedName;
+
+    public JsonTokens(byte[] data, int length) {
+        this.data = data;
+        this.end = length;
+    }
+
+    public static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void beginObject() {
+        skipWhitespace();
+        if (peek() != '{') {
+            throw typeError("object");
+        }
+        position++;
+        enter();
+        afterBegin = true;
+    }
+
+    // Deja el cursor en el valor del siguiente campo; false al llegar a '}'
+    public boolean nextField() {
+        skipWhitespace();
+        if (!separator('}')) {
+            return false;
+        }
+        if (peek() != '"') {
+            throw syntaxError("expected a field name");
+        }
+        scanString();
+        nameStart = stringStart;
+        nameEnd = stringEnd;
+        decodedName = stringEscaped ? decode(stringStart, stringEnd) : null;
+        skipWhitespace();
+        if (peek() != ':') {
+            throw syntaxError("expected ':'");
+        }
+        position++;
+        return true;
+    }
+
+    public boolean nameIs(byte[] name) {
+        if (decodedName != null) {
+            return Arrays.equals(decodedName, name);
+        }
+        return Arrays.equals(data, nameStart, nameEnd, name, 0, name.length);
+    }
+
+    public void beginArray() {
+        skipWhitespace();
+        if (peek() != '[') {
+            throw typeError("array");
+        }
+        position++;
+        enter();
+        afterBegin = true;
+    }
+
+    // Deja el cursor en el siguiente elemento; false al llegar a ']'
+    public boolean nextElement() {
+        skipWhitespace();
+        return separator(']');
+    }
+
+    public void string() {
+        skipWhitespace();
+        if (peek() != '"') {
+            throw typeError("string");
+        }
+        scanString();
+    }
+
+    // allowed: los valores admitidos, ya en UTF-8; description se usa en el mensaje de error
+    public void stringIn(byte[][] allowed, String description) {
+        int start = skipWhitespaceAndMark();
+        string();
+        byte[] decoded = stringEscaped ? decode(stringStart, stringEnd) : null;
+        for (byte[] value : allowed) {
+            if (decoded != null ? Arrays.equals(decoded, value)
+              : Arrays.equals(data, stringStart, stringEnd, value, 0, value.length)) {
+                return;
+            }
+        }
+        throw new JsonValidationException("must be one of " + description, start);
+    }
+
+    public void number() {
+        skipWhitespace();
+        if (!startsNumber()) {
+            throw typeError("number");
+        }
+        scanNumber();
+    }
+
+    // Acepta 3, 3.0 y 3e2 (valores enteros), no 3.5
+    public void integer() {
+        skipWhitespace();
+        if (!startsNumber()) {
+            throw typeError("integer");
+        }
+        int start = position;
+        if (!scanNumber()) {
+            double value = Double.parseDouble(new String(data, start, position - start, StandardCharsets.US_ASCII));
+            if (value != Math.rint(value) || Double.isInfinite(value)) {
+                throw new JsonValidationException("expected integer but found a fractional number", start);
+            }
+        }
+    }
+
+    public void bool() {
+        skipWhitespace();
+        int c = peek();
+        if (c == 't') {
+            literal("true");
+        } else if (c == 'f') {
+            literal("false");
+        } else {
+            throw typeError("boolean");
+        }
+    }
+
+    // Para campos nullable: consume un null si lo hay
+    public boolean consumeNull() {
+        skipWhitespace();
+        if (peek() == 'n') {
+            literal("null");
+            return true;
+        }
+        return false;
+    }
+
+    // Salta un valor cualquiera (campos que el esquema no declara), comprobando su sintaxis
+    public void skipValue() {
+        skipWhitespace();
+        switch (peek()) {
+            case '{' -> {
+                position++;
+                enter();
+                afterBegin = true;
+                while (nextField()) {
+                    skipValue();
+                }
+            }
+            case '[' -> {
+                position++;
+                enter();
+                afterBegin = true;
+                while (nextElement()) {
+                    skipValue();
+                }
+            }
+            case '"' -> scanString();
+            case 't' -> literal("true");
+            case 'f' -> literal("false");
+            case 'n' -> literal("null");
+            case -1 -> throw syntaxError("unexpected end of document");
+            default -> {
+                if (!startsNumber()) {
+                    throw syntaxError("unexpected character");
+                }
+                scanNumber();
+            }
+        }
+    }
+
+    public void end() {
+        skipWhitespace();
+        if (position != end) {
+            throw syntaxError("trailing data after the document");
+        }
+    }
+
+    public JsonValidationException missing(String field) {
+        return new JsonValidationException("missing required field '" + field + "'", position);
+    }
+
+    // Consume ',' o el cierre; devuelve false si el contenedor se ha cerrado
+    private boolean separator(char close) {
+        int c = peek();
+        if (afterBegin) {
+            afterBegin = false;
+        } else if (c == ',') {
+            position++;
+            skipWhitespace();
+            return true;
+        } else if (c != close) {
+            throw syntaxError("expected ',' or '" + close + "'");
+        }
+        if (c == close) {
+            position++;
+            depth--;
+            return false;
+        }
+        return true;
+    }
+
+    private void scanString() {
+        position++;
+        stringStart = position;
+        stringEscaped = false;
+        while (true) {
+            if (position >= end) {
+                throw syntaxError("unterminated string");
+            }
+            int b = data[position] & 0xFF;
+            if (b == '"') {
+                stringEnd = position++;
+                return;
+            }
+            if (b == '\\') {
+                stringEscaped = true;
+                position++;
+                int kind = peek();
+                if (kind == 'u') {
+                    for (int i = 1; i <= 4; i++) {
+                        if (position + i >= end || Character.digit(data[position + i], 16) < 0) {
+                            throw syntaxError("invalid unicode escape");
+                        }
+                    }
+                    position += 5;
+                } else if (kind >= 0 && "\"\\/bfnrt".indexOf(kind) >= 0) {
+                    position++;
+                } else {
+                    throw syntaxError("invalid escape");
+                }
+            } else if (b < 0x20) {
+                throw syntaxError("control character in string");
+            } else {
+                position++;
+            }
+        }
+    }
+
+    // true si el número no tiene parte fraccionaria ni exponente
+    private boolean scanNumber() {
+        if (data[position] == '-') {
+            position++;
+        }
+        if (position < end && data[position] == '0') {
+            position++;
+        } else if (!digits()) {
+            throw syntaxError("invalid number");
+        }
+        boolean integral = true;
+        if (position < end && data[position] == '.') {
+            position++;
+            integral = false;
+            if (!digits()) {
+                throw syntaxError("invalid number");
+            }
+        }
+        if (position < end && (data[position] == 'e' || data[position] == 'E')) {
+            position++;
+            integral = false;
+            if (position < end && (data[position] == '+' || data[position] == '-')) {
+                position++;
+            }
+            if (!digits()) {
+                throw syntaxError("invalid number");
+            }
+        }
+        return integral;
+    }
+
+    private boolean digits() {
+        int start = position;
+        while (position < end && data[position] >= '0' && data[position] <= '9') {
+            position++;
+        }
+        return position > start;
+    }
+
+    private boolean startsNumber() {
+        int c = peek();
+        return c == '-' || c >= '0' && c <= '9';
+    }
+
+    private void literal(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (position + i >= end || data[position + i] != word.charAt(i)) {
+                throw syntaxError("unexpected character");
+            }
+        }
+        position += word.length();
+    }
+
+    // Decodifica los escapes de un string ya validado y lo devuelve en UTF-8
+    private byte[] decode(int start, int stop) {
+        StringBuilder text = new StringBuilder(stop - start);
+        int i = start;
+        while (i < stop) {
+            if (data[i] != '\\') {
+                int runStart = i;
+                while (i < stop && data[i] != '\\') {
+                    i++;
+                }
+                text.append(new String(data, runStart, i - runStart, StandardCharsets.UTF_8));
+                continue;
+            }
+            char kind = (char) data[i + 1];
+            switch (kind) {
+                case 'b' -> text.append('\b');
+                case 'f' -> text.append('\f');
+                case 'n' -> text.append('\n');
+                case 'r' -> text.append('\r');
+                case 't' -> text.append('\t');
+                case 'u' -> {
+                    text.append((char) Integer.parseInt(new String(data, i + 2, 4, StandardCharsets.US_ASCII), 16));
+                    i += 4;
+                }
+                default -> text.append(kind);
+            }
+            i += 2;
+        }
+        return bytes(text.toString());
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw syntaxError("nesting deeper than " + MAX_DEPTH);
+        }
+    }
+
+    private int peek() {
+        return position < end ? data[position] & 0xFF : -1;
+    }
+
+    private void skipWhitespace() {
+        while (position < end) {
+            byte b = data[position];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private int skipWhitespaceAndMark() {
+        skipWhitespace();
+        return position;
+    }
+
+    private JsonValidationException typeError(String expected) {
+        String found = switch (peek()) {
+            case '{' -> "object";
+            case '[' -> "array";
+            case '"' -> "string";
+            case 't', 'f' -> "boolean";
+            case 'n' -> "null";
+            case -1 -> null;
+            default -> startsNumber() ? "number" : null;
+        };
+        if (found == null) {
+            return syntaxError(peek() == -1 ? "unexpected end of document" : "unexpected character");
+        }
+        return new JsonValidationException("expected " + expected + " but found " + found, position);
+    }
+
+    private JsonValidationException syntaxError(String message) {
+        return new JsonValidationException("invalid JSON: " + message, position);
+    }
+}
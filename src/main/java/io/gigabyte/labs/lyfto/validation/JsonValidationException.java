@@ -0,0 +1,52 @@
+package io.gigabyte.labs.lyfto.validation;
+
+/**
+ * Primer error encontrado al validar un documento. El JSON pointer se construye al propagarse la
+ * excepción hacia la raíz ({@link #under}), así que validar un documento correcto no reserva nada
+ * para describir rutas. No captura la traza: solo sirve para volver hasta quien llamó al validador.
+ */
+public class JsonValidationException extends IllegalArgumentException {
+
+    private final String reason;
+    private final int offset;
+    private String pointer = "";
+
+    // offset: posición en bytes del error en el documento, o -1 si no se conoce
+    public JsonValidationException(String reason, int offset) {
+        super(reason);
+        this.reason = reason;
+        this.offset = offset;
+    }
+
+    public JsonValidationException under(String field) {
+        pointer = "/" + field.replace("~", "~0").replace("/", "~1") + pointer;
+        return this;
+    }
+
+    public JsonValidationException under(int index) {
+        pointer = "/" + index + pointer;
+        return this;
+    }
+
+    public String pointer() {
+        return pointer;
+    }
+
+    public String reason() {
+        return reason;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    @Override
+    public String getMessage() {
+        return (pointer.isEmpty() ? "(root)" : pointer) + ": " + reason;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,20 @@
+package io.gigabyte.labs.lyfto.validation;
+
+/**
+ * Valida un documento JSON contra un esquema de la API. Las implementaciones no guardan estado,
+ * así que una misma instancia sirve a todos los hilos.
+ */
+public interface PayloadValidator {
+
+    // Esquema u operación que valida, para los mensajes
+    String name();
+
+    /**
+     * @throws JsonValidationException con el JSON pointer del primer valor que no cumple el esquema
+     */
+    void validate(byte[] json, int length);
+
+    default void validate(byte[] json) {
+        validate(json, json.length);
+    }
+}
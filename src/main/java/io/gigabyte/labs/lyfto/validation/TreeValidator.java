@@ -0,0 +1,199 @@
+package io.gigabyte.labs.lyfto.validation;
+
+import io.gigabyte.labs.lyfto.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validación interpretando la especificación en cada petición: parsea el documento a un árbol con
+ * {@link JsonReader} y lo recorre junto al esquema, resolviendo cada {@code $ref} por nombre.
+ * Acepta y rechaza exactamente lo mismo que los validadores generados; existe como referencia
+ * para medirlos ({@code ValidatorBenchmark}) y para depurar una discrepancia.
+ * <p>
+ * Lee los esquemas del recurso {@value #RESOURCE} que el procesador escribe junto a los
+ * validadores generados, con los escalares tal cual venían en el YAML (todos como String).
+ */
+public final class TreeValidator {
+
+    public static final String RESOURCE = "openapi-schemas.json";
+    private static final String REF_PREFIX = "#/components/schemas/";
+
+    private final Map<String, Object> schemas;
+    private final Map<String, Object> requestBodies;
+    private final Map<String, Object> responses;
+
+    private TreeValidator(Map<String, Object> spec) {
+        this.schemas = object(spec.get("schemas"));
+        this.requestBodies = object(spec.get("requestBodies"));
+        this.responses = object(spec.get("responses"));
+    }
+
+    public static TreeValidator load() {
+        try (InputStream in = TreeValidator.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException(RESOURCE + " not found: the OpenAPI validators were not generated");
+            }
+            return new TreeValidator(object(JsonReader.parse(in.readAllBytes())));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // null si no hay esquema con ese nombre
+    public PayloadValidator schema(String name) {
+        return validator(name, schemas.get(name));
+    }
+
+    public PayloadValidator requestBody(String method, String path) {
+        String key = method + " " + path;
+        return validator(key, requestBodies.get(key));
+    }
+
+    public PayloadValidator response(String method, String path, int status) {
+        String key = method + " " + path + " " + status;
+        return validator(key, responses.get(key));
+    }
+
+    private PayloadValidator validator(String name, Object schema) {
+        if (schema == null) {
+            return null;
+        }
+        Map<String, Object> root = object(schema);
+        return new PayloadValidator() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public void validate(byte[] json, int length) {
+                Object document;
+                try {
+                    document = JsonReader.parse(json, length);
+                } catch (IllegalArgumentException e) {
+                    throw new JsonValidationException("invalid JSON: " + e.getMessage(), -1);
+                }
+                check(document, root);
+            }
+        };
+    }
+
+    private void check(Object value, Map<String, Object> schema) {
+        Object ref = schema.get("$ref");
+        if (ref != null) {
+            check(value, object(schemas.get(((String) ref).substring(REF_PREFIX.length()))));
+            return;
+        }
+        String type = (String) schema.get("type");
+        if (type == null && schema.containsKey("properties")) {
+            type = "object";
+        }
+        if (type == null) {
+            return;
+        }
+        if (value == null) {
+            if ("true".equals(schema.get("nullable"))) {
+                return;
+            }
+            throw new JsonValidationException("expected " + type + " but found null", -1);
+        }
+        switch (type) {
+            case "object" -> checkObject(value, schema);
+            case "array" -> {
+                if (!(value instanceof List<?> items)) {
+                    throw typeError(type, value);
+                }
+                Map<String, Object> itemSchema = schema.get("items") == null ? Map.of() : object(schema.get("items"));
+                for (int i = 0; i < items.size(); i++) {
+                    try {
+                        check(items.get(i), itemSchema);
+                    } catch (JsonValidationException e) {
+                        throw e.under(i);
+                    }
+                }
+            }
+            case "string" -> {
+                if (!(value instanceof String text)) {
+                    throw typeError(type, value);
+                }
+                if (schema.get("enum") instanceof List<?> allowed && !allowed.contains(text)) {
+                    throw new JsonValidationException("must be one of " + String.join(", ", strings(allowed)), -1);
+                }
+            }
+            case "number" -> {
+                if (!(value instanceof Number)) {
+                    throw typeError(type, value);
+                }
+                if (isIntegerFormat(schema.get("format"))) {
+                    requireIntegral(value);
+                }
+            }
+            case "integer" -> {
+                if (!(value instanceof Number)) {
+                    throw typeError(type, value);
+                }
+                requireIntegral(value);
+            }
+            case "boolean" -> {
+                if (!(value instanceof Boolean)) {
+                    throw typeError(type, value);
+                }
+            }
+            default -> {
+                // Tipos desconocidos no se validan, igual que en los validadores generados
+            }
+        }
+    }
+
+    private void checkObject(Object value, Map<String, Object> schema) {
+        if (!(value instanceof Map<?, ?> fields)) {
+            throw typeError("object", value);
+        }
+        Map<String, Object> properties = schema.get("properties") == null ? Map.of() : object(schema.get("properties"));
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            if (fields.containsKey(property.getKey())) {
+                try {
+                    check(fields.get(property.getKey()), object(property.getValue()));
+                } catch (JsonValidationException e) {
+                    throw e.under(property.getKey());
+                }
+            }
+        }
+        if (schema.get("required") instanceof List<?> required) {
+            for (Object field : required) {
+                if (!fields.containsKey(field)) {
+                    throw new JsonValidationException("missing required field '" + field + "'", -1);
+                }
+            }
+        }
+    }
+
+    static boolean isIntegerFormat(Object format) {
+        return "int".equals(format) || "int32".equals(format) || "int64".equals(format);
+    }
+
+    private static void requireIntegral(Object value) {
+        if (value instanceof Double number && (number != Math.rint(number) || number.isInfinite())) {
+            throw new JsonValidationException("expected integer but found a fractional number", -1);
+        }
+    }
+
+    private static JsonValidationException typeError(String expected, Object value) {
+        String found = value instanceof Map ? "object" : value instanceof List ? "array" : value instanceof String ? "string"
+          : value instanceof Boolean ? "boolean" : "number";
+        return new JsonValidationException("expected " + expected + " but found " + found, -1);
+    }
+
+    private static List<String> strings(List<?> values) {
+        return values.stream().map(String::valueOf).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Object value) {
+        return value == null ? Map.of() : (Map<String, Object>) value;
+    }
+}
@@ -0,0 +1,84 @@
+package io.gigabyte.labs.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias en microsegundos con cubos log-lineales, al estilo de HdrHistogram:
+ * cada potencia de dos se parte en {@value #SUB_BUCKETS} sub-cubos iguales, así que un percentil
+ * se informa con un error relativo por debajo del 1% (por debajo de {@value #SUB_BUCKETS} us es
+ * exacto). Registrar es un conteo de ceros a la izquierda, un desplazamiento y un incremento
+ * atómico, sin reservar memoria. Los percentiles se dan como el límite superior del sub-cubo que
+ * los contiene. El rango llega a 2^40 us (unos 12 días); lo que pase de ahí cae en el último cubo.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    // Valores exactos [0, SUB_BUCKETS) y luego SUB_BUCKETS sub-cubos por cada potencia de dos
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BITS) * SUB_BUCKETS;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+
+    public void recordNanos(long nanos) {
+        long micros = Math.min(MAX_VALUE, Math.max(0, nanos / 1_000));
+        counts.incrementAndGet(indexOf(micros));
+        total.increment();
+        totalMicros.add(micros);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    // Suma exacta de lo registrado, para medias y el _sum de Prometheus
+    public long sumMicros() {
+        return totalMicros.sum();
+    }
+
+    // Límite superior, en microsegundos, del sub-cubo que contiene el percentil pedido (0-100)
+    public long percentileMicros(double percentile) {
+        long n = count();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return MAX_VALUE;
+    }
+
+    // Por debajo de SUB_BUCKETS el índice es el propio valor; encima, octava y los SUB_BITS bits altos
+    private static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = exponent - SUB_BITS;
+        int sub = (int) (micros >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long top = SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count() + " p50=" + percentileMicros(50) + "us p99=" + percentileMicros(99)
+          + "us p99.9=" + percentileMicros(99.9) + "us max<=" + percentileMicros(100) + "us";
+    }
+}
@@ -0,0 +1,143 @@
+package io.gigabyte.labs.metrics;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registro de {@link StageTimer}s. Los servicios buscan sus timers una sola vez, en campos
+ * estáticos, así que el camino caliente nunca pasa por el registro. Los componentes que ya llevan
+ * sus propias estadísticas (cachés, pools) registran en su lugar callbacks con {@link #counter} y
+ * {@link #gauge}, que sólo se leen al renderizar. {@link #render()} lo escribe todo en el formato de
+ * texto de Prometheus; {@link MetricsEndpoint} lo sirve por HTTP y {@link #dumpEvery} lo envía
+ * periódicamente a un consumidor.
+ */
+public final class Metrics {
+
+    static final String ENABLED_PROPERTY = "io.gigabyte.labs.metrics";
+    static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    // Se mide una operación de cada 2^k; la propiedad se redondea hacia arriba a potencia de dos
+    static final int SAMPLE_MASK =
+      Integer.highestOneBit(Math.max(1, Integer.getInteger(ENABLED_PROPERTY + ".sample", 64)) * 2 - 1) - 1;
+
+    private static final Metrics GLOBAL = new Metrics();
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999"};
+
+    /**
+     * Registro de un callback, o de varios: {@link #close()} los quita del registro, que deja de
+     * mantener vivo lo que leen.
+     */
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private record Callback(String name, String type, String label, String labelValue, Supplier<String> value) {
+    }
+
+    private final ConcurrentSkipListMap<String, StageTimer> timers = new ConcurrentSkipListMap<>();
+    // Clave nombre{label="valor"}, para que las muestras de una misma métrica salgan juntas
+    private final ConcurrentSkipListMap<String, Callback> callbacks = new ConcurrentSkipListMap<>();
+
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    public static boolean enabled() {
+        return ENABLED;
+    }
+
+    public StageTimer timer(String component, String stage) {
+        return timers.computeIfAbsent(component + '/' + stage, key -> new StageTimer(component, stage));
+    }
+
+    public Collection<StageTimer> timers() {
+        return timers.values();
+    }
+
+    // Un mismo nombre y etiqueta sólo se registra una vez: reemplazarlo escondería las métricas del primero
+    public Registration counter(String name, String label, String labelValue, LongSupplier value) {
+        return register(new Callback(name, "counter", label, labelValue, () -> Long.toString(value.getAsLong())));
+    }
+
+    public Registration gauge(String name, String label, String labelValue, DoubleSupplier value) {
+        return register(new Callback(name, "gauge", label, labelValue, () -> Double.toString(value.getAsDouble())));
+    }
+
+    private Registration register(Callback callback) {
+        String key = callback.name() + '{' + callback.label() + "=\"" + callback.labelValue() + '"';
+        if (callbacks.putIfAbsent(key, callback) != null) {
+            throw new IllegalStateException("Metric already registered: " + key + '}');
+        }
+        return () -> callbacks.remove(key, callback);
+    }
+
+    public String render() {
+        StringBuilder out = new StringBuilder(256 + timers.size() * 512);
+        // Sólo las etapas donde empieza una operación tienen contador de operaciones
+        out.append("# TYPE labs_stage_operations_total counter\n");
+        for (StageTimer timer : timers.values()) {
+            long operations = timer.operations();
+            if (operations > 0) {
+                sample(out, "labs_stage_operations_total", timer, null).append(operations).append('\n');
+            }
+        }
+        out.append("# TYPE labs_stage_failures_total counter\n");
+        for (StageTimer timer : timers.values()) {
+            sample(out, "labs_stage_failures_total", timer, null).append(timer.failures()).append('\n');
+        }
+        // Cuantiles, _sum y _count salen de las mismas ejecuciones, las muestreadas; cada cuantil es
+        // el límite superior del sub-cubo que lo contiene (error < 1%)
+        out.append("# TYPE labs_stage_latency_microseconds summary\n");
+        for (StageTimer timer : timers.values()) {
+            LatencyHistogram latency = timer.latency();
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                sample(out, "labs_stage_latency_microseconds", timer, QUANTILES[i])
+                  .append(latency.percentileMicros(PERCENTILES[i])).append('\n');
+            }
+            sample(out, "labs_stage_latency_microseconds_sum", timer, null).append(latency.sumMicros()).append('\n');
+            sample(out, "labs_stage_latency_microseconds_count", timer, null).append(latency.count()).append('\n');
+        }
+        String previous = null;
+        for (Callback callback : callbacks.values()) {
+            if (!callback.name().equals(previous)) {
+                out.append("# TYPE ").append(callback.name()).append(' ').append(callback.type()).append('\n');
+                previous = callback.name();
+            }
+            out.append(callback.name()).append('{').append(callback.label()).append("=\"").append(callback.labelValue())
+              .append("\"} ").append(callback.value().get()).append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Envía {@link #render()} a sink cada period desde un hilo daemon, hasta que se cierra el
+     * handle devuelto.
+     */
+    public AutoCloseable dumpEvery(Duration period, Consumer<String> sink) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = period.toMillis();
+        scheduler.scheduleAtFixedRate(() -> sink.accept(render()), millis, millis, TimeUnit.MILLISECONDS);
+        return scheduler::shutdownNow;
+    }
+
+    private static StringBuilder sample(StringBuilder out, String name, StageTimer timer, String quantile) {
+        out.append(name).append("{component=\"").append(timer.component()).append("\",stage=\"").append(timer.stage());
+        if (quantile != null) {
+            out.append("\",quantile=\"").append(quantile);
+        }
+        return out.append("\"} ");
+    }
+}
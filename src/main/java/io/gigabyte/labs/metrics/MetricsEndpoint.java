@@ -0,0 +1,50 @@
+package io.gigabyte.labs.metrics;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Endpoint pull de un registro {@link Metrics}: {@code GET /metrics} devuelve {@link Metrics#render()}
+ * como {@code text/plain; version=0.0.4}, que Prometheus recoge tal cual. {@link #handler} lo monta
+ * en un HttpServer existente; {@link #start} arranca uno propio.
+ */
+public final class MetricsEndpoint {
+
+    private MetricsEndpoint() {
+    }
+
+    public static HttpHandler handler(Metrics metrics) {
+        return exchange -> {
+            try (exchange) {
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] body = metrics.render().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        };
+    }
+
+    // Se para con server.stop(0)
+    public static HttpServer start(InetSocketAddress address, Metrics metrics) {
+        try {
+            HttpServer server = HttpServer.create(address, 16);
+            server.createContext("/metrics", handler(metrics));
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.gigabyte.labs.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento JFR de una ejecución de una etapa, emitido por {@link StageTimer}. Se emite al terminar la
+ * etapa, así que su propia duración es cero: el tiempo de la etapa va en {@code elapsed} y los
+ * umbrales de JFR no lo filtran.
+ * <p>
+ * Desactivado por defecto: activado, cada operación se mide y emite un evento por etapa, lo que
+ * cuesta mucho más que las propias métricas. Se enciende para una grabación con
+ * {@code -XX:StartFlightRecording:+io.gigabyte.labs.Stage#enabled=true} o en un fichero .jfc.
+ */
+@Name("io.gigabyte.labs.Stage")
+@Label("Stage")
+@Category({"Gigabyte Labs", "Stages"})
+@Description("One execution of an instrumented service stage")
+@StackTrace(false)
+@Enabled(false)
+public final class StageEvent extends Event {
+
+    @Label("Component")
+    String component;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,125 @@
+package io.gigabyte.labs.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Operaciones, fallos y latencia de una etapa de un componente (ProductService/save, fetch...).
+ * Cada operación cuesta un único contador, el de la etapa donde empieza ({@link #start()}); los
+ * fallos se cuentan siempre. La latencia sólo se mide en una operación de cada
+ * {@code -Dio.gigabyte.labs.metrics.sample} (64 por defecto), elegida por un contador y no al azar,
+ * porque en algunas máquinas leer el reloj cuesta tanto como una etapa barata. Mientras una
+ * grabación JFR tiene el evento {@link StageEvent} activado (por defecto no lo está) se miden todas.
+ * <p>
+ * Las etapas de una operación se miden encadenando lecturas del reloj: {@link #start()} una vez y
+ * luego cada {@link #stop(long)} devuelve el instante desde el que cuenta la etapa siguiente, así que
+ * N etapas cuestan N+1 lecturas de {@link System#nanoTime()}. Una operación que no entra en la
+ * muestra recibe {@link #UNTIMED} de {@code start()} y lo va pasando, y sus {@code stop} no hacen
+ * nada. No se reserva memoria.
+ * <pre>
+ * long t = VALIDATE.start();
+ * validate();
+ * t = VALIDATE.stop(t);
+ * save();
+ * SAVE.stop(t);
+ * </pre>
+ * Con {@code -Dio.gigabyte.labs.metrics=false} todos los métodos vuelven enseguida y el JIT elimina
+ * las llamadas.
+ */
+public final class StageTimer {
+
+    public static final long UNTIMED = 0;
+
+    // Copia de StageEvent.isEnabled(), que cuesta demasiado para preguntarlo en cada start(). Lo
+    // refresca cada operación muestreada, así que un cambio en la grabación se nota en unas
+    // pocas decenas de operaciones.
+    private static volatile boolean eventsEnabled;
+
+    private final String component;
+    private final String stage;
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    // Turno de muestreo. Sin sincronizar: un incremento perdido entre hilos sólo mueve la muestra
+    private int tick;
+
+    StageTimer(String component, String stage) {
+        this.component = component;
+        this.stage = stage;
+    }
+
+    public long start() {
+        if (!Metrics.ENABLED) {
+            return UNTIMED;
+        }
+        operations.increment();
+        if ((++tick & Metrics.SAMPLE_MASK) != 0 && !eventsEnabled) {
+            return UNTIMED;
+        }
+        return System.nanoTime();
+    }
+
+    // Registra una ejecución correcta que empezó en start; devuelve el instante en que empieza la siguiente etapa
+    public long stop(long start) {
+        if (!Metrics.ENABLED || start == UNTIMED) {
+            return UNTIMED;
+        }
+        long end = System.nanoTime();
+        record(end - start, false);
+        return end;
+    }
+
+    public void fail(long start) {
+        if (!Metrics.ENABLED) {
+            return;
+        }
+        failures.increment();
+        if (start != UNTIMED) {
+            record(System.nanoTime() - start, true);
+        }
+    }
+
+    private void record(long nanos, boolean failed) {
+        latency.recordNanos(nanos);
+        // El JIT lo reemplaza por escalares cuando el evento está desactivado
+        StageEvent event = new StageEvent();
+        boolean enabled = event.isEnabled();
+        if (enabled != eventsEnabled) {
+            eventsEnabled = enabled;
+        }
+        if (event.shouldCommit()) {
+            event.component = component;
+            event.stage = stage;
+            event.elapsed = nanos;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+    public String component() {
+        return component;
+    }
+
+    public String stage() {
+        return stage;
+    }
+
+    // Operaciones que empezaron en esta etapa, correctas o no
+    public long operations() {
+        return operations.sum();
+    }
+
+    // Fallos en esta etapa, muestreados o no
+    public long failures() {
+        return failures.sum();
+    }
+
+    // Sólo las ejecuciones muestreadas
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        return component + "/" + stage + " operations=" + operations() + " failures=" + failures() + " sampled " + latency;
+    }
+}
@@ -1,7 +1,39 @@
 package io.gigabyte.labs.ocp;
 
+import io.gigabyte.labs.metrics.Metrics;
+import io.gigabyte.labs.metrics.StageTimer;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
 interface PaymentProcessorIfc {
     void processPayment(Payment payment);
+
+    // Los proveedores con endpoint masivo redefinen ambos métodos para liquidar varios pagos por llamada
+    default boolean supportsBatch() {
+        return false;
+    }
+
+    /**
+     * Resultado por posición: null si el pago se liquidó, o la excepción con la que se rechazó.
+     * Si lanza, la llamada entera falló y no se liquidó ninguno.
+     */
+    default List<RuntimeException> processPayments(List<Payment> payments) {
+        List<RuntimeException> outcomes = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            try {
+                processPayment(payment);
+                outcomes.add(null);
+            } catch (RuntimeException e) {
+                outcomes.add(e);
+            }
+        }
+        return outcomes;
+    }
 }
 
 class CreditCardPaymentProcessor implements PaymentProcessorIfc {
@@ -16,8 +48,29 @@ class PayPalPaymentProcessor implements PaymentProcessorIfc {
     }
 }
 
+// Los procesadores no tienen estado: se crea una instancia por tipo al principio y se reutiliza
 class PaymentProcessorFactory {
+    private static final Map<PaymentType, PaymentProcessorIfc> PROCESSORS = new EnumMap<>(PaymentType.class);
+
+    static {
+        for (PaymentType type : PaymentType.values()) {
+            PROCESSORS.put(type, create(type));
+        }
+    }
+
     public static PaymentProcessorIfc getPaymentProcessor(PaymentType type) {
+        PaymentProcessorIfc processor = type == null ? null : PROCESSORS.get(type);
+        if (processor == null) {
+            throw new IllegalArgumentException("Unsupported payment type");
+        }
+        return processor;
+    }
+
+    static Map<PaymentType, PaymentProcessorIfc> all() {
+        return PROCESSORS;
+    }
+
+    private static PaymentProcessorIfc create(PaymentType type) {
         switch (type) {
             case CREDIT_CARD:
                 return new CreditCardPaymentProcessor();
@@ -30,9 +83,89 @@ class PaymentProcessorFactory {
 }
 
 class PaymentService {
+    private static final StageTimer VALIDATE = Metrics.global().timer("PaymentService", "validate");
+    private static final StageTimer PROCESS = Metrics.global().timer("PaymentService", "process");
+
+    private final PaymentEngine engine;
+    private final PaymentJournal journal;
+    // Cobros con clave de idempotencia que aún no están en el diario
+    private final Map<String, CompletableFuture<Payment>> inFlight = new ConcurrentHashMap<>();
+
+    PaymentService() {
+        this(null);
+    }
+
+    PaymentService(PaymentEngine engine) {
+        this(engine, null);
+    }
+
+    PaymentService(PaymentEngine engine, PaymentJournal journal) {
+        this.engine = engine;
+        this.journal = journal;
+    }
+
+    // validate: resolver el procesador rechaza los tipos no soportados; process: la llamada al proveedor
     public void processPayment(Payment payment) {
-        PaymentProcessorIfc processor = PaymentProcessorFactory.getPaymentProcessor(payment.getType());
-        processor.processPayment(payment);
+        StageTimer stage = VALIDATE;
+        long start = stage.start();
+        try {
+            PaymentProcessorIfc processor = PaymentProcessorFactory.getPaymentProcessor(payment.getType());
+            start = stage.stop(start);
+            stage = PROCESS;
+            processor.processPayment(payment);
+            stage.stop(start);
+        } catch (RuntimeException e) {
+            stage.fail(start);
+            throw e;
+        }
+    }
+
+    // Pasa por el bulkhead del proveedor, así que uno lento sólo atasca su propia cola
+    public CompletableFuture<Payment> processPaymentAsync(Payment payment) {
+        if (engine == null) {
+            throw new IllegalStateException("PaymentService created without a PaymentEngine");
+        }
+        return engine.submit(payment);
+    }
+
+    /**
+     * Cobro idempotente: el diario sólo guarda pagos ya cobrados, así que un reintento con la misma
+     * clave recibe el pago original sin volver al proveedor, y uno cuyo intento anterior falló (o se
+     * rechazó por carril lleno) se vuelve a intentar. Un reintento que llega mientras el primero está
+     * en curso espera a ese mismo resultado. Si el proceso cae entre el cobro y su registro, el
+     * reintento vuelve a cobrar: cubrir ese hueco es cosa de la clave de idempotencia del proveedor.
+     */
+    public CompletableFuture<Payment> processPaymentAsync(Payment payment, String idempotencyKey) {
+        if (journal == null) {
+            throw new IllegalStateException("PaymentService created without a PaymentJournal");
+        }
+        CompletableFuture<Payment> mine = new CompletableFuture<>();
+        CompletableFuture<Payment> attempt = inFlight.putIfAbsent(idempotencyKey, mine);
+        if (attempt != null) {
+            return attempt.copy();
+        }
+        try {
+            PaymentJournal.Entry settled = journal.find(idempotencyKey);
+            if (settled != null) {
+                inFlight.remove(idempotencyKey, mine);
+                mine.complete(settled.payment());
+                return mine.copy();
+            }
+            processPaymentAsync(payment)
+              .thenCompose(charged -> journal.append(idempotencyKey, charged).thenApply(receipt -> charged))
+              .whenComplete((charged, error) -> {
+                  inFlight.remove(idempotencyKey, mine);
+                  if (error == null) {
+                      mine.complete(charged);
+                  } else {
+                      mine.completeExceptionally(error);
+                  }
+              });
+        } catch (RuntimeException e) {
+            inFlight.remove(idempotencyKey, mine);
+            mine.completeExceptionally(e);
+        }
+        return mine.copy();
     }
 }
 
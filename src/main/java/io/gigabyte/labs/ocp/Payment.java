@@ -1,7 +1,28 @@
 package io.gigabyte.labs.ocp;
 
 public class Payment {
+    private String id;
+    private PaymentType type;
+    private long amountCents;
+
+    public Payment() {
+    }
+
+    public Payment(String id, PaymentType type, long amountCents) {
+        this.id = id;
+        this.type = type;
+        this.amountCents = amountCents;
+    }
+
+    public String getId() {
+        return id;
+    }
+
     public PaymentType getType() {
-        return PaymentType.PAYPAL;
+        return type == null ? PaymentType.PAYPAL : type;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
     }
 }
@@ -0,0 +1,234 @@
+package io.gigabyte.labs.ocp;
+
+import io.gigabyte.labs.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Motor de pagos asíncrono con un bulkhead por {@link PaymentType}: cada proveedor tiene su propia
+ * cola acotada y sus propios hilos, así que un PayPal lento no puede quitar hilos ni huecos de cola
+ * a los pagos con tarjeta. Si la cola de un carril está llena, el pago se rechaza en el acto en
+ * lugar de esperar. Los proveedores que lo admiten reciben micro-lotes: un hilo toma lo encolado,
+ * hasta {@code maxBatch}, esperando como mucho {@code linger} a que se llene el lote. Cada pago del
+ * lote se completa con su propio resultado.
+ */
+public class PaymentEngine implements AutoCloseable {
+
+    public record LaneConfig(int workers, int queueCapacity, int maxBatch, Duration linger) {
+        public static LaneConfig defaults() {
+            return new LaneConfig(8, 1_024, 32, Duration.ofMillis(2));
+        }
+    }
+
+    public record LaneStats(PaymentType type, long submitted, long completed, long failed, long rejected,
+                            int queueDepth, int busyWorkers, int workers, LatencyHistogram latency) {
+        // Fracción de los hilos del carril que están ahora dentro de una llamada al proveedor
+        public double utilisation() {
+            return workers == 0 ? 0 : (double) busyWorkers / workers;
+        }
+    }
+
+    private final Map<PaymentType, Lane> lanes = new EnumMap<>(PaymentType.class);
+
+    public PaymentEngine() {
+        this(defaultConfigs());
+    }
+
+    public PaymentEngine(Map<PaymentType, LaneConfig> configs) {
+        this(PaymentProcessorFactory.all(), configs);
+    }
+
+    PaymentEngine(Map<PaymentType, PaymentProcessorIfc> processors, Map<PaymentType, LaneConfig> configs) {
+        processors.forEach((type, processor) -> {
+            LaneConfig config = configs.getOrDefault(type, LaneConfig.defaults());
+            lanes.put(type, new Lane(type, processor, config));
+        });
+    }
+
+    public CompletableFuture<Payment> submit(Payment payment) {
+        Lane lane = lanes.get(payment.getType());
+        if (lane == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unsupported payment type"));
+        }
+        return lane.submit(payment);
+    }
+
+    public List<LaneStats> stats() {
+        return lanes.values().stream().map(Lane::stats).toList();
+    }
+
+    @Override
+    public void close() {
+        lanes.values().forEach(Lane::close);
+    }
+
+    private static Map<PaymentType, LaneConfig> defaultConfigs() {
+        Map<PaymentType, LaneConfig> configs = new EnumMap<>(PaymentType.class);
+        for (PaymentType type : PaymentType.values()) {
+            configs.put(type, LaneConfig.defaults());
+        }
+        return configs;
+    }
+
+    private record Pending(Payment payment, long submittedNanos, CompletableFuture<Payment> done) {
+    }
+
+    private static final class Lane {
+        private final PaymentType type;
+        private final PaymentProcessorIfc processor;
+        private final int maxBatch;
+        private final long lingerNanos;
+        private final BlockingQueue<Pending> queue;
+        private final List<Thread> workers = new ArrayList<>();
+        private final AtomicInteger busy = new AtomicInteger();
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private volatile boolean running = true;
+
+        Lane(PaymentType type, PaymentProcessorIfc processor, LaneConfig config) {
+            this.type = type;
+            this.processor = processor;
+            this.maxBatch = processor.supportsBatch() ? Math.max(1, config.maxBatch()) : 1;
+            this.lingerNanos = config.linger().toNanos();
+            this.queue = new ArrayBlockingQueue<>(config.queueCapacity());
+            for (int i = 0; i < config.workers(); i++) {
+                workers.add(Thread.ofPlatform().name("payments-" + type + "-" + i).daemon().start(this::work));
+            }
+        }
+
+        CompletableFuture<Payment> submit(Payment payment) {
+            Pending pending = new Pending(payment, System.nanoTime(), new CompletableFuture<>());
+            if (running && queue.offer(pending)) {
+                // close() pudo empezar entre la comprobación y el offer: si el pago sigue en la cola se retira;
+                // si ya no está, lo ha tomado un hilo o el vaciado final de close(), y ambos lo completan
+                if (running || !queue.remove(pending)) {
+                    submitted.increment();
+                    return pending.done();
+                }
+            }
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException(type + (running ? " lane saturated" : " lane closed")));
+        }
+
+        private void work() {
+            List<Pending> batch = new ArrayList<>(maxBatch);
+            while (running || !queue.isEmpty()) {
+                try {
+                    Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    fill(batch);
+                    busy.incrementAndGet();
+                    try {
+                        process(batch);
+                    } finally {
+                        busy.decrementAndGet();
+                        batch.clear();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private void fill(List<Pending> batch) throws InterruptedException {
+            if (maxBatch == 1) {
+                return;
+            }
+            queue.drainTo(batch, maxBatch - batch.size());
+            long deadline = System.nanoTime() + lingerNanos;
+            while (batch.size() < maxBatch) {
+                Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+                batch.add(next);
+            }
+        }
+
+        private void process(List<Pending> batch) {
+            Throwable failure = null;
+            try {
+                List<RuntimeException> outcomes = settle(batch);
+                long now = System.nanoTime();
+                for (int i = 0; i < batch.size(); i++) {
+                    Pending pending = batch.get(i);
+                    RuntimeException error = outcomes.get(i);
+                    if (error == null) {
+                        latency.recordNanos(now - pending.submittedNanos());
+                        completed.increment();
+                        pending.done().complete(pending.payment());
+                    } else {
+                        failed.increment();
+                        pending.done().completeExceptionally(error);
+                    }
+                }
+            } catch (Throwable t) {
+                // Falló la llamada entera, también con un Error del proveedor: no se liquidó ningún pago del
+                // lote, y el hilo sigue atendiendo la cola
+                failure = t;
+            } finally {
+                // Ningún futuro del lote se queda sin completar
+                Throwable cause = failure != null ? failure : new IllegalStateException(type + " payment was not settled");
+                for (Pending pending : batch) {
+                    if (pending.done().completeExceptionally(cause)) {
+                        failed.increment();
+                    }
+                }
+            }
+        }
+
+        // Un resultado por pago, en el mismo orden; cualquier otra cosa invalida el lote entero
+        private List<RuntimeException> settle(List<Pending> batch) {
+            if (batch.size() == 1) {
+                processor.processPayment(batch.get(0).payment());
+                return Collections.singletonList(null);
+            }
+            List<RuntimeException> outcomes = processor.processPayments(batch.stream().map(Pending::payment).toList());
+            if (outcomes == null || outcomes.size() != batch.size()) {
+                throw new IllegalStateException(type + " processor returned "
+                  + (outcomes == null ? "no results" : outcomes.size() + " results") + " for " + batch.size() + " payments");
+            }
+            return outcomes;
+        }
+
+        LaneStats stats() {
+            return new LaneStats(type, submitted.sum(), completed.sum(), failed.sum(), rejected.sum(),
+              queue.size(), busy.get(), workers.size(), latency);
+        }
+
+        void close() {
+            running = false;
+            for (Thread worker : workers) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            // Lo que entró después de que salieran los hilos no se va a procesar
+            Pending leftover;
+            while ((leftover = queue.poll()) != null) {
+                failed.increment();
+                leftover.done().completeExceptionally(new RejectedExecutionException(type + " lane closed"));
+            }
+        }
+    }
+}
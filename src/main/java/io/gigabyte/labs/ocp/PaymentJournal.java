@@ -0,0 +1,570 @@
+package io.gigabyte.labs.ocp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario de pagos cobrados, sólo de añadido, sobre segmentos mapeados en memoria: un reintento
+ * con una clave que ya está aquí se responde con el pago original sin volver a cobrar.
+ * <p>
+ * Cada append se copia al mapeo bajo un cerrojo breve y devuelve un futuro que se completa cuando
+ * el registro está en disco. Un único hilo flusher fuerza el rango sucio como mucho cada
+ * {@code commitInterval} (antes si ya esperan {@code maxBatch} appends), así que un fsync cubre
+ * todos los pagos escritos desde el anterior (group commit).
+ * <p>
+ * Las claves de idempotencia se guardan fuera del heap en una tabla de direccionamiento abierto de
+ * pares (hash, offset en el diario); un acierto de hash se confirma contra la clave guardada en el
+ * diario, así que un duplicado se detecta en O(1) sin confundir colisiones con reintentos. Al abrir
+ * se recorre el diario comprobando el CRC para reconstruir la tabla; el primer registro roto o
+ * corrupto marca el final del log y se descarta todo lo que venga detrás.
+ * <p>
+ * Formato de registro: {@code int length, int crc32c, payload}, con el payload
+ * {@code key, payment id, type, amount, timestamp}. Un registro nunca cruza un segmento; el final
+ * sin usar de un segmento se marca con {@link #SEGMENT_END}.
+ */
+public class PaymentJournal implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int SEGMENT_END = -1;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    public enum Status {ACCEPTED, DUPLICATE}
+
+    public record Receipt(Status status, long offset) {
+    }
+
+    public record Entry(long offset, String idempotencyKey, Payment payment, long timestampMillis) {
+    }
+
+    public record Config(int segmentBytes, Duration commitInterval, int maxBatch, int expectedKeys) {
+        public static Config defaults() {
+            return new Config(64 << 20, Duration.ofMillis(2), 1_024, 1 << 16);
+        }
+    }
+
+    public record Stats(long appended, long duplicates, long commits, long recovered, long bytes) {
+        public double paymentsPerCommit() {
+            return commits == 0 ? 0 : (double) appended / commits;
+        }
+    }
+
+    private record Waiter(CompletableFuture<Receipt> done, Receipt receipt) {
+    }
+
+    private record DirtyRange(MappedByteBuffer segment, int from, int length) {
+    }
+
+    private final FileChannel channel;
+    private final Config config;
+    private final long commitNanos;
+    // Se añade bajo el cerrojo; copy-on-write para que replay lea los segmentos sin él
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final KeyIndex index;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pending = lock.newCondition();
+    private final Thread flusher;
+
+    // Protegido por lock
+    private long writePosition;
+    private long durablePosition;
+    private List<Waiter> waiters = new ArrayList<>();
+    private boolean running = true;
+    private long appended;
+    private long duplicates;
+    private long commits;
+    private long recovered;
+
+    private PaymentJournal(FileChannel channel, Config config) {
+        this.channel = channel;
+        this.config = config;
+        this.commitNanos = config.commitInterval().toNanos();
+        this.index = new KeyIndex(config.expectedKeys());
+        this.flusher = Thread.ofPlatform().name("payment-journal-flusher").daemon().unstarted(this::flushLoop);
+    }
+
+    public static PaymentJournal open(Path file, Config config) {
+        try {
+            FileChannel channel = FileChannel.open(file,
+              StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            PaymentJournal journal = new PaymentJournal(channel, config);
+            journal.recover();
+            journal.flusher.start();
+            return journal;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open payment journal " + file, e);
+        }
+    }
+
+    /**
+     * Registra el pago salvo que su clave de idempotencia ya esté en el diario. El futuro se completa
+     * cuando el registro (o, si es un duplicado, el registro original) es durable.
+     */
+    public CompletableFuture<Receipt> append(String idempotencyKey, Payment payment) {
+        byte[] key = keyBytes(idempotencyKey);
+        byte[] payload = encode(key, payment);
+        if (HEADER_BYTES + payload.length > config.segmentBytes()) {
+            throw new IllegalArgumentException("Payment record larger than a journal segment");
+        }
+        long hash = KeyIndex.hash(key);
+        CompletableFuture<Receipt> done;
+        lock.lock();
+        try {
+            ensureOpen();
+            long existing = index.find(hash, key);
+            if (existing >= 0) {
+                duplicates++;
+                Receipt receipt = new Receipt(Status.DUPLICATE, existing);
+                if (existing < durablePosition) {
+                    return CompletableFuture.completedFuture(receipt);
+                }
+                done = waitForCommit(receipt);
+            } else {
+                long offset = reserve(HEADER_BYTES + payload.length);
+                write(offset, payload);
+                index.put(hash, offset);
+                appended++;
+                done = waitForCommit(new Receipt(Status.ACCEPTED, offset));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return done;
+    }
+
+    public boolean contains(String idempotencyKey) {
+        byte[] key = keyBytes(idempotencyKey);
+        lock.lock();
+        try {
+            ensureOpen();
+            return index.find(KeyIndex.hash(key), key) >= 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // El registro guardado con esta clave, o null si no hay ninguno
+    public Entry find(String idempotencyKey) {
+        byte[] key = keyBytes(idempotencyKey);
+        lock.lock();
+        try {
+            ensureOpen();
+            long offset = index.find(KeyIndex.hash(key), key);
+            if (offset < 0) {
+                return null;
+            }
+            MappedByteBuffer segment = segment(offset);
+            int within = (int) (offset % config.segmentBytes());
+            byte[] payload = new byte[segment.getInt(within)];
+            segment.get(within + HEADER_BYTES, payload);
+            return decode(offset, payload);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Recorre los pagos del diario en orden de llegada, p. ej. para reprocesarlos tras un reinicio
+    public void replay(long fromOffset, Consumer<Entry> consumer) {
+        long end;
+        lock.lock();
+        try {
+            ensureOpen();
+            end = writePosition;
+        } finally {
+            lock.unlock();
+        }
+        long position = fromOffset;
+        while (position < end) {
+            MappedByteBuffer segment = segment(position);
+            int within = (int) (position % config.segmentBytes());
+            int length = within + HEADER_BYTES <= config.segmentBytes() ? segment.getInt(within) : SEGMENT_END;
+            if (length == SEGMENT_END) {
+                position = nextSegment(position);
+                continue;
+            }
+            byte[] payload = new byte[length];
+            segment.get(within + HEADER_BYTES, payload);
+            consumer.accept(decode(position, payload));
+            position += HEADER_BYTES + length;
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(appended, duplicates, commits, recovered, writePosition);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            pending.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        index.free();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Tras close() la tabla de claves está liberada y el fichero cerrado
+    private void ensureOpen() {
+        if (!running) {
+            throw new IllegalStateException("Payment journal closed");
+        }
+    }
+
+    private CompletableFuture<Receipt> waitForCommit(Receipt receipt) {
+        CompletableFuture<Receipt> done = new CompletableFuture<>();
+        waiters.add(new Waiter(done, receipt));
+        // El primero en esperar abre el intervalo de commit; un lote lleno lo acorta
+        if (waiters.size() == 1 || waiters.size() >= config.maxBatch()) {
+            pending.signal();
+        }
+        return done;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<Waiter> batch;
+            List<DirtyRange> ranges;
+            long to;
+            lock.lock();
+            try {
+                while (running && waiters.isEmpty()) {
+                    pending.awaitUninterruptibly();
+                }
+                if (waiters.isEmpty()) {
+                    return;
+                }
+                long deadline = System.nanoTime() + commitNanos;
+                while (running && waiters.size() < config.maxBatch()) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        break;
+                    }
+                    pending.awaitNanos(left);
+                }
+                batch = waiters;
+                waiters = new ArrayList<>();
+                to = writePosition;
+                ranges = dirtyRanges(durablePosition, to);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            RuntimeException failure = null;
+            try {
+                for (DirtyRange range : ranges) {
+                    range.segment().force(range.from(), range.length());
+                }
+            } catch (UncheckedIOException e) {
+                failure = e;
+            }
+
+            lock.lock();
+            try {
+                if (failure == null) {
+                    durablePosition = Math.max(durablePosition, to);
+                    commits++;
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (Waiter waiter : batch) {
+                if (failure == null) {
+                    waiter.done().complete(waiter.receipt());
+                } else {
+                    waiter.done().completeExceptionally(failure);
+                }
+            }
+        }
+    }
+
+    private List<DirtyRange> dirtyRanges(long from, long to) {
+        List<DirtyRange> ranges = new ArrayList<>();
+        long position = from;
+        while (position < to) {
+            int within = (int) (position % config.segmentBytes());
+            int length = (int) Math.min(to - position, config.segmentBytes() - within);
+            ranges.add(new DirtyRange(segment(position), within, length));
+            position += length;
+        }
+        return ranges;
+    }
+
+    private long reserve(int recordBytes) {
+        int within = (int) (writePosition % config.segmentBytes());
+        if (within + recordBytes > config.segmentBytes()) {
+            if (within + Integer.BYTES <= config.segmentBytes()) {
+                segment(writePosition).putInt(within, SEGMENT_END);
+            }
+            writePosition = nextSegment(writePosition);
+        }
+        long offset = writePosition;
+        writePosition += recordBytes;
+        return offset;
+    }
+
+    private void write(long offset, byte[] payload) {
+        MappedByteBuffer segment = segment(offset);
+        int within = (int) (offset % config.segmentBytes());
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        segment.put(within + HEADER_BYTES, payload);
+        segment.putInt(within + Integer.BYTES, (int) crc.getValue());
+        segment.putInt(within, payload.length);
+    }
+
+    private MappedByteBuffer segment(long position) {
+        int number = (int) (position / config.segmentBytes());
+        while (segments.size() <= number) {
+            segments.add(map(segments.size()));
+        }
+        return segments.get(number);
+    }
+
+    private MappedByteBuffer map(int number) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, (long) number * config.segmentBytes(),
+              config.segmentBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map journal segment " + number, e);
+        }
+    }
+
+    private long nextSegment(long position) {
+        return (position / config.segmentBytes() + 1) * config.segmentBytes();
+    }
+
+    private void recover() throws IOException {
+        long fileSize = channel.size();
+        if (fileSize % config.segmentBytes() != 0) {
+            throw new IllegalStateException("Journal size is not a multiple of the configured segment size");
+        }
+        long position = 0;
+        CRC32C crc = new CRC32C();
+        while (position < fileSize) {
+            MappedByteBuffer segment = segment(position);
+            int within = (int) (position % config.segmentBytes());
+            int length = within + HEADER_BYTES <= config.segmentBytes() ? segment.getInt(within) : SEGMENT_END;
+            if (length == SEGMENT_END) {
+                position = nextSegment(position);
+                continue;
+            }
+            if (length <= 0 || within + HEADER_BYTES + length > config.segmentBytes()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            segment.get(within + HEADER_BYTES, payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != segment.getInt(within + Integer.BYTES)) {
+                break;
+            }
+            byte[] key = new byte[Short.toUnsignedInt(ByteBuffer.wrap(payload).getShort())];
+            System.arraycopy(payload, Short.BYTES, key, 0, key.length);
+            index.put(KeyIndex.hash(key), position);
+            recovered++;
+            position += HEADER_BYTES + length;
+        }
+        writePosition = position;
+        durablePosition = position;
+        if (position < fileSize) {
+            discardTail(position);
+        }
+    }
+
+    // Descarta lo que sigue al último registro válido, para que un registro viejo no reaparezca más tarde
+    private void discardTail(long position) throws IOException {
+        MappedByteBuffer segment = segment(position);
+        int within = (int) (position % config.segmentBytes());
+        channel.truncate(nextSegment(position));
+        while (segments.size() > position / config.segmentBytes() + 1) {
+            segments.remove(segments.size() - 1);
+        }
+        int i = within;
+        for (; i < config.segmentBytes() && (i & 7) != 0; i++) {
+            segment.put(i, (byte) 0);
+        }
+        for (; i + Long.BYTES <= config.segmentBytes(); i += Long.BYTES) {
+            if (segment.getLong(i) != 0) {
+                segment.putLong(i, 0);
+            }
+        }
+        for (; i < config.segmentBytes(); i++) {
+            segment.put(i, (byte) 0);
+        }
+        segment.force(within, config.segmentBytes() - within);
+    }
+
+    private static byte[] keyBytes(String idempotencyKey) {
+        byte[] key = idempotencyKey.getBytes(StandardCharsets.UTF_8);
+        if (key.length == 0 || key.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Idempotency key must be 1..65535 bytes");
+        }
+        return key;
+    }
+
+    private static byte[] encode(byte[] key, Payment payment) {
+        byte[] id = payment.getId() == null ? new byte[0] : payment.getId().getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Payment id must be at most 65535 bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Short.BYTES * 2 + key.length + id.length + 1 + Long.BYTES * 2);
+        buffer.putShort((short) key.length).put(key);
+        buffer.putShort((short) id.length).put(id);
+        buffer.put((byte) payment.getType().ordinal());
+        buffer.putLong(payment.getAmountCents());
+        buffer.putLong(System.currentTimeMillis());
+        return buffer.array();
+    }
+
+    private static Entry decode(long offset, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        byte[] key = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(key);
+        byte[] id = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(id);
+        PaymentType type = PaymentType.values()[buffer.get()];
+        long amountCents = buffer.getLong();
+        long timestamp = buffer.getLong();
+        Payment payment = new Payment(id.length == 0 ? null : new String(id, StandardCharsets.UTF_8), type, amountCents);
+        return new Entry(offset, new String(key, StandardCharsets.UTF_8), payment, timestamp);
+    }
+
+    // Cierto si el registro en offset lleva exactamente esta clave
+    private boolean keyAt(long offset, byte[] key) {
+        MappedByteBuffer segment = segment(offset);
+        int at = (int) (offset % config.segmentBytes()) + HEADER_BYTES;
+        if (Short.toUnsignedInt(segment.getShort(at)) != key.length) {
+            return false;
+        }
+        at += Short.BYTES;
+        for (int i = 0; i < key.length; i++) {
+            if (segment.get(at + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tabla fuera del heap con sondeo lineal: huecos de 16 bytes (hash de la clave, offset en el
+     * diario); un hash 0 marca un hueco vacío. Sólo se accede con el cerrojo del diario.
+     */
+    private final class KeyIndex {
+        private static final int SLOT_BYTES = 16;
+
+        private ByteBuffer slots;
+        private int mask;
+        private int size;
+
+        KeyIndex(int expectedKeys) {
+            allocate(Integer.highestOneBit(Math.max(16, expectedKeys * 2 - 1)) << 1);
+        }
+
+        long find(long hash, byte[] key) {
+            for (int slot = slotOf(hash); ; slot = (slot + 1) & mask) {
+                long stored = slots.getLong(slot * SLOT_BYTES);
+                if (stored == 0) {
+                    return -1;
+                }
+                if (stored == hash) {
+                    long offset = slots.getLong(slot * SLOT_BYTES + Long.BYTES);
+                    if (keyAt(offset, key)) {
+                        return offset;
+                    }
+                }
+            }
+        }
+
+        void put(long hash, long offset) {
+            if ((size + 1) * 10L > (mask + 1) * 7L) {
+                grow();
+            }
+            insert(hash, offset);
+            size++;
+        }
+
+        void free() {
+            slots = null;
+        }
+
+        private void insert(long hash, long offset) {
+            int slot = slotOf(hash);
+            while (slots.getLong(slot * SLOT_BYTES) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots.putLong(slot * SLOT_BYTES, hash);
+            slots.putLong(slot * SLOT_BYTES + Long.BYTES, offset);
+        }
+
+        private void grow() {
+            ByteBuffer old = slots;
+            int oldCapacity = mask + 1;
+            allocate(oldCapacity * 2);
+            for (int slot = 0; slot < oldCapacity; slot++) {
+                long hash = old.getLong(slot * SLOT_BYTES);
+                if (hash != 0) {
+                    insert(hash, old.getLong(slot * SLOT_BYTES + Long.BYTES));
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES);
+            mask = capacity - 1;
+        }
+
+        private int slotOf(long hash) {
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        // FNV-1a seguido del finalizador de murmur; nunca 0, que marca los huecos vacíos
+        static long hash(byte[] key) {
+            long h = 0xcbf29ce484222325L;
+            for (byte b : key) {
+                h ^= b;
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            return h == 0 ? 1 : h;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.gigabyte.labs.ocp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Carga contra {@link PaymentEngine} con proveedores stub: tarjeta rápida y con batch,
+ * PayPal lento y sin batch. Muestra que la lentitud de PayPal no afecta a las tarjetas.
+ * Uso: PaymentLoadTest [pagos]
+ */
+public class PaymentLoadTest {
+
+    public static void main(String[] args) {
+        int payments = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        Map<PaymentType, PaymentProcessorIfc> providers = Map.of(
+          PaymentType.CREDIT_CARD, new StubPaymentProvider(Duration.ofMillis(2), Duration.ofMillis(0), true, 0.001),
+          PaymentType.PAYPAL, new StubPaymentProvider(Duration.ofMillis(50), Duration.ZERO, false, 0.001));
+        Map<PaymentType, PaymentEngine.LaneConfig> configs = Map.of(
+          PaymentType.CREDIT_CARD, new PaymentEngine.LaneConfig(8, 4_096, 64, Duration.ofMillis(1)),
+          PaymentType.PAYPAL, new PaymentEngine.LaneConfig(16, 512, 1, Duration.ZERO));
+
+        try (PaymentEngine engine = new PaymentEngine(providers, configs)) {
+            List<CompletableFuture<Payment>> results = new ArrayList<>(payments);
+            long startTime = System.nanoTime();
+            for (int i = 0; i < payments; i++) {
+                PaymentType type = i % 5 == 0 ? PaymentType.PAYPAL : PaymentType.CREDIT_CARD;
+                results.add(engine.submit(new Payment("pay-" + i, type, 1_000 + i)));
+            }
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            System.out.printf("%d pagos en %.2f s%n", payments, seconds);
+            engine.stats().forEach(stats -> System.out.println(stats.type() + ": completados=" + stats.completed()
+              + " fallidos=" + stats.failed() + " rechazados=" + stats.rejected() + " cola=" + stats.queueDepth()
+              + " latencia[" + stats.latency() + "]"));
+        }
+    }
+}
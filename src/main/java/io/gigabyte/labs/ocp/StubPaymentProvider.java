@@ -0,0 +1,64 @@
+package io.gigabyte.labs.ocp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Sustituto local de un proveedor de pagos: latencia fija por llamada más un pequeño coste por pago del lote;
+// cada pago se rechaza por separado con probabilidad failureRate
+class StubPaymentProvider implements PaymentProcessorIfc {
+    private final Duration callLatency;
+    private final Duration perPaymentLatency;
+    private final boolean batching;
+    private final double failureRate;
+
+    StubPaymentProvider(Duration callLatency, Duration perPaymentLatency, boolean batching, double failureRate) {
+        this.callLatency = callLatency;
+        this.perPaymentLatency = perPaymentLatency;
+        this.batching = batching;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public void processPayment(Payment payment) {
+        call(1);
+        RuntimeException declined = decide();
+        if (declined != null) {
+            throw declined;
+        }
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return batching;
+    }
+
+    @Override
+    public List<RuntimeException> processPayments(List<Payment> payments) {
+        if (!batching) {
+            return PaymentProcessorIfc.super.processPayments(payments);
+        }
+        call(payments.size());
+        List<RuntimeException> outcomes = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            outcomes.add(decide());
+        }
+        return outcomes;
+    }
+
+    private void call(int payments) {
+        try {
+            Thread.sleep(callLatency.plus(perPaymentLatency.multipliedBy(payments)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private RuntimeException decide() {
+        return ThreadLocalRandom.current().nextDouble() < failureRate
+          ? new IllegalStateException("Provider declined the payment")
+          : null;
+    }
+}
@@ -0,0 +1,169 @@
+package io.gigabyte.labs.ocp.live;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Caché de resultados delante de cualquier {@link Filter}, para un catálogo que se consulta mucho
+ * más de lo que cambia. Las especificaciones se canonicalizan antes de buscarlas: las
+ * {@link AndSpecification} anidadas se aplanan en un conjunto de hojas, así que el orden de los
+ * operandos, el anidamiento y los criterios repetidos llevan a la misma entrada. Al llegar a
+ * {@code maxEntries} se expulsa la menos usada (LRU).
+ * <p>
+ * Quien llama avisa de los cambios del catálogo con {@link #productAdded}, {@link #productUpdated}
+ * y {@link #productRemoved}. Sólo se descartan las entradas cuyos criterios de color/talla/nombre
+ * cumple el producto cambiado (antes o después del cambio); las que además tienen criterios que la
+ * caché no sabe inspeccionar se descartan siempre que coincidan los conocidos, para no equivocarse.
+ */
+class CachingFilter implements Filter<Product> {
+
+    public record Stats(long hits, long misses, long evictions, long invalidations, int size) {
+    }
+
+    private record CanonicalSpec(Set<Object> leaves) {
+    }
+
+    private record Entry(List<Product> items, List<Product> result) {
+    }
+
+    private final Filter<Product> delegate;
+    private final int maxEntries;
+    private final LinkedHashMap<CanonicalSpec, Entry> entries;
+    // Hoja conocida -> claves que la contienen, para que un cambio sólo mire las claves que puede afectar
+    private final Map<Object, Set<CanonicalSpec>> byLeaf = new HashMap<>();
+    // Claves sin ninguna hoja inspeccionable: cualquier cambio puede afectarlas
+    private final Set<CanonicalSpec> opaqueOnly = new HashSet<>();
+
+    // Sube con cada cambio avisado; un resultado calculado mientras hubo un cambio no se guarda
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CachingFilter(Filter<Product> delegate, int maxEntries) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public Stream<Product> filter(List<Product> items, Specification<Product> spec) {
+        CanonicalSpec key = canonicalize(spec);
+        long seen;
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null && cached.items() == items) {
+                hits.increment();
+                return cached.result().stream();
+            }
+            seen = generation;
+        }
+        misses.increment();
+        List<Product> result = delegate.filter(items, spec).toList();
+        synchronized (this) {
+            if (generation == seen) {
+                put(key, new Entry(items, result));
+            }
+        }
+        return result.stream();
+    }
+
+    public void productAdded(Product product) {
+        invalidateMatching(product);
+    }
+
+    // before: copia de los campos del producto antes del cambio
+    public void productUpdated(Product before, Product after) {
+        invalidateMatching(before);
+        invalidateMatching(after);
+    }
+
+    public void productRemoved(Product product) {
+        invalidateMatching(product);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidations.add(entries.size());
+        entries.clear();
+        byLeaf.clear();
+        opaqueOnly.clear();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), entries.size());
+    }
+
+    static CanonicalSpec canonicalize(Specification<Product> spec) {
+        return new CanonicalSpec(SpecificationLeaves.of(spec));
+    }
+
+    private void put(CanonicalSpec key, Entry entry) {
+        if (entries.put(key, entry) == null) {
+            index(key);
+        }
+        if (entries.size() > maxEntries) {
+            Iterator<Map.Entry<CanonicalSpec, Entry>> eldest = entries.entrySet().iterator();
+            CanonicalSpec evicted = eldest.next().getKey();
+            eldest.remove();
+            unindex(evicted);
+            evictions.increment();
+        }
+    }
+
+    private void index(CanonicalSpec key) {
+        boolean known = false;
+        for (Object leaf : key.leaves()) {
+            if (SpecificationLeaves.isKnown(leaf)) {
+                byLeaf.computeIfAbsent(leaf, l -> new HashSet<>()).add(key);
+                known = true;
+            }
+        }
+        if (!known) {
+            opaqueOnly.add(key);
+        }
+    }
+
+    private void unindex(CanonicalSpec key) {
+        for (Object leaf : key.leaves()) {
+            Set<CanonicalSpec> keys = byLeaf.get(leaf);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                byLeaf.remove(leaf);
+            }
+        }
+        opaqueOnly.remove(key);
+    }
+
+    private synchronized void invalidateMatching(Product product) {
+        generation++;
+        Set<Object> productLeaves = SpecificationLeaves.of(product);
+        List<CanonicalSpec> affected = new ArrayList<>(opaqueOnly);
+        for (Object leaf : productLeaves) {
+            Set<CanonicalSpec> keys = byLeaf.get(leaf);
+            if (keys == null) {
+                continue;
+            }
+            for (CanonicalSpec key : keys) {
+                if (SpecificationLeaves.knownLeavesMatch(key.leaves(), productLeaves)) {
+                    affected.add(key);
+                }
+            }
+        }
+        for (CanonicalSpec key : affected) {
+            if (entries.remove(key) != null) {
+                unindex(key);
+                invalidations.increment();
+            }
+        }
+    }
+}
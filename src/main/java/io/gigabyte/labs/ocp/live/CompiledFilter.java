@@ -0,0 +1,183 @@
+package io.gigabyte.labs.ocp.live;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Sustituto de {@link BetterFilter} que compila el árbol de especificaciones en lugar de llamar a
+ * {@code isSatisfied} por producto. Las {@link AndSpecification} anidadas se aplanan; los criterios
+ * de color y talla se convierten en AND de bitsets sobre un {@link ProductIndex}, los de nombre usan
+ * el índice de nombres normalizados, y cualquier otra especificación queda como comprobación residual
+ * sobre las filas que sobreviven. El criterio más selectivo guía el recorrido. Devuelve los mismos
+ * productos, en el mismo orden, que {@link BetterFilter}.
+ * <p>
+ * El índice se construye en la primera consulta contra una lista y se reutiliza mientras llegue la
+ * misma lista y no cambie el contador de modificaciones. Ni la lista ni los campos públicos de
+ * {@link Product} avisan de sus cambios, así que quien los modifique debe incrementar ese contador
+ * o llamar a {@link #invalidate()}.
+ */
+class CompiledFilter implements Filter<Product> {
+    private final LongSupplier modCount;
+    private ProductIndex index;
+    private long indexedModCount;
+
+    // Sin contador: el índice sólo se descarta con invalidate() o si cambia la lista o su tamaño
+    public CompiledFilter() {
+        this(() -> 0);
+    }
+
+    // modCount: contador de modificaciones del catálogo, que su dueño incrementa en cada cambio
+    public CompiledFilter(LongSupplier modCount) {
+        this.modCount = modCount;
+    }
+
+    @Override
+    public Stream<Product> filter(List<Product> items, Specification<Product> spec) {
+        return compile(indexFor(items), spec).execute().stream();
+    }
+
+    public synchronized void invalidate() {
+        index = null;
+    }
+
+    synchronized ProductIndex indexFor(List<Product> items) {
+        long current = modCount.getAsLong();
+        if (index == null || index.products() != items || index.size() != items.size() || indexedModCount != current) {
+            index = new ProductIndex(items);
+            indexedModCount = current;
+        }
+        return index;
+    }
+
+    static Plan compile(ProductIndex index, Specification<Product> spec) {
+        List<Specification<Product>> leaves = new ArrayList<>();
+        flatten(spec, leaves);
+        Plan plan = new Plan(index);
+        for (Specification<Product> leaf : leaves) {
+            // Un color o una talla null seleccionan, como en BetterFilter, los productos sin ese campo
+            if (leaf instanceof ColorSpecification c) {
+                plan.bitsets.add(new Bits(index.colorBits(c.getColor()), index.colorCount(c.getColor())));
+            } else if (leaf instanceof SizeSpecification s) {
+                plan.bitsets.add(new Bits(index.sizeBits(s.getSize()), index.sizeCount(s.getSize())));
+            } else if (leaf instanceof NameSpecification n) {
+                if (n.getName() == null) {
+                    // equalsIgnoreCase(null) nunca se cumple
+                    plan.empty = true;
+                } else {
+                    plan.names.add(ProductIndex.fold(n.getName()));
+                }
+            } else {
+                plan.residuals.add(leaf);
+            }
+        }
+        plan.bitsets.sort(Comparator.comparingInt(Bits::cardinality));
+        return plan;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void flatten(Specification<Product> spec, List<Specification<Product>> leaves) {
+        if (spec instanceof AndSpecification<?> and) {
+            flatten((Specification<Product>) and.getFirst(), leaves);
+            flatten((Specification<Product>) and.getSecond(), leaves);
+        } else {
+            leaves.add(spec);
+        }
+    }
+
+    private record Bits(long[] words, int cardinality) {
+    }
+
+    static final class Plan {
+        private final ProductIndex index;
+        private final List<Bits> bitsets = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<Specification<Product>> residuals = new ArrayList<>();
+        private boolean empty;
+
+        private Plan(ProductIndex index) {
+            this.index = index;
+        }
+
+        List<Product> execute() {
+            return execute(0, index.size());
+        }
+
+        // Coincidencias entre las filas [from, to), en orden de fila
+        List<Product> execute(int from, int to) {
+            List<Product> out = new ArrayList<>();
+            if (empty) {
+                return out;
+            }
+            int[] namedRows = names.isEmpty() ? null : index.rowsNamed(names.get(0));
+            boolean nameDrives = namedRows != null && (bitsets.isEmpty() || namedRows.length < bitsets.get(0).cardinality());
+            if (nameDrives) {
+                for (int row : namedRows) {
+                    if (row >= from && row < to && matchesBits(row) && matchesNames(row, 1) && matchesResiduals(row)) {
+                        out.add(index.products().get(row));
+                    }
+                }
+            } else if (!bitsets.isEmpty()) {
+                scanBitsets(from, to, out);
+            } else {
+                for (int row = from; row < to; row++) {
+                    if (matchesNames(row, 0) && matchesResiduals(row)) {
+                        out.add(index.products().get(row));
+                    }
+                }
+            }
+            return out;
+        }
+
+        private void scanBitsets(int from, int to, List<Product> out) {
+            int bitsetCount = bitsets.size();
+            long[][] words = new long[bitsetCount][];
+            for (int i = 0; i < bitsetCount; i++) {
+                words[i] = bitsets.get(i).words();
+            }
+            for (int w = from >>> 6, lastWord = (to - 1) >>> 6; w <= lastWord && to > from; w++) {
+                long acc = words[0][w];
+                for (int i = 1; i < bitsetCount && acc != 0; i++) {
+                    acc &= words[i][w];
+                }
+                while (acc != 0) {
+                    int row = (w << 6) + Long.numberOfTrailingZeros(acc);
+                    acc &= acc - 1;
+                    if (row >= from && row < to && matchesNames(row, 0) && matchesResiduals(row)) {
+                        out.add(index.products().get(row));
+                    }
+                }
+            }
+        }
+
+        private boolean matchesBits(int row) {
+            for (Bits bits : bitsets) {
+                if ((bits.words()[row >>> 6] & (1L << row)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchesNames(int row, int fromName) {
+            for (int i = fromName; i < names.size(); i++) {
+                if (!names.get(i).equals(index.foldedNameAt(row))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchesResiduals(int row) {
+            Product product = index.products().get(row);
+            for (Specification<Product> residual : residuals) {
+                if (!residual.isSatisfied(product)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
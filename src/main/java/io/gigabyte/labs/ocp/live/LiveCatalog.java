@@ -0,0 +1,150 @@
+package io.gigabyte.labs.ocp.live;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Catálogo de productos con consultas permanentes. Una {@link Specification} se registra una vez,
+ * se evalúa contra el catálogo una sola vez y a partir de ahí su resultado se mantiene de forma
+ * incremental: cada alta, cambio o baja sólo se prueba contra las consultas a las que puede afectar,
+ * y los suscriptores reciben los deltas de altas y bajas resultantes.
+ * <p>
+ * Cada consulta se indexa bajo uno de sus criterios de color/talla/nombre (el tipo más selectivo que
+ * tenga). Un producto sólo puede cumplir una consulta si tiene ese criterio, así que un cambio mira
+ * como mucho tres cubos del índice más las consultas sin criterio indexable. Los listeners corren en
+ * el hilo que hace el cambio, con el cerrojo del catálogo tomado.
+ */
+class LiveCatalog {
+
+    interface DeltaListener {
+        void onAdded(Product product);
+
+        void onRemoved(Product product);
+    }
+
+    public final class StandingQuery {
+        private final Specification<Product> spec;
+        private final Set<Object> leaves;
+        private final Object anchor;
+        private final DeltaListener listener;
+        private final Set<Product> members = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private StandingQuery(Specification<Product> spec, DeltaListener listener) {
+            this.spec = spec;
+            this.leaves = SpecificationLeaves.of(spec);
+            this.anchor = pickAnchor(leaves);
+            this.listener = listener;
+        }
+
+        public List<Product> results() {
+            synchronized (LiveCatalog.this) {
+                return List.copyOf(members);
+            }
+        }
+
+        public void cancel() {
+            synchronized (LiveCatalog.this) {
+                unindex(this);
+            }
+        }
+
+        private void reevaluate(Product product) {
+            boolean wasMember = members.contains(product);
+            boolean matches = products.contains(product)
+              && SpecificationLeaves.knownLeavesMatch(leaves, SpecificationLeaves.of(product))
+              && spec.isSatisfied(product);
+            if (matches && !wasMember) {
+                members.add(product);
+                listener.onAdded(product);
+            } else if (!matches && wasMember) {
+                members.remove(product);
+                listener.onRemoved(product);
+            }
+        }
+    }
+
+    private final Set<Product> products = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Object, List<StandingQuery>> byAnchor = new HashMap<>();
+    private final List<StandingQuery> unanchored = new ArrayList<>();
+
+    public synchronized StandingQuery subscribe(Specification<Product> spec, DeltaListener listener) {
+        StandingQuery query = new StandingQuery(spec, listener);
+        for (Product product : products) {
+            query.reevaluate(product);
+        }
+        if (query.anchor == null) {
+            unanchored.add(query);
+        } else {
+            byAnchor.computeIfAbsent(query.anchor, a -> new ArrayList<>()).add(query);
+        }
+        return query;
+    }
+
+    public synchronized void add(Product product) {
+        if (products.add(product)) {
+            affectedBy(product).forEach(query -> query.reevaluate(product));
+        }
+    }
+
+    // Aplica el cambio a través del catálogo para que las consultas vean el producto antes y después
+    public synchronized void update(Product product, Consumer<Product> change) {
+        Set<StandingQuery> affected = affectedBy(product);
+        change.accept(product);
+        affected.addAll(affectedBy(product));
+        affected.forEach(query -> query.reevaluate(product));
+    }
+
+    public synchronized void remove(Product product) {
+        if (products.remove(product)) {
+            affectedBy(product).forEach(query -> query.reevaluate(product));
+        }
+    }
+
+    public synchronized int size() {
+        return products.size();
+    }
+
+    private Set<StandingQuery> affectedBy(Product product) {
+        Set<StandingQuery> affected = new LinkedHashSet<>(unanchored);
+        for (Object leaf : SpecificationLeaves.of(product)) {
+            List<StandingQuery> queries = byAnchor.get(leaf);
+            if (queries != null) {
+                affected.addAll(queries);
+            }
+        }
+        return affected;
+    }
+
+    private void unindex(StandingQuery query) {
+        if (query.anchor == null) {
+            unanchored.remove(query);
+            return;
+        }
+        List<StandingQuery> queries = byAnchor.get(query.anchor);
+        if (queries != null && queries.remove(query) && queries.isEmpty()) {
+            byAnchor.remove(query.anchor);
+        }
+    }
+
+    // Los nombres son casi únicos; tallas y colores parten el catálogo en unos pocos cubos
+    private static Object pickAnchor(Set<Object> leaves) {
+        Object anchor = null;
+        for (Object leaf : leaves) {
+            if (leaf instanceof SpecificationLeaves.NameLeaf) {
+                return leaf;
+            }
+            if (leaf instanceof SpecificationLeaves.SizeLeaf
+              || (leaf instanceof SpecificationLeaves.ColorLeaf && anchor == null)) {
+                anchor = leaf;
+            }
+        }
+        return anchor;
+    }
+}
@@ -25,24 +25,36 @@ class Product {
 }
 
 class ProductFilter {
+    private final ExecutionMode mode;
+    private final boolean ordered;
+
+    public ProductFilter() {
+        this(ExecutionMode.SEQUENTIAL, true);
+    }
+
+    public ProductFilter(ExecutionMode mode, boolean ordered) {
+        this.mode = mode;
+        this.ordered = ordered;
+    }
+
     public Stream<Product> filterByColor(List<Product> products, Color color) {
-        return products.stream().filter(p -> p.color == color);
+        return filter(products, p -> p.color == color);
     }
 
     public Stream<Product> filterBySize(List<Product> products, Size size) {
-        return products.stream().filter(p -> p.size == size);
+        return filter(products, p -> p.size == size);
     }
 
     public Stream<Product> filterBySizeAndColor(List<Product> products, Size size, Color color) {
-        return products.stream().filter(p -> p.size == size && p.color == color);
+        return filter(products, p -> p.size == size && p.color == color);
     }
 
     public Stream<Product> filterBySizeAndName(List<Product> products, Size size, String name) {
-        return products.stream().filter(p -> p.size == size && p.name.equalsIgnoreCase(name));
+        return filter(products, p -> p.size == size && p.name.equalsIgnoreCase(name));
     }
 
     public Stream<Product> filter(List<Product> products, Predicate<Product> predicate) {
-        return products.stream().filter(predicate);
+        return ParallelFiltering.filter(products, predicate, mode, ordered);
     }
     // state space explosion
     // 3 criteria = 7 methods
@@ -64,6 +76,10 @@ class ColorSpecification implements Specification<Product> {
         this.color = color;
     }
 
+    public Color getColor() {
+        return color;
+    }
+
     @Override
     public boolean isSatisfied(Product p) {
         return p.color == color;
@@ -77,6 +93,10 @@ class SizeSpecification implements Specification<Product> {
         this.size = size;
     }
 
+    public Size getSize() {
+        return size;
+    }
+
     @Override
     public boolean isSatisfied(Product p) {
         return p.size == size;
@@ -90,6 +110,10 @@ class NameSpecification implements Specification<Product> {
         this.name = name;
     }
 
+    public String getName() {
+        return name;
+    }
+
     @Override
     public boolean isSatisfied(Product p) {
         return p.name.equalsIgnoreCase(name);
@@ -104,6 +128,14 @@ class AndSpecification<T> implements Specification<T> {
         this.second = second;
     }
 
+    public Specification<T> getFirst() {
+        return first;
+    }
+
+    public Specification<T> getSecond() {
+        return second;
+    }
+
     @Override
     public boolean isSatisfied(T item) {
         return first.isSatisfied(item) && second.isSatisfied(item);
@@ -112,9 +144,21 @@ class AndSpecification<T> implements Specification<T> {
 }
 
 class BetterFilter implements Filter<Product> {
+    private final ExecutionMode mode;
+    private final boolean ordered;
+
+    public BetterFilter() {
+        this(ExecutionMode.SEQUENTIAL, true);
+    }
+
+    public BetterFilter(ExecutionMode mode, boolean ordered) {
+        this.mode = mode;
+        this.ordered = ordered;
+    }
+
     @Override
     public Stream<Product> filter(List<Product> items, Specification<Product> spec) {
-        return items.stream().filter(p -> spec.isSatisfied(p));
+        return ParallelFiltering.filter(items, spec::isSatisfied, mode, ordered);
     }
 }
 
@@ -0,0 +1,131 @@
+package io.gigabyte.labs.ocp.live;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+enum ExecutionMode {
+    SEQUENTIAL,
+    PARALLEL,
+    // En paralelo sólo cuando el coste estimado del recorrido compensa el del fork-join
+    ADAPTIVE
+}
+
+/**
+ * Filtrado común a {@link ProductFilter} y {@link BetterFilter}. En paralelo una lista de acceso
+ * aleatorio se parte con {@link ChunkSpliterator} en tramos contiguos y largos.
+ * En modo ADAPTIVE se cronometra el predicado sobre los primeros elementos y el recorrido sólo pasa
+ * a paralelo cuando tamaño × coste por elemento supera {@link #PARALLEL_THRESHOLD_NANOS}. Los
+ * resultados de esa muestra se aprovechan: el predicado se evalúa una sola vez por elemento, lo
+ * que importa si tiene efectos o cuenta llamadas.
+ * La salida sin orden permite que las operaciones siguientes (findAny, limit, collect) no tengan
+ * que conservar el orden de encuentro.
+ */
+final class ParallelFiltering {
+    // Granularidad de los cortes, en índices
+    static final int CUT_ALIGNMENT = 16;
+    // Trozo mínimo que recibe una tarea fork-join
+    static final int MIN_CHUNK = CUT_ALIGNMENT * 64;
+    static final long PARALLEL_THRESHOLD_NANOS = 250_000;
+    private static final int SAMPLE_SIZE = 64;
+
+    private ParallelFiltering() {
+    }
+
+    static <T> Stream<T> filter(List<T> items, Predicate<? super T> predicate, ExecutionMode mode, boolean ordered) {
+        Stream<T> sampledMatches = null;
+        List<T> rest = items;
+        boolean parallel = mode == ExecutionMode.PARALLEL;
+        if (mode == ExecutionMode.ADAPTIVE && items.size() >= 2 * MIN_CHUNK
+          && Runtime.getRuntime().availableProcessors() >= 2) {
+            List<T> matches = new ArrayList<>();
+            // Muestra de la cabeza con el iterador, que también es lineal en una LinkedList
+            int sampled = 0;
+            long start = System.nanoTime();
+            for (Iterator<T> it = items.iterator(); sampled < SAMPLE_SIZE; sampled++) {
+                T item = it.next();
+                if (predicate.test(item)) {
+                    matches.add(item);
+                }
+            }
+            long perItem = Math.max(1, (System.nanoTime() - start) / sampled);
+            parallel = perItem * items.size() > PARALLEL_THRESHOLD_NANOS;
+            sampledMatches = matches.stream();
+            rest = items.subList(sampled, items.size());
+        }
+        Stream<T> stream = parallel && rest instanceof RandomAccess
+          ? StreamSupport.stream(new ChunkSpliterator<>(rest, 0, rest.size()), true)
+          : parallel ? rest.parallelStream() : rest.stream();
+        stream = stream.filter(predicate);
+        if (sampledMatches != null) {
+            // La muestra es la cabeza de la lista, así que va delante y se conserva el orden
+            stream = Stream.concat(parallel ? sampledMatches.parallel() : sampledMatches, stream);
+        }
+        return ordered ? stream : stream.unordered();
+    }
+
+    /**
+     * Spliterator sobre una lista de acceso aleatorio que corta en índices múltiplos de
+     * {@link #CUT_ALIGNMENT} y nunca por debajo de {@link #MIN_CHUNK} elementos. No alinea con las
+     * líneas de caché reales (la cabecera del array y una subList desplazan el índice 0), ni le hace
+     * falta: las tareas sólo leen referencias, así que compartir la línea de un borde no provoca
+     * false sharing.
+     */
+    static final class ChunkSpliterator<T> implements Spliterator<T> {
+        private final List<T> items;
+        private int index;
+        private final int end;
+
+        ChunkSpliterator(List<T> items, int from, int to) {
+            this.items = items;
+            this.index = from;
+            this.end = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index >= end) {
+                return false;
+            }
+            action.accept(items.get(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (int i = index; i < end; i++) {
+                action.accept(items.get(i));
+            }
+            index = end;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int remaining = end - index;
+            if (remaining < 2 * MIN_CHUNK) {
+                return null;
+            }
+            int mid = index + (remaining >>> 1);
+            mid -= mid % CUT_ALIGNMENT;
+            Spliterator<T> prefix = new ChunkSpliterator<>(items, index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+}
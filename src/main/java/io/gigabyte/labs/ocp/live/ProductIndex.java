@@ -0,0 +1,112 @@
+package io.gigabyte.labs.ocp.live;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índices por columna sobre una lista de productos, construidos una vez y reutilizados por muchas
+ * consultas: un bitset por {@link Color} y por {@link Size} (más uno para los null), y una lista de
+ * filas por nombre normalizado. Las filas son posiciones en la lista, así que todos los índices
+ * devuelven las coincidencias en el orden de la lista.
+ */
+class ProductIndex {
+    private final List<Product> products;
+    private final long[][] byColor;
+    private final int[] colorCounts;
+    private final long[][] bySize;
+    private final int[] sizeCounts;
+    private final String[] foldedNames;
+    private final Map<String, int[]> byName;
+
+    ProductIndex(List<Product> products) {
+        this.products = products;
+        int n = products.size();
+        int words = (n + 63) >>> 6;
+        byColor = new long[Color.values().length + 1][words];
+        colorCounts = new int[Color.values().length + 1];
+        bySize = new long[Size.values().length + 1][words];
+        sizeCounts = new int[Size.values().length + 1];
+        foldedNames = new String[n];
+        Map<String, int[]> postings = new HashMap<>();
+        Map<String, Integer> postingSizes = new HashMap<>();
+        for (int row = 0; row < n; row++) {
+            Product p = products.get(row);
+            byColor[slot(p.color)][row >>> 6] |= 1L << row;
+            colorCounts[slot(p.color)]++;
+            bySize[slot(p.size)][row >>> 6] |= 1L << row;
+            sizeCounts[slot(p.size)]++;
+            String key = fold(p.name);
+            foldedNames[row] = key;
+            int count = postingSizes.merge(key, 1, Integer::sum);
+            int[] rows = postings.get(key);
+            if (rows == null || rows.length < count) {
+                rows = rows == null ? new int[1] : Arrays.copyOf(rows, rows.length * 2);
+                postings.put(key, rows);
+            }
+            rows[count - 1] = row;
+        }
+        postings.replaceAll((key, rows) -> Arrays.copyOf(rows, postingSizes.get(key)));
+        this.byName = postings;
+    }
+
+    /**
+     * Normalización de mayúsculas coherente con {@link String#equalsIgnoreCase}: dos textos son
+     * iguales ignorando mayúsculas exactamente cuando sus formas normalizadas son iguales.
+     */
+    static String fold(String s) {
+        if (s == null) {
+            return null;
+        }
+        StringBuilder folded = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); ) {
+            int cp = s.codePointAt(i);
+            folded.appendCodePoint(Character.toLowerCase(Character.toUpperCase(cp)));
+            i += Character.charCount(cp);
+        }
+        return folded.toString();
+    }
+
+    List<Product> products() {
+        return products;
+    }
+
+    int size() {
+        return products.size();
+    }
+
+    long[] colorBits(Color color) {
+        return byColor[slot(color)];
+    }
+
+    int colorCount(Color color) {
+        return colorCounts[slot(color)];
+    }
+
+    long[] sizeBits(Size size) {
+        return bySize[slot(size)];
+    }
+
+    int sizeCount(Size size) {
+        return sizeCounts[slot(size)];
+    }
+
+    int[] rowsNamed(String foldedName) {
+        int[] rows = byName.get(foldedName);
+        return rows == null ? new int[0] : rows;
+    }
+
+    String foldedNameAt(int row) {
+        return foldedNames[row];
+    }
+
+    // Los null van en el hueco que sigue al último valor del enum
+    private static int slot(Color color) {
+        return color == null ? Color.values().length : color.ordinal();
+    }
+
+    private static int slot(Size size) {
+        return size == null ? Size.values().length : size.ordinal();
+    }
+}
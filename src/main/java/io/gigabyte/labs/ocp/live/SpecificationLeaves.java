@@ -0,0 +1,65 @@
+package io.gigabyte.labs.ocp.live;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Vista aplanada de una especificación: el conjunto de sus hojas unidas con And. Los criterios de
+ * color, talla y nombre pasan a ser records de valor que se comparan con las hojas del propio
+ * producto sin llamar a {@code isSatisfied}; cualquier otra especificación se guarda tal cual y se
+ * compara por identidad.
+ */
+final class SpecificationLeaves {
+
+    record ColorLeaf(Color color) {
+    }
+
+    record SizeLeaf(Size size) {
+    }
+
+    record NameLeaf(String foldedName) {
+    }
+
+    private SpecificationLeaves() {
+    }
+
+    static Set<Object> of(Specification<Product> spec) {
+        Set<Object> leaves = new HashSet<>();
+        collect(spec, leaves);
+        return Set.copyOf(leaves);
+    }
+
+    // Las hojas que cumple un producto: una especificación sólo puede cumplirse si todas sus hojas conocidas están aquí
+    static Set<Object> of(Product product) {
+        return Set.of(new ColorLeaf(product.color), new SizeLeaf(product.size), new NameLeaf(ProductIndex.fold(product.name)));
+    }
+
+    static boolean isKnown(Object leaf) {
+        return leaf instanceof ColorLeaf || leaf instanceof SizeLeaf || leaf instanceof NameLeaf;
+    }
+
+    static boolean knownLeavesMatch(Set<Object> specLeaves, Set<Object> productLeaves) {
+        for (Object leaf : specLeaves) {
+            if (isKnown(leaf) && !productLeaves.contains(leaf)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collect(Specification<Product> spec, Set<Object> leaves) {
+        if (spec instanceof AndSpecification<?> and) {
+            collect((Specification<Product>) and.getFirst(), leaves);
+            collect((Specification<Product>) and.getSecond(), leaves);
+        } else if (spec instanceof ColorSpecification c) {
+            leaves.add(new ColorLeaf(c.getColor()));
+        } else if (spec instanceof SizeSpecification s) {
+            leaves.add(new SizeLeaf(s.getSize()));
+        } else if (spec instanceof NameSpecification n && n.getName() != null) {
+            leaves.add(new NameLeaf(ProductIndex.fold(n.getName())));
+        } else {
+            leaves.add(spec);
+        }
+    }
+}
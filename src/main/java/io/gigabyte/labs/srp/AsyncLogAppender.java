@@ -0,0 +1,291 @@
+package io.gigabyte.labs.srp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Backend de log no bloqueante para {@link LoggingService} y {@link LogService}.
+ * <p>
+ * Los productores reservan un hueco en un anillo preasignado con un CAS y copian en él la plantilla
+ * y sus argumentos, nada más. Un único hilo escritor formatea los mensajes (marcadores {@code {}})
+ * y los añade al fichero por lotes a través de un {@link FileChannel}.
+ * Con el anillo lleno, la {@link OverflowPolicy} decide si el llamante espera, si el mensaje se
+ * descarta o si sólo pasa una muestra. Cada mensaje acaba contado en {@link #writtenCount()} o en
+ * {@link #droppedCount()}, también los que llegan durante el cierre.
+ */
+public class AsyncLogAppender implements AutoCloseable {
+
+    public enum OverflowPolicy {
+        // Espera a que el escritor libere un hueco
+        BLOCK,
+        // Descarta el mensaje si el anillo está lleno
+        DROP,
+        // A partir de 3/4, deja pasar un mensaje de cada sampleRate; lleno, descarta
+        SAMPLE
+    }
+
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+    private static final long IDLE_PARK_NANOS = 100_000;
+    // Valor de claimed tras el cierre: ningún productor puede reservar ya
+    private static final long SEALED = Long.MAX_VALUE;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final OverflowPolicy policy;
+    private final int sampleRate;
+    private final long sampleThreshold;
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    private final FileChannel channel;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Mensajes completos en el buffer del escritor, aún sin escribir; sólo lo toca el escritor
+    private int buffered;
+
+    public AsyncLogAppender(Path file, int capacity, OverflowPolicy policy) {
+        this(file, capacity, policy, 10);
+    }
+
+    public AsyncLogAppender(Path file, int capacity, OverflowPolicy policy, int sampleRate) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.policy = policy;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.sampleThreshold = capacity - (capacity >> 2);
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.writer = Thread.ofPlatform().name("async-log-writer").daemon().unstarted(this::drain);
+        this.writer.start();
+    }
+
+    public void append(String template) {
+        publish(template, null, null, null, 0);
+    }
+
+    public void append(String template, Object arg0) {
+        publish(template, arg0, null, null, 1);
+    }
+
+    public void append(String template, Object arg0, Object arg1) {
+        publish(template, arg0, arg1, null, 2);
+    }
+
+    public void append(String template, Object arg0, Object arg1, Object arg2) {
+        publish(template, arg0, arg1, arg2, 3);
+    }
+
+    // Mensajes perdidos por DROP, SAMPLE, el cierre o un error de escritura
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public long writtenCount() {
+        return written.sum();
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+            channel.force(false);
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void publish(String template, Object arg0, Object arg1, Object arg2, int argCount) {
+        if (template == null) {
+            throw new IllegalArgumentException("template is required");
+        }
+        long seq;
+        while (true) {
+            if (!running) {
+                dropped.increment();
+                return;
+            }
+            seq = claimed.get();
+            long used = seq - consumed.get();
+            if (used >= slots.length) {
+                if (policy == OverflowPolicy.BLOCK) {
+                    LockSupport.parkNanos(1_000);
+                    continue;
+                }
+                dropped.increment();
+                return;
+            }
+            if (policy == OverflowPolicy.SAMPLE && used >= sampleThreshold
+              && sampleCounter.getAndIncrement() % sampleRate != 0) {
+                dropped.increment();
+                return;
+            }
+            // Falla si el escritor ya ha sellado claimed; la vuelta siguiente ve !running y lo cuenta
+            if (claimed.compareAndSet(seq, seq + 1)) {
+                break;
+            }
+        }
+        int index = (int) (seq & mask);
+        slots[index].set(System.currentTimeMillis(), template, arg0, arg1, arg2, argCount);
+        published.lazySet(index, seq);
+    }
+
+    private void drain() {
+        StringBuilder line = new StringBuilder(256);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        long next = consumed.get();
+        while (true) {
+            int index = (int) (next & mask);
+            if (published.get(index) != next) {
+                // Nada listo (o un productor a medio copiar): se vuelca lo que hay y se espera
+                writeOut(buffer);
+                long claimedNow = claimed.get();
+                if (next < claimedNow) {
+                    Thread.onSpinWait();
+                } else if (running) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                } else if (claimed.compareAndSet(claimedNow, SEALED)) {
+                    // Cerrado y todo consumido: un productor que aún no había reservado ya no puede
+                    break;
+                }
+                continue;
+            }
+            Slot slot = slots[index];
+            line.setLength(0);
+            boolean formatted = false;
+            try {
+                slot.formatInto(line);
+                formatted = true;
+            } catch (Throwable t) {
+                // Un toString() que lanza sólo pierde su mensaje: el escritor no puede morir, o
+                // consumed se pararía y con BLOCK los productores esperarían para siempre
+                dropped.increment();
+            } finally {
+                slot.clear();
+                consumed.lazySet(++next);
+            }
+            if (formatted) {
+                encode(line, buffer, encoder);
+            }
+        }
+        writeOut(buffer);
+    }
+
+    private void encode(StringBuilder line, ByteBuffer buffer, CharsetEncoder encoder) {
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        boolean intact = true;
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (!result.isOverflow()) {
+                break;
+            }
+            intact &= writeOut(buffer);
+        }
+        if (intact) {
+            buffered++;
+        } else {
+            // Falló la escritura de una parte de la línea: el resto se descarta con ella
+            buffer.clear();
+            dropped.increment();
+        }
+    }
+
+    // Vuelca el buffer; si falla, todos los mensajes que contenía cuentan como perdidos
+    private boolean writeOut(ByteBuffer buffer) {
+        if (buffer.position() == 0) {
+            return true;
+        }
+        buffer.flip();
+        boolean ok = true;
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            ok = false;
+        }
+        buffer.clear();
+        if (ok) {
+            written.add(buffered);
+        } else {
+            dropped.add(buffered);
+        }
+        buffered = 0;
+        return ok;
+    }
+
+    private static final class Slot {
+        private long timestamp;
+        private String template;
+        private Object arg0;
+        private Object arg1;
+        private Object arg2;
+        private int argCount;
+
+        void set(long timestamp, String template, Object arg0, Object arg1, Object arg2, int argCount) {
+            this.timestamp = timestamp;
+            this.template = template;
+            this.arg0 = arg0;
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+            this.argCount = argCount;
+        }
+
+        void clear() {
+            template = null;
+            arg0 = arg1 = arg2 = null;
+        }
+
+        void formatInto(StringBuilder out) {
+            out.append(Instant.ofEpochMilli(timestamp)).append(' ');
+            int arg = 0;
+            int from = 0;
+            for (int at = template.indexOf("{}"); at >= 0 && arg < argCount; at = template.indexOf("{}", from)) {
+                out.append(template, from, at).append(arg == 0 ? arg0 : arg == 1 ? arg1 : arg2);
+                arg++;
+                from = at + 2;
+            }
+            out.append(template, from, template.length()).append('\n');
+        }
+    }
+}
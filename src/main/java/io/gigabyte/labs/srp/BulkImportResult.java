@@ -0,0 +1,7 @@
+package io.gigabyte.labs.srp;
+
+import java.util.List;
+
+// Resultado de una importación masiva: rejectedIds no pasaron la validación, failedIds sí pero no se pudieron guardar
+public record BulkImportResult(long saved, List<String> rejectedIds, List<String> failedIds) {
+}
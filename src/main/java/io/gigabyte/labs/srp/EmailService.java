@@ -1,7 +1,22 @@
 package io.gigabyte.labs.srp;
 
 public class EmailService {
-    public void sendEmail(Object email, String productAdded, String s) {
+    public static final String CHANNEL = "email";
+
+    private final NotificationOutbox outbox;
+
+    public EmailService() {
+        this(null);
+    }
 
+    // Delega en el outbox: quien llama no espera al servidor de correo
+    public EmailService(NotificationOutbox outbox) {
+        this.outbox = outbox;
+    }
+
+    public void sendEmail(Object email, String productAdded, String s) {
+        if (outbox != null) {
+            outbox.enqueue(CHANNEL, email, productAdded, s);
+        }
     }
 }
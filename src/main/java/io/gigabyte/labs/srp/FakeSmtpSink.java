@@ -0,0 +1,37 @@
+package io.gigabyte.labs.srp;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sustituto local de un relay SMTP: simula una ida y vuelta por lote y una tasa de fallos opcional
+public class FakeSmtpSink implements NotificationOutbox.Transport {
+    private final Duration latency;
+    private final double failureRate;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+
+    public FakeSmtpSink(Duration latency, double failureRate) {
+        this.latency = latency;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public void send(String recipient, List<NotificationOutbox.OutboxMessage> batch) throws Exception {
+        Thread.sleep(latency);
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IllegalStateException("421 Service not available");
+        }
+        batches.increment();
+        messages.add(batch.size());
+    }
+
+    public long batchCount() {
+        return batches.sum();
+    }
+
+    public long messageCount() {
+        return messages.sum();
+    }
+}
@@ -0,0 +1,542 @@
+package io.gigabyte.labs.srp;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Almacén de productos en memoria con disposición columnar: un array por campo de {@link Product},
+ * precios y cantidades como ints primitivos. Las filas se direccionan por posición.
+ * <ul>
+ *     <li>id → fila: tabla hash de direccionamiento abierto sobre la columna de ids, búsquedas O(1)</li>
+ *     <li>categoría → filas: las categorías se codifican con un diccionario y cada código guarda una
+ *     lista de ints que crece</li>
+ *     <li>rango de precios: filas ordenadas por precio como longs empaquetados, recorridas con una
+ *     búsqueda binaria y sin reservar memoria. Las escrituras sueltas se apuntan en un delta
+ *     ordenado (altas y bajas) que se funde con la base al pasar de ~4√n entradas; un lote grande
+ *     invalida el índice y el primer lector lo reconstruye una sola vez</li>
+ * </ul>
+ */
+public class InMemoryProductRepository extends ProductRepository {
+
+    private static final int NO_ROW = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Columnas
+    private String[] ids;
+    private String[] names;
+    private int[] prices;
+    private int[] quantities;
+    private int[] categoryCodes;
+    private int size;
+
+    // Índice hash de ids: cada slot guarda fila + 1, 0 es vacío
+    private int[] idSlots;
+
+    // Diccionario de categorías y lista de filas por categoría
+    private final Map<Object, Integer> categoryDictionary = new HashMap<>();
+    private Object[] categoryValues = new Object[16];
+    private int[][] categoryRows = new int[16][];
+    private int[] categoryRowCounts = new int[16];
+
+    // Índice de precios: (precio << 32 | fila), ordenado en las primeras priceIndexCount posiciones;
+    // null si hay que reconstruirlo entero
+    private volatile long[] priceIndex;
+    private int priceIndexCount;
+    // Array de la base anterior, que se reutiliza en la siguiente fusión
+    private long[] spareIndex = new long[0];
+    // Delta sobre priceIndex, ordenado: claves nuevas y claves de la base que ya no valen
+    private long[] addedPrices = new long[16];
+    private int addedCount;
+    private long[] removedPrices = new long[16];
+    private int removedCount;
+    private final Object priceIndexRebuild = new Object();
+
+    public InMemoryProductRepository() {
+        this(1024);
+    }
+
+    public InMemoryProductRepository(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        ids = new String[capacity];
+        names = new String[capacity];
+        prices = new int[capacity];
+        quantities = new int[capacity];
+        categoryCodes = new int[capacity];
+        idSlots = new int[tableSizeFor(capacity * 2)];
+    }
+
+    @Override
+    public void saveProduct(Product product) {
+        lock.writeLock().lock();
+        try {
+            upsert(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveProducts(List<Product> products) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + products.size());
+            if (products.size() > deltaLimit()) {
+                // Más barato ordenar una vez que insertar en el delta fila a fila
+                invalidatePriceIndex();
+            }
+            for (Product product : products) {
+                upsert(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Fila del producto con ese id, o -1
+    public int rowOf(String id) {
+        lock.readLock().lock();
+        try {
+            return findRow(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Product findById(String id) {
+        lock.readLock().lock();
+        try {
+            int row = findRow(id);
+            return row == NO_ROW ? null : materialize(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lectura por fila bajo el cerrojo de lectura, como el resto: una escritura puede cambiar las
+    // columnas o mover filas, así que un número de fila sólo es estable dentro del forEachIn* que lo dio
+    public String idAt(int row) {
+        lock.readLock().lock();
+        try {
+            Objects.checkIndex(row, size);
+            return ids[row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public String nameAt(int row) {
+        lock.readLock().lock();
+        try {
+            Objects.checkIndex(row, size);
+            return names[row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int priceAt(int row) {
+        lock.readLock().lock();
+        try {
+            Objects.checkIndex(row, size);
+            return prices[row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int quantityAt(int row) {
+        lock.readLock().lock();
+        try {
+            Objects.checkIndex(row, size);
+            return quantities[row];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Object categoryAt(int row) {
+        lock.readLock().lock();
+        try {
+            Objects.checkIndex(row, size);
+            return categoryValues[categoryCodes[row]];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countByCategory(Object category) {
+        lock.readLock().lock();
+        try {
+            Integer code = categoryDictionary.get(category);
+            return code == null ? 0 : categoryRowCounts[code];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void forEachInCategory(Object category, IntConsumer rowVisitor) {
+        lock.readLock().lock();
+        try {
+            Integer code = categoryDictionary.get(category);
+            if (code == null) {
+                return;
+            }
+            int[] rows = categoryRows[code];
+            for (int i = 0, n = categoryRowCounts[code]; i < n; i++) {
+                rowVisitor.accept(rows[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Visita las filas con minPrice <= precio <= maxPrice en orden ascendente de precio
+    public void forEachInPriceRange(int minPrice, int maxPrice, IntConsumer rowVisitor) {
+        if (minPrice > maxPrice) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            long[] base = priceIndex();
+            long from = firstKey(minPrice);
+            long to = lastKey(maxPrice);
+            int i = lowerBound(base, priceIndexCount, from);
+            int baseEnd = firstAbove(base, priceIndexCount, to);
+            int j = lowerBound(addedPrices, addedCount, from);
+            int addedEnd = firstAbove(addedPrices, addedCount, to);
+            int k = lowerBound(removedPrices, removedCount, from);
+            // Mezcla de la base (saltando las bajas) con las altas, las dos ordenadas
+            while (i < baseEnd || j < addedEnd) {
+                long entry;
+                if (j == addedEnd || i < baseEnd && base[i] < addedPrices[j]) {
+                    entry = base[i++];
+                    while (k < removedCount && removedPrices[k] < entry) {
+                        k++;
+                    }
+                    if (k < removedCount && removedPrices[k] == entry) {
+                        continue;
+                    }
+                } else {
+                    entry = addedPrices[j++];
+                }
+                rowVisitor.accept((int) entry);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countInPriceRange(int minPrice, int maxPrice) {
+        if (minPrice > maxPrice) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            long[] base = priceIndex();
+            long from = firstKey(minPrice);
+            long to = lastKey(maxPrice);
+            // Las bajas siempre son claves de la base
+            return firstAbove(base, priceIndexCount, to) - lowerBound(base, priceIndexCount, from)
+              - (firstAbove(removedPrices, removedCount, to) - lowerBound(removedPrices, removedCount, from))
+              + (firstAbove(addedPrices, addedCount, to) - lowerBound(addedPrices, addedCount, from));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void upsert(Product product) {
+        int row = findRow(product.getId());
+        int code = categoryCode(product.getCategory());
+        if (row == NO_ROW) {
+            ensureCapacity(size + 1);
+            row = size++;
+            ids[row] = product.getId();
+            insertIdSlot(row);
+            addCategoryRow(code, row);
+            indexPrice(row, product.getPrice());
+        } else {
+            if (categoryCodes[row] != code) {
+                removeCategoryRow(categoryCodes[row], row);
+                addCategoryRow(code, row);
+            }
+            if (prices[row] != product.getPrice()) {
+                unindexPrice(row, prices[row]);
+                indexPrice(row, product.getPrice());
+            }
+        }
+        names[row] = product.getName();
+        prices[row] = product.getPrice();
+        quantities[row] = product.getQuantity();
+        categoryCodes[row] = code;
+    }
+
+    private Product materialize(int row) {
+        return new Product(ids[row], names[row], prices[row], quantities[row], categoryValues[categoryCodes[row]]);
+    }
+
+    private int findRow(String id) {
+        int mask = idSlots.length - 1;
+        for (int slot = mix(id.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int stored = idSlots[slot];
+            if (stored == 0) {
+                return NO_ROW;
+            }
+            if (ids[stored - 1].equals(id)) {
+                return stored - 1;
+            }
+        }
+    }
+
+    private void insertIdSlot(int row) {
+        if ((size * 2) > idSlots.length) {
+            rehash(idSlots.length * 2); // también coloca esta fila
+            return;
+        }
+        int mask = idSlots.length - 1;
+        int slot = mix(ids[row].hashCode()) & mask;
+        while (idSlots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        idSlots[slot] = row + 1;
+    }
+
+    private void rehash(int newLength) {
+        int[] slots = new int[newLength];
+        int mask = newLength - 1;
+        for (int row = 0; row < size; row++) {
+            if (ids[row] == null) {
+                continue;
+            }
+            int slot = mix(ids[row].hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = row + 1;
+        }
+        idSlots = slots;
+    }
+
+    private int categoryCode(Object category) {
+        Integer code = categoryDictionary.get(category);
+        if (code != null) {
+            return code;
+        }
+        int next = categoryDictionary.size();
+        if (next == categoryValues.length) {
+            categoryValues = Arrays.copyOf(categoryValues, next * 2);
+            categoryRows = Arrays.copyOf(categoryRows, next * 2);
+            categoryRowCounts = Arrays.copyOf(categoryRowCounts, next * 2);
+        }
+        categoryDictionary.put(category, next);
+        categoryValues[next] = category;
+        categoryRows[next] = new int[16];
+        return next;
+    }
+
+    private void addCategoryRow(int code, int row) {
+        int[] rows = categoryRows[code];
+        int count = categoryRowCounts[code];
+        if (count == rows.length) {
+            rows = categoryRows[code] = Arrays.copyOf(rows, count * 2);
+        }
+        rows[count] = row;
+        categoryRowCounts[code] = count + 1;
+    }
+
+    private void removeCategoryRow(int code, int row) {
+        int[] rows = categoryRows[code];
+        int count = categoryRowCounts[code];
+        for (int i = 0; i < count; i++) {
+            if (rows[i] == row) {
+                rows[i] = rows[count - 1];
+                categoryRowCounts[code] = count - 1;
+                return;
+            }
+        }
+    }
+
+    // Bajo el read lock: los escritores están excluidos y sólo el primer lector reconstruye
+    private long[] priceIndex() {
+        long[] index = priceIndex;
+        if (index == null) {
+            synchronized (priceIndexRebuild) {
+                index = priceIndex;
+                if (index == null) {
+                    index = buildPriceIndex();
+                    priceIndexCount = index.length;
+                    priceIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private long[] buildPriceIndex() {
+        long[] index = new long[size];
+        for (int row = 0; row < size; row++) {
+            index[row] = priceKey(prices[row], row);
+        }
+        Arrays.sort(index);
+        return index;
+    }
+
+    // Escritores, bajo el write lock
+    private void invalidatePriceIndex() {
+        priceIndex = null;
+        spareIndex = new long[0];
+        addedCount = 0;
+        removedCount = 0;
+    }
+
+    private void indexPrice(int row, int price) {
+        if (priceIndex == null) {
+            return; // se reconstruye entero desde las columnas
+        }
+        addedPrices = insertSorted(addedPrices, addedCount++, priceKey(price, row));
+        compactPriceIndexIfNeeded();
+    }
+
+    private void unindexPrice(int row, int price) {
+        if (priceIndex == null) {
+            return;
+        }
+        long key = priceKey(price, row);
+        int pos = lowerBound(addedPrices, addedCount, key);
+        if (pos < addedCount && addedPrices[pos] == key) {
+            // Alta todavía en el delta: basta con quitarla
+            System.arraycopy(addedPrices, pos + 1, addedPrices, pos, addedCount - pos - 1);
+            addedCount--;
+            return;
+        }
+        removedPrices = insertSorted(removedPrices, removedCount++, key);
+        compactPriceIndexIfNeeded();
+    }
+
+    // Funde base, altas y bajas en una pasada, sin reordenar, sobre el array de la base anterior
+    private void compactPriceIndexIfNeeded() {
+        if (addedCount + removedCount <= deltaLimit()) {
+            return;
+        }
+        long[] base = priceIndex;
+        int baseCount = priceIndexCount;
+        int mergedCount = baseCount - removedCount + addedCount;
+        long[] merged = spareIndex.length >= mergedCount ? spareIndex : new long[mergedCount + (mergedCount >> 3)];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        int out = 0;
+        while (i < baseCount || j < addedCount) {
+            if (j == addedCount || i < baseCount && base[i] < addedPrices[j]) {
+                long entry = base[i++];
+                if (k < removedCount && removedPrices[k] == entry) {
+                    k++;
+                    continue;
+                }
+                merged[out++] = entry;
+            } else {
+                merged[out++] = addedPrices[j++];
+            }
+        }
+        spareIndex = base;
+        priceIndexCount = mergedCount;
+        priceIndex = merged;
+        addedCount = 0;
+        removedCount = 0;
+    }
+
+    // Equilibra el coste de insertar en el delta (O(delta)) con el de fundirlo (O(n) cada ~delta escrituras)
+    private int deltaLimit() {
+        return Math.max(1024, 4 * (int) Math.sqrt(size));
+    }
+
+    private static long[] insertSorted(long[] array, int count, long key) {
+        if (count == array.length) {
+            array = Arrays.copyOf(array, count * 2);
+        }
+        int pos = lowerBound(array, count, key);
+        System.arraycopy(array, pos, array, pos + 1, count - pos);
+        array[pos] = key;
+        return array;
+    }
+
+    private static long priceKey(int price, int row) {
+        return ((long) price << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    private static long firstKey(int price) {
+        return (long) price << 32;
+    }
+
+    private static long lastKey(int price) {
+        return ((long) price << 32) | 0xFFFFFFFFL;
+    }
+
+    // Primera posición de [0, count) con valor >= key
+    private static int lowerBound(long[] array, int count, long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Primera posición de [0, count) con valor > key; no desborda con key = Long.MAX_VALUE
+    private static int firstAbove(long[] array, int count, long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        if (idSlots.length < tableSizeFor(capacity * 2)) {
+            rehash(tableSizeFor(capacity * 2));
+        }
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int n) {
+        return Integer.highestOneBit(Math.max(2, n) - 1) << 1;
+    }
+}
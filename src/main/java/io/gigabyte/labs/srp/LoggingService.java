@@ -1,7 +1,38 @@
 package io.gigabyte.labs.srp;
 
 public class LoggingService {
+    private final AsyncLogAppender appender;
+
+    public LoggingService() {
+        this(null);
+    }
+
+    public LoggingService(AsyncLogAppender appender) {
+        this.appender = appender;
+    }
+
     public void log(String s) {
+        if (appender != null) {
+            appender.append(s);
+        }
+    }
+
+    // Variantes perezosas: el mensaje sólo se construye en el hilo escritor del appender
+    public void log(String template, Object arg0) {
+        if (appender != null) {
+            appender.append(template, arg0);
+        }
+    }
+
+    public void log(String template, Object arg0, Object arg1) {
+        if (appender != null) {
+            appender.append(template, arg0, arg1);
+        }
+    }
 
+    public void log(String template, Object arg0, Object arg1, Object arg2) {
+        if (appender != null) {
+            appender.append(template, arg0, arg1, arg2);
+        }
     }
 }
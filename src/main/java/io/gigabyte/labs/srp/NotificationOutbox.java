@@ -0,0 +1,530 @@
+package io.gigabyte.labs.srp;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbox para {@link NotificationService} y {@link EmailService}: quien llama sólo paga una escritura
+ * en un log local y el fsync agrupado que la cubre. Cada canal tiene sus propios hilos que vacían la
+ * cola por lotes, agrupan el lote por destinatario y entregan cada grupo al {@link Transport} del
+ * canal. Los grupos fallidos se reintentan con backoff exponencial; tras {@code maxAttempts} van a
+ * la cola de muertos.
+ * <p>
+ * El log lleva un registro ENQUEUE por mensaje y un ACK o DEAD cuando se resuelve. Al arrancar se
+ * vuelve a encolar cada ENQUEUE sin su registro de cierre, así que los mensajes aceptados antes de
+ * una caída se siguen entregando (al menos una vez). Cuando el fichero pasa de
+ * {@code compactBytes}, el flusher lo reescribe con sólo los ENQUEUE abiertos y lo sustituye de
+ * forma atómica, así que ni el disco ni el replay crecen con los mensajes ya entregados.
+ */
+public class NotificationOutbox implements AutoCloseable {
+
+    public interface Transport {
+        // Entrega todos los mensajes del lote a un destinatario; si lanza, se reintenta el lote entero
+        void send(String recipient, List<OutboxMessage> batch) throws Exception;
+    }
+
+    public record OutboxMessage(long id, String channel, String recipient, String subject, String body) {
+    }
+
+    public record ChannelStats(String channel, long enqueued, long sent, long retried, long dead, int queueDepth,
+                               double sentPerSecond) {
+    }
+
+    private static final byte ENQUEUE = 1;
+    private static final byte ACK = 2;
+    private static final byte DEAD = 3;
+    private static final int NULL_LENGTH = -1;
+    private static final long DEFAULT_COMPACT_BYTES = 64L << 20;
+
+    private final Path logFile;
+    private final long compactBytes;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final Map<String, List<OutboxMessage>> recovered = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    // Bajo logLock: el fichero (el flusher lo cambia al compactar), las posiciones lógicas escritas,
+    // que nunca retroceden, el tamaño real del fichero y los ENQUEUE aún sin ACK ni DEAD
+    private final Object logLock = new Object();
+    private FileChannel log;
+    private long appended;
+    private long logBytes;
+    private final Map<Long, OutboxMessage> open = new LinkedHashMap<>();
+    // Bajo flushLock: hasta dónde se ha pedido fsync, hasta dónde está en disco y si ya no se hará más
+    private final Object flushLock = new Object();
+    private long requested;
+    private long durable;
+    private boolean flushClosed;
+    private IOException flushError;
+
+    public NotificationOutbox(Path logFile, int maxAttempts, Duration baseBackoff) {
+        this(logFile, maxAttempts, baseBackoff, DEFAULT_COMPACT_BYTES);
+    }
+
+    public NotificationOutbox(Path logFile, int maxAttempts, Duration baseBackoff, long compactBytes) {
+        this.logFile = logFile;
+        this.compactBytes = compactBytes;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoff.toMillis();
+        try {
+            replay(logFile);
+            this.log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("outbox-scheduler").daemon().factory());
+        this.flusher = Thread.ofPlatform().name("outbox-flusher").daemon().start(this::flushLoop);
+    }
+
+    /**
+     * Registra un canal y arranca sus hilos. Los mensajes de este canal recuperados del log se
+     * encolan en el momento.
+     */
+    public void registerChannel(String name, Transport transport, int workers, int batchSize) {
+        Channel channel = new Channel(name, transport, batchSize);
+        if (channels.putIfAbsent(name, channel) != null) {
+            throw new IllegalStateException("Channel already registered: " + name);
+        }
+        List<OutboxMessage> pending = recovered.remove(name);
+        if (pending != null) {
+            pending.forEach(message -> channel.offer(new Delivery(message, 0)));
+        }
+        for (int i = 0; i < workers; i++) {
+            channel.workers.add(Thread.ofPlatform().name("outbox-" + name + "-" + i).daemon().start(channel::work));
+        }
+    }
+
+    /**
+     * Acepta un mensaje y vuelve cuando su registro ENQUEUE está en disco, de modo que una caída
+     * posterior no lo pierde. Asunto y cuerpo pueden ser null.
+     */
+    public long enqueue(String channelName, Object recipient, String subject, String body) {
+        Channel channel = channels.get(channelName);
+        if (channel == null) {
+            throw new IllegalArgumentException("Unknown channel: " + channelName);
+        }
+        OutboxMessage message = new OutboxMessage(nextId.getAndIncrement(), channelName, String.valueOf(recipient), subject, body);
+        long end = append(ENQUEUE, message.id(), message);
+        channel.enqueued.increment();
+        // La entrega puede empezar ya; si cae antes del fsync, el mensaje se reenvía y nada más
+        channel.offer(new Delivery(message, 0));
+        awaitDurable(end);
+        return message.id();
+    }
+
+    public List<ChannelStats> stats() {
+        return channels.values().stream().map(Channel::stats).toList();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        // Los hilos terminan el lote que tienen; lo que no tenga ACK queda abierto en el log para el siguiente arranque
+        channels.values().forEach(Channel::wakeUp);
+        for (Channel channel : channels.values()) {
+            for (Thread worker : channel.workers) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        scheduler.shutdownNow();
+        synchronized (flushLock) {
+            flushLock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            synchronized (logLock) {
+                // Último fsync para lo que llegó después de que parase el flusher (ACK incluidos)
+                long target = appended;
+                IOException error = null;
+                try {
+                    log.force(false);
+                } catch (IOException e) {
+                    error = e;
+                }
+                synchronized (flushLock) {
+                    if (error == null) {
+                        durable = Math.max(durable, target);
+                    } else if (flushError == null) {
+                        flushError = error;
+                    }
+                    flushClosed = true;
+                    flushLock.notifyAll();
+                }
+                log.close();
+                if (error != null) {
+                    throw error;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Group commit: un único fsync cubre todo lo escrito mientras corría el anterior, sin esperar a
+     * ningún tick. Si un fsync falla no se reintenta (el estado de la caché de páginas ya no es
+     * fiable) y los enqueue pendientes y posteriores fallan. La compactación también corre aquí, así
+     * que nunca cambia el fichero bajo un fsync en curso.
+     */
+    private void flushLoop() {
+        while (true) {
+            synchronized (flushLock) {
+                while (requested <= durable && running && flushError == null) {
+                    try {
+                        flushLock.wait();
+                    } catch (InterruptedException e) {
+                        // se ignora: el flusher se para con close
+                    }
+                }
+                if (flushError != null || requested <= durable) {
+                    return;
+                }
+            }
+            long target;
+            synchronized (logLock) {
+                target = appended;
+            }
+            IOException error = null;
+            try {
+                log.force(false);
+                target = Math.max(target, compactIfNeeded());
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (flushLock) {
+                if (error == null) {
+                    durable = Math.max(durable, target);
+                } else {
+                    flushError = error;
+                }
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    private void awaitDurable(long end) {
+        boolean interrupted = false;
+        try {
+            synchronized (flushLock) {
+                if (end > requested) {
+                    requested = end;
+                    flushLock.notifyAll();
+                }
+                while (durable < end) {
+                    if (flushError != null) {
+                        throw new UncheckedIOException("Outbox log could not be synced", flushError);
+                    }
+                    if (flushClosed) {
+                        throw new IllegalStateException("Outbox closed before the message was synced");
+                    }
+                    try {
+                        flushLock.wait();
+                    } catch (InterruptedException e) {
+                        // el registro ya está escrito: se espera igualmente y se restaura la marca al salir
+                        interrupted = true;
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reescribe el log con los ENQUEUE abiertos y lo cambia por el actual con un rename atómico. Lo
+     * escrito desde el último fsync, o sigue abierto y va en la copia, o ya está resuelto y no hace
+     * falta, así que tras el cambio todo lo escrito cuenta como en disco: devuelve hasta dónde, o 0
+     * si no tocaba compactar. Bloquea los append mientras copia, pero sólo copia lo pendiente.
+     */
+    private long compactIfNeeded() throws IOException {
+        synchronized (logLock) {
+            if (logBytes < compactBytes) {
+                return 0;
+            }
+            Path compacted = logFile.resolveSibling(logFile.getFileName() + ".compact");
+            long written = 0;
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (OutboxMessage message : open.values()) {
+                    ByteBuffer record = record(ENQUEUE, message.id(), message);
+                    while (record.hasRemaining()) {
+                        written += out.write(record);
+                    }
+                }
+                out.force(true);
+            } catch (IOException e) {
+                // El log actual sigue intacto: se vuelve a intentar en el siguiente fsync
+                Files.deleteIfExists(compacted);
+                return 0;
+            }
+            Files.move(compacted, logFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel directory = FileChannel.open(logFile.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+                directory.force(true);
+            }
+            log.close();
+            log = FileChannel.open(logFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            logBytes = written;
+            return appended;
+        }
+    }
+
+    // Devuelve la posición lógica del log tras el registro
+    private long append(byte type, long id, OutboxMessage message) {
+        ByteBuffer record = record(type, id, message);
+        try {
+            synchronized (logLock) {
+                while (record.hasRemaining()) {
+                    int written = log.write(record);
+                    appended += written;
+                    logBytes += written;
+                }
+                if (type == ENQUEUE) {
+                    open.put(id, message);
+                } else {
+                    open.remove(id);
+                }
+                return appended;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Registro: tipo, id y, para ENQUEUE, los cuatro textos en UTF-8 precedidos de su longitud (-1 si es null)
+    private static ByteBuffer record(byte type, long id, OutboxMessage message) {
+        ByteBuffer record;
+        if (type == ENQUEUE) {
+            byte[][] fields = {
+              bytes(message.channel()),
+              bytes(message.recipient()),
+              bytes(message.subject()),
+              bytes(message.body())};
+            int length = 1 + Long.BYTES;
+            for (byte[] field : fields) {
+                length += Integer.BYTES + (field == null ? 0 : field.length);
+            }
+            record = ByteBuffer.allocate(length).put(type).putLong(id);
+            for (byte[] field : fields) {
+                if (field == null) {
+                    record.putInt(NULL_LENGTH);
+                } else {
+                    record.putInt(field.length).put(field);
+                }
+            }
+        } else {
+            record = ByteBuffer.allocate(1 + Long.BYTES).put(type).putLong(id);
+        }
+        return record.flip();
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Recorre el log y se queda con los ENQUEUE abiertos. Una caída a mitad de escritura deja una
+     * cola incompleta: se descarta cortando el fichero tras el último registro completo, porque el
+     * log se reabre en modo APPEND y lo nuevo quedaría detrás de la basura.
+     */
+    private void replay(Path logFile) throws IOException {
+        if (!Files.exists(logFile)) {
+            return;
+        }
+        long size = Files.size(logFile);
+        long complete = 0;
+        long maxId = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(logFile));
+             DataInputStream data = new DataInputStream(in)) {
+            records:
+            while (complete < size) {
+                long position = complete;
+                try {
+                    byte type = data.readByte();
+                    long id = data.readLong();
+                    position += 1 + Long.BYTES;
+                    if (type == ENQUEUE) {
+                        String[] fields = new String[4];
+                        for (int i = 0; i < fields.length; i++) {
+                            int length = data.readInt();
+                            position += Integer.BYTES;
+                            // Una longitud imposible sólo puede venir de un registro a medias
+                            if (length < NULL_LENGTH || length > size - position) {
+                                break records;
+                            }
+                            fields[i] = readString(data, length);
+                            position += Math.max(length, 0);
+                        }
+                        open.put(id, new OutboxMessage(id, fields[0], fields[1], fields[2], fields[3]));
+                    } else if (type == ACK || type == DEAD) {
+                        open.remove(id);
+                    } else {
+                        break;
+                    }
+                    maxId = Math.max(maxId, id);
+                    complete = position;
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+        if (complete < size) {
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+                channel.truncate(complete);
+                channel.force(true);
+            }
+        }
+        logBytes = complete;
+        nextId.set(maxId + 1);
+        for (OutboxMessage message : open.values()) {
+            recovered.computeIfAbsent(message.channel(), c -> new ArrayList<>()).add(message);
+        }
+    }
+
+    private static String readString(DataInputStream data, int length) throws IOException {
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record Delivery(OutboxMessage message, int attempts) {
+    }
+
+    private final class Channel {
+        private final String name;
+        private final Transport transport;
+        private final int batchSize;
+        private final BlockingQueue<Delivery> queue = new LinkedBlockingQueue<>();
+        private final List<Thread> workers = new ArrayList<>();
+        private final LongAdder enqueued = new LongAdder();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder retried = new LongAdder();
+        private final LongAdder dead = new LongAdder();
+        private final long startNanos = System.nanoTime();
+
+        Channel(String name, Transport transport, int batchSize) {
+            this.name = name;
+            this.transport = transport;
+            this.batchSize = batchSize;
+        }
+
+        void offer(Delivery delivery) {
+            queue.add(delivery);
+        }
+
+        void wakeUp() {
+            queue.add(new Delivery(null, 0));
+        }
+
+        void work() {
+            List<Delivery> batch = new ArrayList<>(batchSize);
+            while (running) {
+                try {
+                    Delivery first = queue.take();
+                    if (first.message() == null) {
+                        wakeUp(); // la píldora pasa al siguiente hilo
+                        return;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    dispatch(batch);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Throwable t) {
+                    // Un fallo al anotar ACK o DEAD: lo que quede sin cerrar en el log se reenvía al
+                    // arrancar, pero el hilo no puede morir con la cola llena detrás
+                    Thread current = Thread.currentThread();
+                    current.getUncaughtExceptionHandler().uncaughtException(current, t);
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void dispatch(List<Delivery> batch) {
+            Map<String, List<Delivery>> byRecipient = new LinkedHashMap<>();
+            for (Delivery delivery : batch) {
+                if (delivery.message() != null) {
+                    byRecipient.computeIfAbsent(delivery.message().recipient(), r -> new ArrayList<>()).add(delivery);
+                }
+            }
+            byRecipient.forEach((recipient, deliveries) -> {
+                List<OutboxMessage> messages = deliveries.stream().map(Delivery::message).toList();
+                try {
+                    transport.send(recipient, messages);
+                    for (OutboxMessage message : messages) {
+                        append(ACK, message.id(), null);
+                    }
+                    sent.add(messages.size());
+                } catch (Throwable t) {
+                    // También un Error del transporte: el hilo sigue y el grupo se reintenta
+                    deliveries.forEach(this::retryOrBury);
+                }
+            });
+        }
+
+        private void retryOrBury(Delivery delivery) {
+            if (!running) {
+                return;
+            }
+            int attempts = delivery.attempts() + 1;
+            if (attempts >= maxAttempts) {
+                append(DEAD, delivery.message().id(), null);
+                dead.increment();
+                return;
+            }
+            retried.increment();
+            long backoff = baseBackoffMillis << Math.min(attempts - 1, 16);
+            long jitter = ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            scheduler.schedule(() -> offer(new Delivery(delivery.message(), attempts)), backoff + jitter, TimeUnit.MILLISECONDS);
+        }
+
+        ChannelStats stats() {
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            long sentCount = sent.sum();
+            return new ChannelStats(name, enqueued.sum(), sentCount, retried.sum(), dead.sum(), queue.size(),
+              seconds > 0 ? sentCount / seconds : 0);
+        }
+    }
+}
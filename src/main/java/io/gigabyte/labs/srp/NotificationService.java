@@ -1,7 +1,22 @@
 package io.gigabyte.labs.srp;
 
 public class NotificationService {
-    public void sendNotification(Object email, String productAdded, String s) {
+    public static final String CHANNEL = "notification";
+
+    private final NotificationOutbox outbox;
+
+    public NotificationService() {
+        this(null);
+    }
 
+    // Delega en el outbox: quien llama no espera a la entrega
+    public NotificationService(NotificationOutbox outbox) {
+        this.outbox = outbox;
+    }
+
+    public void sendNotification(Object email, String productAdded, String s) {
+        if (outbox != null) {
+            outbox.enqueue(CHANNEL, email, productAdded, s);
+        }
     }
 }
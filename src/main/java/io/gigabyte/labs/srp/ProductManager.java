@@ -15,7 +15,7 @@ public class ProductManager {
     public void addProduct(Product product, User createdBy) {
         if (validateProduct(product)) {
             saveProductToDatabase(product);
-            logService.log("Product added: " + product.getId());
+            logService.log("Product added: {}", product.getId());
             emailService.sendEmail(createdBy.getEmail(), "Product Added", "A new product has been added: " + product.getName());
         }
     }
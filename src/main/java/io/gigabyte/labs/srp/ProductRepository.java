@@ -1,11 +1,18 @@
 package io.gigabyte.labs.srp;
 
+import java.util.List;
+
 public class ProductRepository {
     public boolean validateProduct(Product product) {
-        return false;
+        return product.getPrice() > 0 && product.getQuantity() >= 0 && product.getCategory() != null;
     }
 
     public void saveProduct(Product product) {
 
     }
+
+    // Un solo viaje para todo el lote (INSERT multi-fila / addBatch de JDBC)
+    public void saveProducts(List<Product> products) {
+
+    }
 }
@@ -1,44 +1,155 @@
 package io.gigabyte.labs.srp;
 
+import io.gigabyte.labs.metrics.Metrics;
+import io.gigabyte.labs.metrics.StageTimer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+public class ProductService implements AutoCloseable {
+    private static final int DEFAULT_BATCH_SIZE = 1_000;
+    private static final Duration DEFAULT_BATCH_WINDOW = Duration.ofMillis(50);
+    private static final StageTimer VALIDATE = Metrics.global().timer("ProductService", "validate");
+    private static final StageTimer SAVE = Metrics.global().timer("ProductService", "save");
+    private static final StageTimer LOG = Metrics.global().timer("ProductService", "log");
+    private static final StageTimer NOTIFY = Metrics.global().timer("ProductService", "notify");
 
-public class ProductService {
     private ProductRepository accesoBD;
     private LoggingService logger;
     private NotificationService notifier;
+    private volatile WriteBehindBatcher batcher;
 
     public ProductService(ProductRepository repository, LoggingService logger, NotificationService notifier) {
+        this(repository, logger, notifier, null);
+    }
+
+    public ProductService(ProductRepository repository, LoggingService logger, NotificationService notifier,
+                          WriteBehindBatcher batcher) {
         this.accesoBD = repository;
         this.logger = logger;
         this.notifier = notifier;
+        this.batcher = batcher;
     }
 
     public void addProduct(Product product, User createdBy) {
-        if (accesoBD.validateProduct(product)) {
-            accesoBD.saveProduct(product);
-            logger.log("Product added: " + product.getId());
-            notifier.sendNotification(createdBy.getEmail(), "Product Added", "A new product has been added: " + product.getName());
+        StageTimer stage = VALIDATE;
+        long start = stage.start();
+        try {
+            boolean valid = accesoBD.validateProduct(product);
+            start = stage.stop(start);
+            if (valid) {
+                stage = SAVE;
+                accesoBD.saveProduct(product);
+                start = stage.stop(start);
+                stage = LOG;
+                logger.log("Product added: {}", product.getId());
+                start = stage.stop(start);
+                stage = NOTIFY;
+                notifier.sendNotification(createdBy.getEmail(), "Product Added", "A new product has been added: " + product.getName());
+                stage.stop(start);
+            }
+        } catch (RuntimeException e) {
+            stage.fail(start);
+            throw e;
+        }
+    }
+
+    /**
+     * Ingesta masiva: los productos válidos pasan por el batcher write-behind, de modo que importar
+     * un catálogo cuesta un viaje por lote en lugar de uno por fila. Los resultados se cuentan por
+     * lote, sin un futuro por producto, y el futuro devuelto se completa cuando todos los productos
+     * aceptados se han escrito.
+     */
+    public CompletableFuture<BulkImportResult> addProducts(Stream<Product> products) {
+        WriteBehindBatcher writeBehind = batcher();
+        List<String> rejected = Collections.synchronizedList(new ArrayList<>());
+        List<String> failed = Collections.synchronizedList(new ArrayList<>());
+        LongAdder saved = new LongAdder();
+        WriteBehindBatcher.Outcome outcome = new WriteBehindBatcher.Outcome() {
+            @Override
+            public void saved(int count) {
+                saved.add(count);
+            }
+
+            @Override
+            public void failed(List<Product> batch, RuntimeException error) {
+                batch.forEach(product -> failed.add(product.getId()));
+            }
+        };
+        products.forEach(product -> {
+            if (!accesoBD.validateProduct(product)) {
+                rejected.add(product.getId());
+                return;
+            }
+            writeBehind.submit(product, outcome);
+        });
+        // La barrera llega al escritor después del último producto de esta importación
+        return writeBehind.flush()
+          .handle((ignored, error) -> new BulkImportResult(saved.sum(), List.copyOf(rejected), List.copyOf(failed)))
+          .whenComplete((result, error) -> logger.log("Bulk import: {} saved, {} rejected, {} failed",
+            result.saved(), result.rejectedIds().size(), result.failedIds().size()));
+    }
+
+    // Espera a que todo lo encolado hasta ahora por addProducts llegue al repositorio
+    public CompletableFuture<Void> flush() {
+        return batcher == null ? CompletableFuture.completedFuture(null) : batcher.flush();
+    }
+
+    @Override
+    public void close() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    private synchronized WriteBehindBatcher batcher() {
+        if (batcher == null) {
+            batcher = new WriteBehindBatcher(accesoBD, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_WINDOW);
         }
+        return batcher;
     }
 }
 
 class Product{
+    private String id;
+    private String name;
+    private int price;
+    private int quantity;
+    private Object category;
+
+    public Product() {
+    }
+
+    public Product(String id, String name, int price, int quantity, Object category) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.quantity = quantity;
+        this.category = category;
+    }
+
     public String getId() {
-        return null;
+        return id;
     }
 
     public String getName() {
-        return null;
+        return name;
     }
 
     public int getPrice() {
-        return 0;
+        return price;
     }
 
     public int getQuantity() {
-        return 0;
+        return quantity;
     }
 
     public Object getCategory() {
-        return null;
+        return category;
     }
 }
\ No newline at end of file
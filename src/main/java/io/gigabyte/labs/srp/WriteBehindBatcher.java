@@ -0,0 +1,242 @@
+package io.gigabyte.labs.srp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Buffer write-behind delante de {@link ProductRepository}.
+ * Los productos se encolan y un único hilo escritor los guarda con {@link ProductRepository#saveProducts}
+ * cuando el lote está lleno o ha pasado la ventana de tiempo desde su primer producto.
+ */
+public class WriteBehindBatcher implements AutoCloseable {
+
+    /**
+     * Resultado de los productos de un mismo origen (una importación), avisado una vez por tramo
+     * de lote en lugar de una vez por producto. Lo llama el hilo escritor.
+     */
+    public interface Outcome {
+        void saved(int count);
+
+        void failed(List<Product> products, RuntimeException error);
+    }
+
+    // Bit alto de state: cerrado; el resto cuenta los enqueue en curso
+    private static final int CLOSED = 1 << 30;
+    private static final Entry STOP = new Entry(null, null, null);
+
+    private final ProductRepository repository;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    private final AtomicInteger state = new AtomicInteger();
+
+    public WriteBehindBatcher(ProductRepository repository, int maxBatchSize, Duration maxDelay) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.repository = repository;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        // Acotada: un productor rápido se frena en lugar de acumular en memoria toda la importación
+        this.queue = new LinkedBlockingQueue<>(maxBatchSize * 4);
+        this.writer = Thread.ofPlatform().name("product-write-behind").daemon().unstarted(this::drain);
+        this.writer.start();
+    }
+
+    /**
+     * Encola un producto. El futuro se completa cuando se ha escrito el lote que lo contiene, o
+     * de forma excepcional si ese lote falló.
+     */
+    public CompletableFuture<Void> submit(Product product) {
+        CompletableFuture<Void> saved = new CompletableFuture<>();
+        submit(product, new Outcome() {
+            @Override
+            public void saved(int count) {
+                saved.complete(null);
+            }
+
+            @Override
+            public void failed(List<Product> products, RuntimeException error) {
+                saved.completeExceptionally(error);
+            }
+        });
+        return saved;
+    }
+
+    // Para importaciones grandes: un mismo Outcome para todos los productos, sin un futuro por fila
+    public void submit(Product product, Outcome outcome) {
+        enqueue(new Entry(product, outcome, null));
+    }
+
+    // Barrera: se completa cuando se ha escrito todo lo enviado antes de esta llamada
+    public CompletableFuture<Void> flush() {
+        CompletableFuture<Void> barrier = new CompletableFuture<>();
+        enqueue(new Entry(null, null, barrier));
+        return barrier;
+    }
+
+    /**
+     * Deja de aceptar productos, espera a los enqueue que ya habían pasado la comprobación y
+     * escribe todo lo encolado antes de parar el escritor.
+     */
+    @Override
+    public void close() {
+        int current;
+        do {
+            current = state.get();
+            if ((current & CLOSED) != 0) {
+                return;
+            }
+        } while (!state.compareAndSet(current, current | CLOSED));
+        // El escritor sigue vaciando la cola, así que un productor bloqueado en put acaba saliendo
+        while (state.get() != CLOSED) {
+            LockSupport.parkNanos(100_000);
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(STOP);
+                writer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        int current;
+        do {
+            current = state.get();
+            if ((current & CLOSED) != 0) {
+                throw new IllegalStateException("Batcher is closed");
+            }
+        } while (!state.compareAndSet(current, current + 1));
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (entry.isBarrier()) {
+                entry.barrier().completeExceptionally(e);
+            } else {
+                entry.outcome().failed(List.of(entry.product()), new IllegalStateException("Interrupted while queueing", e));
+            }
+        } finally {
+            state.decrementAndGet();
+        }
+    }
+
+    // STOP es lo último que entra en la cola, así que al verlo ya no queda nada por escribir
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            Entry first = take();
+            if (first == STOP) {
+                return;
+            }
+            if (first.isBarrier()) {
+                first.barrier().complete(null);
+                continue;
+            }
+            batch.add(first);
+            long deadline = System.nanoTime() + maxDelayNanos;
+            Entry last = null;
+            while (batch.size() < maxBatchSize) {
+                Entry next = poll(deadline - System.nanoTime());
+                if (next == null) {
+                    break;
+                }
+                if (next == STOP || next.isBarrier()) {
+                    last = next;
+                    break;
+                }
+                batch.add(next);
+            }
+            write(batch);
+            batch.clear();
+            if (last == STOP) {
+                return;
+            }
+            if (last != null) {
+                last.barrier().complete(null);
+            }
+        }
+    }
+
+    private void write(List<Entry> batch) {
+        List<Product> products = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            products.add(entry.product());
+        }
+        RuntimeException error = null;
+        try {
+            repository.saveProducts(products);
+        } catch (RuntimeException e) {
+            error = e;
+        } catch (Throwable t) {
+            // También un Error del repositorio se avisa como fallo del lote en lugar de matar al escritor
+            error = new IllegalStateException("Saving the batch failed", t);
+        }
+        // Un aviso por tramo consecutivo con el mismo Outcome
+        int from = 0;
+        for (int i = 1; i <= batch.size(); i++) {
+            if (i < batch.size() && batch.get(i).outcome() == batch.get(from).outcome()) {
+                continue;
+            }
+            notify(batch.get(from).outcome(), products.subList(from, i), error);
+            from = i;
+        }
+    }
+
+    // Los Outcome son del llamante: si uno lanza, se informa y se sigue con los demás
+    private static void notify(Outcome outcome, List<Product> products, RuntimeException error) {
+        try {
+            if (error == null) {
+                outcome.saved(products.size());
+            } else {
+                outcome.failed(products, error);
+            }
+        } catch (Throwable t) {
+            Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, t);
+        }
+    }
+
+    // El escritor nunca se interrumpe: se para con STOP
+    private Entry take() {
+        while (true) {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                // se ignora
+            }
+        }
+    }
+
+    private Entry poll(long timeoutNanos) {
+        while (true) {
+            try {
+                return queue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                // se ignora
+            }
+        }
+    }
+
+    private record Entry(Product product, Outcome outcome, CompletableFuture<Void> barrier) {
+        boolean isBarrier() {
+            return barrier != null;
+        }
+    }
+}